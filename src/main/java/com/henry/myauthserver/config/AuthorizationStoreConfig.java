@@ -0,0 +1,102 @@
+package com.henry.myauthserver.config;
+
+import com.henry.myauthserver.repository.OAuth2AuthorizationConsentRepository;
+import com.henry.myauthserver.repository.OAuth2AuthorizationRepository;
+import com.henry.myauthserver.repository.RetiredRefreshTokenRepository;
+import com.henry.myauthserver.security.BoundedInMemoryOAuth2AuthorizationService;
+import com.henry.myauthserver.security.CacheInvalidationLog;
+import com.henry.myauthserver.security.ClientCredentialsTokenCache;
+import com.henry.myauthserver.security.JpaOAuth2AuthorizationConsentService;
+import com.henry.myauthserver.security.JpaOAuth2AuthorizationService;
+import com.henry.myauthserver.security.TokenIntrospectionCache;
+import com.henry.myauthserver.security.TokenRevocationList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Selects the authorization store with {@code oauth2.authorization.store}: {@code database}
+ * (default) for restart-safe storage shared by every node, or {@code memory} for a bounded
+ * on-heap store on single-node deployments. Consents are always stored in the database.
+ */
+@Configuration
+public class AuthorizationStoreConfig {
+
+    @Value("${oauth2.authorization.purge-chunk-size:500}")
+    private int purgeChunkSize;
+
+    @Value("${oauth2.authorization.pending-ttl:PT10M}")
+    private Duration pendingAuthorizationTtl;
+
+    @Value("${oauth2.authorization.memory.max-entries:100000}")
+    private long maxInMemoryEntries;
+
+    @Value("${oauth2.consent-cache.max-size:10000}")
+    private long consentCacheMaxSize;
+
+    @Value("${oauth2.consent-cache.ttl:PT10M}")
+    private Duration consentCacheTtl;
+
+    @Value("${oauth2.introspection.cache-max-size:10000}")
+    private long introspectionCacheMaxSize;
+
+    @Value("${oauth2.introspection.cache-ttl:PT30S}")
+    private Duration introspectionCacheTtl;
+
+    @Value("${oauth2.client-credentials.reuse-max-size:1000}")
+    private long reusedTokensMaxSize;
+
+    @Value("${oauth2.client-credentials.reuse-min-remaining:PT5M}")
+    private Duration reusedTokenMinRemaining;
+
+    @Bean
+    @ConditionalOnProperty(name = "oauth2.authorization.store", havingValue = "database", matchIfMissing = true)
+    public JpaOAuth2AuthorizationService authorizationService(OAuth2AuthorizationRepository authorizationRepository,
+                                                              RetiredRefreshTokenRepository retiredRefreshTokenRepository,
+                                                              RegisteredClientRepository registeredClientRepository,
+                                                              ApplicationEventPublisher eventPublisher,
+                                                              PlatformTransactionManager transactionManager) {
+        return new JpaOAuth2AuthorizationService(authorizationRepository, retiredRefreshTokenRepository,
+                registeredClientRepository, eventPublisher, transactionManager, purgeChunkSize,
+                pendingAuthorizationTtl);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "oauth2.authorization.store", havingValue = "memory")
+    public BoundedInMemoryOAuth2AuthorizationService inMemoryAuthorizationService(
+            ApplicationEventPublisher eventPublisher) {
+        return new BoundedInMemoryOAuth2AuthorizationService(maxInMemoryEntries, pendingAuthorizationTtl,
+                eventPublisher);
+    }
+
+    @Bean
+    public JpaOAuth2AuthorizationConsentService authorizationConsentService(
+            OAuth2AuthorizationConsentRepository consentRepository,
+            RegisteredClientRepository registeredClientRepository,
+            CacheInvalidationLog invalidationLog) {
+        return new JpaOAuth2AuthorizationConsentService(consentRepository, registeredClientRepository,
+                invalidationLog, consentCacheMaxSize, consentCacheTtl);
+    }
+
+    @Bean
+    public TokenIntrospectionCache tokenIntrospectionCache(OAuth2AuthorizationService authorizationService,
+                                                           RegisteredClientRepository registeredClientRepository,
+                                                           TokenRevocationList revocationList) {
+        return new TokenIntrospectionCache(
+                new OAuth2TokenIntrospectionAuthenticationProvider(registeredClientRepository, authorizationService),
+                revocationList, introspectionCacheMaxSize, introspectionCacheTtl);
+    }
+
+    @Bean
+    public ClientCredentialsTokenCache clientCredentialsTokenCache(OAuth2AuthorizationService authorizationService) {
+        return new ClientCredentialsTokenCache(authorizationService, reusedTokensMaxSize, reusedTokenMinRemaining);
+    }
+}
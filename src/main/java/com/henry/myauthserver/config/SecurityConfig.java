@@ -1,44 +1,73 @@
 package com.henry.myauthserver.config;
 
-import com.henry.myauthserver.entity.AppUser;
-import com.henry.myauthserver.repository.UserRepository;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.henry.myauthserver.repository.OAuth2RegisteredClientRepository;
+import com.henry.myauthserver.security.AuthorizationStoreTokenIntrospector;
+import com.henry.myauthserver.repository.CacheInvalidationRepository;
+import com.henry.myauthserver.repository.RevokedTokenRepository;
+import com.henry.myauthserver.security.BoundedPasswordEncoder;
+import com.henry.myauthserver.security.CacheInvalidationLog;
+import com.henry.myauthserver.security.CachingJwtDecoder;
+import com.henry.myauthserver.security.ClientCredentialsTokenCache;
+import com.henry.myauthserver.security.JpaRegisteredClientRepository;
+import com.henry.myauthserver.security.LoginFailureHandler;
+import com.henry.myauthserver.security.LoginRateLimitFilter;
+import com.henry.myauthserver.security.MetadataResponseCacheFilter;
+import com.henry.myauthserver.security.PasswordHashCalibrator;
+import com.henry.myauthserver.security.RefreshTokenReuseDetector;
+import com.henry.myauthserver.security.RevocableOAuth2AuthorizationService;
+import com.henry.myauthserver.security.SigningKeyRing;
+import com.henry.myauthserver.security.TokenIntrospectionCache;
+import com.henry.myauthserver.security.TokenRevocationList;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationManagerResolver;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.core.oidc.OidcScopes;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationProvider;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
-import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
 import org.springframework.security.oauth2.server.authorization.config.annotation.web.configurers.OAuth2AuthorizationServerConfigurer;
 import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
 import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
 import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.authentication.OpaqueTokenAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.LoginUrlAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.CorsFilter;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Configuration
@@ -53,9 +82,98 @@ public class SecurityConfig {
     @Value("${oauth2.client-id:client}")
     private String clientId;
 
+    @Value("${oauth2.service-client.client-id:}")
+    private String serviceClientId;
+
+    @Value("${oauth2.service-client.client-secret:}")
+    private String serviceClientSecret;
+
+    @Value("${oauth2.service-client.scopes:read}")
+    private String[] serviceClientScopes;
+
+    @Value("${oauth2.service-client.reuse-tokens:true}")
+    private boolean serviceClientReuseTokens;
+
+    @Value("${oauth2.access-token-format:self-contained}")
+    private String accessTokenFormat;
+
+    @Value("${oauth2.issuer:}")
+    private String issuer;
+
+    @Value("${oauth2.metadata-cache.max-age:PT5M}")
+    private Duration metadataMaxAge;
+
+    @Value("${security.jwt-cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+
+    @Value("${security.revocation.batch-size:500}")
+    private int revocationBatchSize;
+
+    @Value("${security.revocation.poll-lag:PT1M}")
+    private Duration revocationPollLag;
+
+    @Value("${security.revocation.expected-revocations:10000}")
+    private long expectedRevocations;
+
+    @Value("${security.revocation.false-positive-probability:0.01}")
+    private double revocationFalsePositiveProbability;
+
+    @Value("${security.cache-invalidation.batch-size:500}")
+    private int cacheInvalidationBatchSize;
+
+    @Value("${security.cache-invalidation.poll-lag:PT1M}")
+    private Duration cacheInvalidationPollLag;
+
+    @Value("${security.cache-invalidation.retention:PT1H}")
+    private Duration cacheInvalidationRetention;
+
+    @Value("${security.rate-limit.login.per-ip.capacity:20}")
+    private long loginIpCapacity;
+
+    @Value("${security.rate-limit.login.per-ip.refill-interval:PT3S}")
+    private Duration loginIpRefill;
+
+    @Value("${security.rate-limit.login.per-username.capacity:5}")
+    private long loginUsernameCapacity;
+
+    @Value("${security.rate-limit.login.per-username.refill-interval:PT12S}")
+    private Duration loginUsernameRefill;
+
+    @Value("${security.rate-limit.register.per-ip.capacity:5}")
+    private long registerIpCapacity;
+
+    @Value("${security.rate-limit.register.per-ip.refill-interval:PT1M}")
+    private Duration registerIpRefill;
+
+    @Value("${security.rate-limit.max-keys:100000}")
+    private long rateLimitMaxKeys;
+
+    @Value("${security.password-hashing.threads:0}")
+    private int hashingThreads;
+
+    @Value("${security.password-hashing.queue-capacity:100}")
+    private int hashingQueueCapacity;
+
+    @Value("${security.password-hashing.retry-after-seconds:1}")
+    private long hashingRetryAfterSeconds;
+
+    @Value("${security.password-hashing.algorithm:bcrypt}")
+    private String hashingAlgorithm;
+
+    @Value("${security.password-hashing.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.password-hashing.target-millis:250}")
+    private long hashingTargetMillis;
+
     @Bean
     @Order(1)
-    public SecurityFilterChain authServerSecurityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain authServerSecurityFilterChain(HttpSecurity http, SigningKeyRing keyRing,
+                                                             TokenIntrospectionCache introspectionCache,
+                                                             ClientCredentialsTokenCache clientCredentialsTokenCache,
+                                                             RevocableOAuth2AuthorizationService authorizationService,
+                                                             JwtDecoder jwtDecoder)
+            throws Exception {
         OAuth2AuthorizationServerConfigurer authorizationServerConfigurer =
                 OAuth2AuthorizationServerConfigurer.authorizationServer();
 
@@ -66,6 +184,24 @@ public class SecurityConfig {
                         .oidc(oidc -> oidc
                                 .logoutEndpoint(Customizer.withDefaults())
                         )
+                        .tokenEndpoint(token -> token
+                                .authenticationProviders(providers -> providers.replaceAll(provider -> {
+                                    if (provider instanceof OAuth2ClientCredentialsAuthenticationProvider) {
+                                        return clientCredentialsTokenCache.wrap(provider);
+                                    }
+                                    // A rotated-out refresh token presented again revokes its family
+                                    if (provider instanceof OAuth2RefreshTokenAuthenticationProvider) {
+                                        return new RefreshTokenReuseDetector(provider, authorizationService);
+                                    }
+                                    return provider;
+                                }))
+                        )
+                        .tokenIntrospectionEndpoint(introspection -> introspection
+                                .authenticationProviders(providers -> {
+                                    providers.clear();
+                                    providers.add(introspectionCache.asAuthenticationProvider());
+                                })
+                        )
                 )
                 .authorizeHttpRequests(authorize ->
                         authorize.anyRequest().authenticated()
@@ -73,40 +209,89 @@ public class SecurityConfig {
                 .exceptionHandling(exceptions ->
                         exceptions.authenticationEntryPoint(new LoginUrlAuthenticationEntryPoint("/login"))
                 )
-                .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()))
-                .cors(Customizer.withDefaults());
+                // /userinfo and client registration accept JWTs and reference tokens alike
+                .oauth2ResourceServer(oauth2 -> oauth2.authenticationManagerResolver(
+                        bearerTokenAuthenticationManagers(jwtDecoder, authorizationService)))
+                .cors(Customizer.withDefaults())
+                // JWKS and discovery documents are served from memory once rendered
+                .addFilterAfter(new MetadataResponseCacheFilter(keyRing::getVersion, metadataMaxAge), CorsFilter.class);
 
         return http.build();
     }
 
+    // A JWT has three dot-separated parts; anything else is a reference token, looked up
+    // in the authorization store
+    private static AuthenticationManagerResolver<HttpServletRequest> bearerTokenAuthenticationManagers(
+            JwtDecoder jwtDecoder, OAuth2AuthorizationService authorizationService) {
+        BearerTokenResolver tokenResolver = new DefaultBearerTokenResolver();
+        AuthenticationManager jwt = new ProviderManager(new JwtAuthenticationProvider(jwtDecoder));
+        AuthenticationManager reference = new ProviderManager(new OpaqueTokenAuthenticationProvider(
+                new AuthorizationStoreTokenIntrospector(authorizationService)));
+        return request -> {
+            String token = tokenResolver.resolve(request);
+            return token != null && token.chars().filter(c -> c == '.').count() == 2 ? jwt : reference;
+        };
+    }
+
+    // Stateless admin API for operators and scripts, authenticated with HTTP Basic
     @Bean
     @Order(2)
+    public SecurityFilterChain adminApiSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/api/admin/**")
+                .authorizeHttpRequests(auth -> auth.anyRequest().hasRole("ADMIN"))
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(AbstractHttpConfigurer::disable)
+                .cors(Customizer.withDefaults());
+
+        return http.build();
+    }
+
+    @Bean
+    @Order(3)
     public SecurityFilterChain defaultSecurityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(auth ->
                         auth
                                 .requestMatchers("/login", "/home", "/css/**", "/js/**", "/api/auth/**", "/h2-console/**").permitAll()
+                                // Authenticates the calling client itself with HTTP Basic
+                                .requestMatchers("/oauth2/introspect/batch").permitAll()
                                 .anyRequest().authenticated()
                 )
                 .csrf(csrf -> csrf
-                        .ignoringRequestMatchers("/login", "/api/auth/**", "/h2-console/**")
+                        .ignoringRequestMatchers("/login", "/api/auth/**", "/h2-console/**", "/oauth2/introspect/batch")
                 )
                 .headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin))
                 .formLogin(form -> form
                     .loginPage("/login")
-                    .failureUrl("/login?error=true")
+                    .failureHandler(new LoginFailureHandler("/login?error=true"))
                 )
                 .logout(logout -> logout
                     .logoutSuccessUrl("/login?logout=true")
                 )
-                .cors(Customizer.withDefaults());
+                .cors(Customizer.withDefaults())
+                // Throttles credential stuffing before it reaches the password encoder
+                .addFilterBefore(loginRateLimitFilter(), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    private LoginRateLimitFilter loginRateLimitFilter() {
+        return new LoginRateLimitFilter(
+                new LoginRateLimitFilter.Limit(loginIpCapacity, loginIpRefill),
+                new LoginRateLimitFilter.Limit(loginUsernameCapacity, loginUsernameRefill),
+                new LoginRateLimitFilter.Limit(registerIpCapacity, registerIpRefill),
+                rateLimitMaxKeys);
+    }
+
+    // The configured clients are registered on first start and updated when their
+    // configuration changes; further clients are added to the oauth2_registered_client
+    // table and picked up by every node without a redeploy
     @Bean
-    public RegisteredClientRepository registeredClientRepository() {
-        RegisteredClient registeredClient = RegisteredClient.withId(UUID.randomUUID().toString())
+    public JpaRegisteredClientRepository registeredClientRepository(OAuth2RegisteredClientRepository clientRepository,
+                                                                    PasswordEncoder passwordEncoder) {
+        RegisteredClient registeredClient = RegisteredClient.withId(stableId(clientId))
                 .clientId(clientId)
                 .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
                 .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
@@ -118,7 +303,11 @@ public class SecurityConfig {
                 .scope("read")
                 .scope("write")
                 .tokenSettings(TokenSettings.builder()
+                        .accessTokenFormat(accessTokenFormat())
                         .accessTokenTimeToLive(Duration.ofMinutes(30))
+                        // Every refresh returns a new refresh token; presenting a replaced
+                        // one revokes the whole authorization
+                        .reuseRefreshTokens(false)
                         .refreshTokenTimeToLive(Duration.ofDays(1))
                         .build())
                 .clientSettings(ClientSettings.builder()
@@ -127,62 +316,107 @@ public class SecurityConfig {
                         .build())
                 .build();
 
-        return new InMemoryRegisteredClientRepository(registeredClient);
+        JpaRegisteredClientRepository registeredClientRepository = new JpaRegisteredClientRepository(clientRepository);
+        registeredClientRepository.reload();
+        registeredClientRepository.seed(registeredClient, passwordEncoder);
+        if (StringUtils.hasText(serviceClientId)) {
+            registeredClientRepository.seed(serviceClient(), passwordEncoder);
+        }
+        return registeredClientRepository;
     }
 
-    @Bean
-    public UserDetailsService userDetailsService(UserRepository userRepository) {
-        return username -> {
-            AppUser user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-            return User.builder()
-                    .username(user.getUsername())
-                    .password(user.getPassword())
-                    .roles(user.getRole())
-                    .disabled(!user.isEnabled())
-                    .build();
-        };
+    // Confidential machine-to-machine client; repeat token requests get the still-valid
+    // token issued earlier for the same scopes when reuse is enabled. The secret is raw
+    // here and only hashed by seed() when it differs from the stored one.
+    private RegisteredClient serviceClient() {
+        if (!StringUtils.hasText(serviceClientSecret)) {
+            throw new IllegalStateException("oauth2.service-client.client-secret is required when "
+                    + "oauth2.service-client.client-id is set");
+        }
+        return RegisteredClient.withId(stableId(serviceClientId))
+                .clientId(serviceClientId)
+                .clientSecret(serviceClientSecret)
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scopes(scopes -> scopes.addAll(Arrays.asList(serviceClientScopes)))
+                .tokenSettings(TokenSettings.builder()
+                        .accessTokenFormat(accessTokenFormat())
+                        .accessTokenTimeToLive(Duration.ofMinutes(30))
+                        .build())
+                .clientSettings(ClientSettings.builder()
+                        .setting(ClientCredentialsTokenCache.REUSE_ACCESS_TOKENS, serviceClientReuseTokens)
+                        .build())
+                .build();
     }
 
+    // Stable id so persisted authorizations still resolve their client after a restart
+    // and on every node
+    private static String stableId(String clientId) {
+        return UUID.nameUUIDFromBytes(clientId.getBytes(StandardCharsets.UTF_8)).toString();
+    }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // Reference tokens are opaque handles resolved through /oauth2/introspect; each client's
+    // token_settings can override the format seeded here
+    private OAuth2TokenFormat accessTokenFormat() {
+        return "reference".equalsIgnoreCase(accessTokenFormat)
+                ? OAuth2TokenFormat.REFERENCE
+                : OAuth2TokenFormat.SELF_CONTAINED;
     }
 
-    @Bean
-    public JWKSource<SecurityContext> jwkSource() {
-        KeyPair keyPair = generateRsaKey();
-        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-        RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-
-        RSAKey rsaKey = new RSAKey.Builder(publicKey)
-                .privateKey(privateKey)
-                .keyID(UUID.randomUUID().toString())
-                .build();
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder() {
+        return new BoundedPasswordEncoder(createDelegatingPasswordEncoder(),
+                hashingThreads, hashingQueueCapacity, hashingRetryAfterSeconds);
+    }
 
-        JWKSet jwkSet = new JWKSet(rsaKey);
-        return new ImmutableJWKSet<>(jwkSet);
+    // New hashes use the configured algorithm; hashes stored without an {id} prefix are
+    // legacy BCrypt. Anything not matching the current algorithm and cost is re-hashed on
+    // the next successful login through AppUserDetailsService.updatePassword.
+    private PasswordEncoder createDelegatingPasswordEncoder() {
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : PasswordHashCalibrator.calibrateBCryptStrength(Duration.ofMillis(hashingTargetMillis));
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(hashingAlgorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
     }
 
-    private static KeyPair generateRsaKey() {
-        try {
-            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-            keyPairGenerator.initialize(2048);
-            return keyPairGenerator.generateKeyPair();
-        } catch (Exception ex) {
-            throw new IllegalStateException(ex);
-        }
+    @Bean
+    public TokenRevocationList tokenRevocationList(RevokedTokenRepository revokedTokenRepository) {
+        TokenRevocationList revocationList = new TokenRevocationList(revokedTokenRepository, revocationBatchSize,
+                revocationPollLag, expectedRevocations, revocationFalsePositiveProbability);
+        revocationList.poll();
+        return revocationList;
     }
 
     @Bean
-    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource) {
-        return OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource);
+    public CacheInvalidationLog cacheInvalidationLog(CacheInvalidationRepository invalidationRepository,
+                                                     PlatformTransactionManager transactionManager) {
+        return new CacheInvalidationLog(invalidationRepository, transactionManager, cacheInvalidationBatchSize,
+                cacheInvalidationPollLag, cacheInvalidationRetention);
+    }
+
+    @Bean
+    public CachingJwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource, TokenRevocationList revocationList) {
+        return new CachingJwtDecoder(OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource), revocationList,
+                jwtCacheMaxSize);
     }
 
     @Bean
     public AuthorizationServerSettings authorizationServerSettings() {
-        return AuthorizationServerSettings.builder().build();
+        AuthorizationServerSettings.Builder builder = AuthorizationServerSettings.builder();
+        // Without one the issuer is taken from each request's scheme, host and port
+        if (StringUtils.hasText(issuer)) {
+            builder.issuer(issuer);
+        }
+        return builder.build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.henry.myauthserver.config;
+
+import com.henry.myauthserver.repository.SigningKeyRepository;
+import com.henry.myauthserver.security.JwtTokenCustomizer;
+import com.henry.myauthserver.security.SigningKeyRing;
+import com.henry.myauthserver.service.AppUserDetailsService;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+public class SigningKeyConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyConfig.class);
+
+    @Value("${security.signing-keys.rotation-period:P30D}")
+    private Duration rotationPeriod;
+
+    @Value("${security.signing-keys.retired-retention:P2D}")
+    private Duration retiredRetention;
+
+    @Value("${security.signing-keys.rsa-key-size:2048}")
+    private int rsaKeySize;
+
+    // RS256 and/or ES256; every listed algorithm keeps its own active key
+    @Value("${security.signing-keys.algorithms:RS256}")
+    private String[] algorithms;
+
+    @Value("${security.signing-keys.default-algorithm:RS256}")
+    private String defaultAlgorithm;
+
+    @Value("${security.signing-keys.encryption-password:}")
+    private String encryptionPassword;
+
+    @Value("${security.signing-keys.encryption-salt:}")
+    private String encryptionSalt;
+
+    // Local development only; never honoured in the production profile
+    @Value("${security.signing-keys.allow-unencrypted:false}")
+    private boolean allowUnencrypted;
+
+    @Bean
+    public SigningKeyRing signingKeyRing(SigningKeyRepository signingKeyRepository, Environment environment) {
+        List<JWSAlgorithm> signingAlgorithms = Arrays.stream(algorithms)
+                .map(String::trim)
+                .map(JWSAlgorithm::parse)
+                .toList();
+        if (!signingAlgorithms.contains(JWSAlgorithm.parse(defaultAlgorithm))) {
+            throw new IllegalStateException("security.signing-keys.default-algorithm " + defaultAlgorithm
+                    + " is not listed in security.signing-keys.algorithms");
+        }
+        SigningKeyRing keyRing = new SigningKeyRing(signingKeyRepository, keyEncryptor(environment),
+                rotationPeriod, retiredRetention, rsaKeySize, signingAlgorithms);
+        keyRing.initialize();
+        return keyRing;
+    }
+
+    // Publishes every key in the ring; the authorization server serves it at /oauth2/jwks
+    @Bean
+    public JWKSource<SecurityContext> jwkSource(SigningKeyRing keyRing) {
+        return keyRing.publishedJwkSource();
+    }
+
+    // Signs with the active key of the algorithm in the JWS header
+    @Bean
+    public JwtEncoder jwtEncoder(SigningKeyRing keyRing) {
+        return new NimbusJwtEncoder(keyRing.signingJwkSource());
+    }
+
+    @Bean
+    public JwtTokenCustomizer jwtTokenCustomizer(SigningKeyRing keyRing, AppUserDetailsService userDetailsService) {
+        return new JwtTokenCustomizer(keyRing, SignatureAlgorithm.from(defaultAlgorithm), userDetailsService);
+    }
+
+    // Private keys outlive the process, so they are only ever stored in plain text when
+    // explicitly allowed outside production
+    private TextEncryptor keyEncryptor(Environment environment) {
+        if (StringUtils.hasText(encryptionPassword) && StringUtils.hasText(encryptionSalt)) {
+            return Encryptors.delux(encryptionPassword, encryptionSalt);
+        }
+        boolean production = environment.acceptsProfiles(Profiles.of("production"));
+        if (StringUtils.hasText(encryptionPassword) || !allowUnencrypted || production) {
+            throw new IllegalStateException("security.signing-keys.encryption-password and encryption-salt "
+                    + "are required to store signing keys (SIGNING_KEY_PASSWORD, SIGNING_KEY_SALT)");
+        }
+        log.warn("security.signing-keys.allow-unencrypted is set; signing keys are stored unencrypted");
+        return Encryptors.noOpText();
+    }
+}
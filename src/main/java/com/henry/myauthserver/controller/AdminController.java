@@ -0,0 +1,139 @@
+package com.henry.myauthserver.controller;
+
+import com.henry.myauthserver.security.RevocableOAuth2AuthorizationService;
+import com.henry.myauthserver.service.OperationalStatsService;
+import com.henry.myauthserver.service.UserExportService;
+import com.henry.myauthserver.service.UserImportService;
+import com.henry.myauthserver.service.UserSearchService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Operator endpoints under {@code /api/admin}, restricted to users with the ADMIN role.
+ */
+@Controller
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final RevocableOAuth2AuthorizationService authorizationService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final UserSearchService userSearchService;
+    private final OperationalStatsService statsService;
+
+    public AdminController(RevocableOAuth2AuthorizationService authorizationService,
+                           UserImportService userImportService, UserExportService userExportService,
+                           UserSearchService userSearchService, OperationalStatsService statsService) {
+        this.authorizationService = authorizationService;
+        this.userImportService = userImportService;
+        this.userExportService = userExportService;
+        this.userSearchService = userSearchService;
+        this.statsService = statsService;
+    }
+
+    // Answered from maintained counters, safe to poll from monitoring
+    @GetMapping("/stats")
+    public ResponseEntity<OperationalStatsService.Stats> stats() {
+        return ResponseEntity.ok(statsService.getStats());
+    }
+
+    // Prefix search with keyset paging: pass the returned "next" as "after" for the next page
+    @GetMapping("/users")
+    public ResponseEntity<?> searchUsers(@RequestParam String prefix,
+                                         @RequestParam(defaultValue = "username") String field,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        UserSearchService.Field searchField;
+        if ("username".equalsIgnoreCase(field)) {
+            searchField = UserSearchService.Field.USERNAME;
+        } else if ("email".equalsIgnoreCase(field)) {
+            searchField = UserSearchService.Field.EMAIL;
+        } else {
+            return ResponseEntity.badRequest().body(Map.of("error", "field must be username or email"));
+        }
+        try {
+            return ResponseEntity.ok(userSearchService.search(searchField, prefix, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Signs the user out of every client: access tokens stop validating on this node at
+    // once and refresh tokens can no longer be used anywhere
+    @DeleteMapping("/users/{username}/sessions")
+    public ResponseEntity<?> revokeSessions(@PathVariable String username) {
+        int revoked = authorizationService.revokeAll(username);
+        return ResponseEntity.ok(Map.of("username", username, "revokedAuthorizations", revoked));
+    }
+
+    // The body is read straight from the request stream, so an import of any size is
+    // never held in memory as a whole
+    @PostMapping("/users/import")
+    public ResponseEntity<?> importUsers(HttpServletRequest request) throws IOException {
+        UserImportService.Format format = formatOf(request.getContentType());
+        if (format == null) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(Map.of("error", "Content-Type must be application/x-ndjson or text/csv"));
+        }
+        return ResponseEntity.ok(userImportService.importUsers(request.getInputStream(), format));
+    }
+
+    // Streamed page by page on an async thread; compressed on the fly when the client accepts gzip
+    @GetMapping("/users/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192, true);
+                userExportService.exportUsers(compressed);
+                compressed.finish();
+            } else {
+                userExportService.exportUsers(out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private static UserImportService.Format formatOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (NDJSON.includes(mediaType)) {
+            return UserImportService.Format.NDJSON;
+        }
+        if (CSV.includes(mediaType)) {
+            return UserImportService.Format.CSV;
+        }
+        return null;
+    }
+}
@@ -3,15 +3,20 @@ package com.henry.myauthserver.controller;
 import com.henry.myauthserver.dto.RegistrationRequest;
 import com.henry.myauthserver.dto.RegistrationResponse;
 import com.henry.myauthserver.entity.AppUser;
+import com.henry.myauthserver.security.PasswordHashingSaturatedException;
+import com.henry.myauthserver.service.OperationalStatsService;
+import com.henry.myauthserver.service.UserAvailabilityService;
 import com.henry.myauthserver.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Controller
@@ -19,10 +24,15 @@ import java.util.Map;
 public class AuthController {
 
     private final UserService userService;
+    private final UserAvailabilityService availabilityService;
+    private final OperationalStatsService statsService;
     private final Environment environment;
 
-    public AuthController(UserService userService, Environment environment) {
+    public AuthController(UserService userService, UserAvailabilityService availabilityService,
+                          OperationalStatsService statsService, Environment environment) {
         this.userService = userService;
+        this.availabilityService = availabilityService;
+        this.statsService = statsService;
         this.environment = environment;
     }
 
@@ -35,25 +45,54 @@ public class AuthController {
                     user.getUsername()
             );
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (PasswordHashingSaturatedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new ErrorResponse("Server is busy, please retry shortly"));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         }
     }
 
+    // As-you-type check for the signup form, answered from the availability filter
+    // for almost every name that is not taken
+    @GetMapping("/availability")
+    public ResponseEntity<?> checkAvailability(@RequestParam(required = false) String username,
+                                               @RequestParam(required = false) String email) {
+        if (isBlank(username) && isBlank(email)) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Username or email is required"));
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (!isBlank(username)) {
+            response.put("username", username);
+            response.put("usernameAvailable", availabilityService.isUsernameAvailable(username));
+        }
+        if (!isBlank(email)) {
+            response.put("email", email);
+            response.put("emailAvailable", availabilityService.isEmailAvailable(email));
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/db-info")
     public ResponseEntity<?> getDatabaseInfo() {
-        try {
-            // This will help debug what database we're actually connecting to
-            long userCount = userService.getUserCount();
-            return ResponseEntity.ok(Map.of(
-                "userCount", userCount,
-                "database", "connected",
-                "profile", Arrays.toString(environment.getActiveProfiles())
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ErrorResponse("Database connection failed: " + e.getMessage()));
+        // This will help debug what database we're actually connecting to. Connectivity is
+        // a validated pool connection and the count is the maintained counter, so frequent
+        // polling never scans the users table.
+        if (!statsService.isDatabaseReachable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorResponse("Database connection failed"));
         }
+        return ResponseEntity.ok(Map.of(
+            "userCount", statsService.getUserCount(),
+            "database", "connected",
+            "profile", Arrays.toString(environment.getActiveProfiles())
+        ));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 
     // Error response class
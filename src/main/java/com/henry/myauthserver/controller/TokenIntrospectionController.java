@@ -0,0 +1,119 @@
+package com.henry.myauthserver.controller;
+
+import com.henry.myauthserver.dto.BatchIntrospectionRequest;
+import com.henry.myauthserver.security.PasswordHashingSaturatedException;
+import com.henry.myauthserver.security.TokenIntrospectionCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenIntrospection;
+import org.springframework.security.oauth2.server.authorization.authentication.ClientSecretAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.web.authentication.ClientSecretBasicAuthenticationConverter;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Introspects many tokens in one round trip for resource servers that validate a burst
+ * of requests at once. The client authenticates with HTTP Basic as it would at
+ * {@code /oauth2/introspect}; results come back in request order with the same claims.
+ */
+@Controller
+@RequestMapping("/oauth2/introspect")
+public class TokenIntrospectionController {
+
+    private final TokenIntrospectionCache introspectionCache;
+    private final ClientSecretBasicAuthenticationConverter clientCredentialsConverter =
+            new ClientSecretBasicAuthenticationConverter();
+    private final ClientSecretAuthenticationProvider clientAuthenticationProvider;
+    private final int maxTokens;
+
+    public TokenIntrospectionController(TokenIntrospectionCache introspectionCache,
+                                        RegisteredClientRepository registeredClientRepository,
+                                        OAuth2AuthorizationService authorizationService,
+                                        PasswordEncoder passwordEncoder,
+                                        @Value("${oauth2.introspection.batch-max-tokens:100}") int maxTokens) {
+        this.introspectionCache = introspectionCache;
+        this.clientAuthenticationProvider =
+                new ClientSecretAuthenticationProvider(registeredClientRepository, authorizationService);
+        this.clientAuthenticationProvider.setPasswordEncoder(passwordEncoder);
+        this.maxTokens = maxTokens;
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> introspectBatch(@Valid @RequestBody BatchIntrospectionRequest request,
+                                             HttpServletRequest httpRequest) {
+        OAuth2ClientAuthenticationToken client;
+        try {
+            client = authenticateClient(httpRequest);
+        } catch (PasswordHashingSaturatedException e) {
+            // The client secret check runs on the bounded hashing pool, as /register does
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", "temporarily_unavailable"));
+        }
+        if (client == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, "Basic")
+                    .body(Map.of("error", "invalid_client"));
+        }
+        if (request.getTokens().size() > maxTokens) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "invalid_request",
+                            "error_description", "At most " + maxTokens + " tokens per request"));
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(request.getTokens().size());
+        for (String token : request.getTokens()) {
+            OAuth2TokenIntrospectionAuthenticationToken result = introspectionCache.introspect(
+                    new OAuth2TokenIntrospectionAuthenticationToken(token, client, null, null));
+            results.add(toResponse(result.getTokenClaims()));
+        }
+        return ResponseEntity.ok(Map.of("results", results));
+    }
+
+    private OAuth2ClientAuthenticationToken authenticateClient(HttpServletRequest request) {
+        try {
+            Authentication credentials = clientCredentialsConverter.convert(request);
+            if (credentials == null) {
+                return null;
+            }
+            return (OAuth2ClientAuthenticationToken) clientAuthenticationProvider.authenticate(credentials);
+        } catch (OAuth2AuthenticationException e) {
+            return null;
+        }
+    }
+
+    // Same representation as the introspection endpoint: times as epoch seconds
+    private static Map<String, Object> toResponse(OAuth2TokenIntrospection claims) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        claims.getClaims().forEach((name, value) -> {
+            if (value instanceof Instant instant) {
+                response.put(name, instant.getEpochSecond());
+            } else if (value instanceof URL url) {
+                response.put(name, url.toExternalForm());
+            } else {
+                response.put(name, value);
+            }
+        });
+        return response;
+    }
+}
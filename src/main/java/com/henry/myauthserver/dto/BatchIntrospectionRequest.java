@@ -0,0 +1,15 @@
+package com.henry.myauthserver.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class BatchIntrospectionRequest {
+
+    @NotEmpty(message = "At least one token is required")
+    private List<String> tokens;
+
+    // Getters and Setters
+    public List<String> getTokens() { return tokens; }
+    public void setTokens(List<String> tokens) { this.tokens = tokens; }
+}
@@ -4,10 +4,15 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_users_username_normalized", columnNames = "username_normalized"),
+        @UniqueConstraint(name = "uk_users_email_normalized", columnNames = "email_normalized")
+}, indexes = @Index(name = "idx_users_created_at", columnList = "created_at"))
 public class AppUser {
 
     @Id
@@ -28,6 +33,14 @@ public class AppUser {
     @Column(nullable = false)
     private String password;
 
+    // Lower-cased copies backing the case-insensitive unique constraints. Nullable only
+    // so that ddl-auto can add them to existing tables; they are always set on write.
+    @Column(name = "username_normalized", length = 50)
+    private String usernameNormalized;
+
+    @Column(name = "email_normalized")
+    private String emailNormalized;
+
     @Column(nullable = false)
     private boolean enabled = true;
 
@@ -37,9 +50,31 @@ public class AppUser {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Written in batches by AccountLockoutService, never through this entity's updates
+    @Column(name = "failed_login_attempts", insertable = false, updatable = false)
+    private Integer failedLoginAttempts;
+
+    @Column(name = "locked_until", insertable = false, updatable = false)
+    private Instant lockedUntil;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        updateNormalizedColumns();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updateNormalizedColumns();
+    }
+
+    private void updateNormalizedColumns() {
+        usernameNormalized = normalize(username);
+        emailNormalized = normalize(email);
+    }
+
+    public static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
     }
 
     // Getters and Setters
@@ -52,6 +87,10 @@ public class AppUser {
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
 
+    public String getUsernameNormalized() { return usernameNormalized; }
+
+    public String getEmailNormalized() { return emailNormalized; }
+
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
 
@@ -63,4 +102,8 @@ public class AppUser {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public int getFailedLoginAttempts() { return failedLoginAttempts == null ? 0 : failedLoginAttempts; }
+
+    public Instant getLockedUntil() { return lockedUntil; }
 }
\ No newline at end of file
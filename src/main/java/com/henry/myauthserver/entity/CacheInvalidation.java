@@ -0,0 +1,50 @@
+package com.henry.myauthserver.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A cache entry changed or removed on one node, which every other node must drop. Rows are
+ * only ever appended and are purged once every node has had time to poll them.
+ */
+@Entity
+@Table(name = "cache_invalidations", indexes = {
+        @Index(name = "idx_cache_invalidations_invalidated_at", columnList = "invalidated_at, id")
+})
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cache_name", nullable = false, length = 50)
+    private String cacheName;
+
+    @Column(name = "cache_key", nullable = false, length = 200)
+    private String cacheKey;
+
+    @Column(name = "invalidated_at", nullable = false)
+    private Instant invalidatedAt;
+
+    public CacheInvalidation() {
+    }
+
+    public CacheInvalidation(String cacheName, String cacheKey) {
+        this.cacheName = cacheName;
+        this.cacheKey = cacheKey;
+        this.invalidatedAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getCacheName() { return cacheName; }
+    public void setCacheName(String cacheName) { this.cacheName = cacheName; }
+
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public Instant getInvalidatedAt() { return invalidatedAt; }
+    public void setInvalidatedAt(Instant invalidatedAt) { this.invalidatedAt = invalidatedAt; }
+}
@@ -0,0 +1,61 @@
+package com.henry.myauthserver.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+@Entity
+@Table(name = "oauth2_authorization_consent")
+@IdClass(OAuth2AuthorizationConsentEntity.ConsentId.class)
+public class OAuth2AuthorizationConsentEntity {
+
+    @Id
+    @Column(name = "registered_client_id", length = 100)
+    private String registeredClientId;
+
+    @Id
+    @Column(name = "principal_name", length = 200)
+    private String principalName;
+
+    @Column(nullable = false, length = 1000)
+    private String authorities;
+
+    // Getters and Setters
+    public String getRegisteredClientId() { return registeredClientId; }
+    public void setRegisteredClientId(String registeredClientId) { this.registeredClientId = registeredClientId; }
+
+    public String getPrincipalName() { return principalName; }
+    public void setPrincipalName(String principalName) { this.principalName = principalName; }
+
+    public String getAuthorities() { return authorities; }
+    public void setAuthorities(String authorities) { this.authorities = authorities; }
+
+    public static class ConsentId implements Serializable {
+        private String registeredClientId;
+        private String principalName;
+
+        public ConsentId() {
+        }
+
+        public ConsentId(String registeredClientId, String principalName) {
+            this.registeredClientId = registeredClientId;
+            this.principalName = principalName;
+        }
+
+        public String getRegisteredClientId() { return registeredClientId; }
+        public String getPrincipalName() { return principalName; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ConsentId that)) return false;
+            return Objects.equals(registeredClientId, that.registeredClientId)
+                    && Objects.equals(principalName, that.principalName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(registeredClientId, principalName);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.henry.myauthserver.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Persistent form of an {@code OAuth2Authorization}. Token values are kept so the
+ * authorization can be rebuilt, but lookups go through the indexed SHA-256 hash columns.
+ */
+@Entity
+@Table(name = "oauth2_authorization", indexes = {
+        @Index(name = "idx_oauth2_authorization_state", columnList = "state_hash"),
+        @Index(name = "idx_oauth2_authorization_code", columnList = "authorization_code_hash"),
+        @Index(name = "idx_oauth2_authorization_access_token", columnList = "access_token_hash"),
+        @Index(name = "idx_oauth2_authorization_refresh_token", columnList = "refresh_token_hash"),
+        @Index(name = "idx_oauth2_authorization_id_token", columnList = "oidc_id_token_hash"),
+        @Index(name = "idx_oauth2_authorization_expires_at", columnList = "expires_at"),
+        // Every token family (authorization) of a user, for revoking all their sessions
+        @Index(name = "idx_oauth2_authorization_principal", columnList = "principal_name, id")
+})
+public class OAuth2AuthorizationEntity {
+
+    @Id
+    @Column(length = 100)
+    private String id;
+
+    @Column(name = "registered_client_id", nullable = false, length = 100)
+    private String registeredClientId;
+
+    @Column(name = "principal_name", nullable = false, length = 200)
+    private String principalName;
+
+    @Column(name = "authorization_grant_type", nullable = false, length = 100)
+    private String authorizationGrantType;
+
+    @Column(name = "authorized_scopes", length = 1000)
+    private String authorizedScopes;
+
+    @Column(length = 10000)
+    private String attributes;
+
+    @Column(length = 500)
+    private String state;
+
+    @Column(name = "state_hash", length = 64)
+    private String stateHash;
+
+    @Column(name = "authorization_code_value", length = 4000)
+    private String authorizationCodeValue;
+
+    @Column(name = "authorization_code_hash", length = 64)
+    private String authorizationCodeHash;
+
+    @Column(name = "authorization_code_issued_at")
+    private Instant authorizationCodeIssuedAt;
+
+    @Column(name = "authorization_code_expires_at")
+    private Instant authorizationCodeExpiresAt;
+
+    @Column(name = "authorization_code_metadata", length = 4000)
+    private String authorizationCodeMetadata;
+
+    @Column(name = "access_token_value", length = 4000)
+    private String accessTokenValue;
+
+    @Column(name = "access_token_hash", length = 64)
+    private String accessTokenHash;
+
+    @Column(name = "access_token_issued_at")
+    private Instant accessTokenIssuedAt;
+
+    @Column(name = "access_token_expires_at")
+    private Instant accessTokenExpiresAt;
+
+    @Column(name = "access_token_metadata", length = 4000)
+    private String accessTokenMetadata;
+
+    @Column(name = "access_token_scopes", length = 1000)
+    private String accessTokenScopes;
+
+    @Column(name = "refresh_token_value", length = 4000)
+    private String refreshTokenValue;
+
+    @Column(name = "refresh_token_hash", length = 64)
+    private String refreshTokenHash;
+
+    @Column(name = "refresh_token_issued_at")
+    private Instant refreshTokenIssuedAt;
+
+    @Column(name = "refresh_token_expires_at")
+    private Instant refreshTokenExpiresAt;
+
+    @Column(name = "refresh_token_metadata", length = 4000)
+    private String refreshTokenMetadata;
+
+    @Column(name = "oidc_id_token_value", length = 4000)
+    private String oidcIdTokenValue;
+
+    @Column(name = "oidc_id_token_hash", length = 64)
+    private String oidcIdTokenHash;
+
+    @Column(name = "oidc_id_token_issued_at")
+    private Instant oidcIdTokenIssuedAt;
+
+    @Column(name = "oidc_id_token_expires_at")
+    private Instant oidcIdTokenExpiresAt;
+
+    @Column(name = "oidc_id_token_metadata", length = 4000)
+    private String oidcIdTokenMetadata;
+
+    @Column(name = "oidc_id_token_claims", length = 4000)
+    private String oidcIdTokenClaims;
+
+    // Latest expiry of any token in the authorization; rows past it are purged
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getRegisteredClientId() { return registeredClientId; }
+    public void setRegisteredClientId(String registeredClientId) { this.registeredClientId = registeredClientId; }
+
+    public String getPrincipalName() { return principalName; }
+    public void setPrincipalName(String principalName) { this.principalName = principalName; }
+
+    public String getAuthorizationGrantType() { return authorizationGrantType; }
+    public void setAuthorizationGrantType(String authorizationGrantType) { this.authorizationGrantType = authorizationGrantType; }
+
+    public String getAuthorizedScopes() { return authorizedScopes; }
+    public void setAuthorizedScopes(String authorizedScopes) { this.authorizedScopes = authorizedScopes; }
+
+    public String getAttributes() { return attributes; }
+    public void setAttributes(String attributes) { this.attributes = attributes; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public String getStateHash() { return stateHash; }
+    public void setStateHash(String stateHash) { this.stateHash = stateHash; }
+
+    public String getAuthorizationCodeValue() { return authorizationCodeValue; }
+    public void setAuthorizationCodeValue(String authorizationCodeValue) { this.authorizationCodeValue = authorizationCodeValue; }
+
+    public String getAuthorizationCodeHash() { return authorizationCodeHash; }
+    public void setAuthorizationCodeHash(String authorizationCodeHash) { this.authorizationCodeHash = authorizationCodeHash; }
+
+    public Instant getAuthorizationCodeIssuedAt() { return authorizationCodeIssuedAt; }
+    public void setAuthorizationCodeIssuedAt(Instant authorizationCodeIssuedAt) { this.authorizationCodeIssuedAt = authorizationCodeIssuedAt; }
+
+    public Instant getAuthorizationCodeExpiresAt() { return authorizationCodeExpiresAt; }
+    public void setAuthorizationCodeExpiresAt(Instant authorizationCodeExpiresAt) { this.authorizationCodeExpiresAt = authorizationCodeExpiresAt; }
+
+    public String getAuthorizationCodeMetadata() { return authorizationCodeMetadata; }
+    public void setAuthorizationCodeMetadata(String authorizationCodeMetadata) { this.authorizationCodeMetadata = authorizationCodeMetadata; }
+
+    public String getAccessTokenValue() { return accessTokenValue; }
+    public void setAccessTokenValue(String accessTokenValue) { this.accessTokenValue = accessTokenValue; }
+
+    public String getAccessTokenHash() { return accessTokenHash; }
+    public void setAccessTokenHash(String accessTokenHash) { this.accessTokenHash = accessTokenHash; }
+
+    public Instant getAccessTokenIssuedAt() { return accessTokenIssuedAt; }
+    public void setAccessTokenIssuedAt(Instant accessTokenIssuedAt) { this.accessTokenIssuedAt = accessTokenIssuedAt; }
+
+    public Instant getAccessTokenExpiresAt() { return accessTokenExpiresAt; }
+    public void setAccessTokenExpiresAt(Instant accessTokenExpiresAt) { this.accessTokenExpiresAt = accessTokenExpiresAt; }
+
+    public String getAccessTokenMetadata() { return accessTokenMetadata; }
+    public void setAccessTokenMetadata(String accessTokenMetadata) { this.accessTokenMetadata = accessTokenMetadata; }
+
+    public String getAccessTokenScopes() { return accessTokenScopes; }
+    public void setAccessTokenScopes(String accessTokenScopes) { this.accessTokenScopes = accessTokenScopes; }
+
+    public String getRefreshTokenValue() { return refreshTokenValue; }
+    public void setRefreshTokenValue(String refreshTokenValue) { this.refreshTokenValue = refreshTokenValue; }
+
+    public String getRefreshTokenHash() { return refreshTokenHash; }
+    public void setRefreshTokenHash(String refreshTokenHash) { this.refreshTokenHash = refreshTokenHash; }
+
+    public Instant getRefreshTokenIssuedAt() { return refreshTokenIssuedAt; }
+    public void setRefreshTokenIssuedAt(Instant refreshTokenIssuedAt) { this.refreshTokenIssuedAt = refreshTokenIssuedAt; }
+
+    public Instant getRefreshTokenExpiresAt() { return refreshTokenExpiresAt; }
+    public void setRefreshTokenExpiresAt(Instant refreshTokenExpiresAt) { this.refreshTokenExpiresAt = refreshTokenExpiresAt; }
+
+    public String getRefreshTokenMetadata() { return refreshTokenMetadata; }
+    public void setRefreshTokenMetadata(String refreshTokenMetadata) { this.refreshTokenMetadata = refreshTokenMetadata; }
+
+    public String getOidcIdTokenValue() { return oidcIdTokenValue; }
+    public void setOidcIdTokenValue(String oidcIdTokenValue) { this.oidcIdTokenValue = oidcIdTokenValue; }
+
+    public String getOidcIdTokenHash() { return oidcIdTokenHash; }
+    public void setOidcIdTokenHash(String oidcIdTokenHash) { this.oidcIdTokenHash = oidcIdTokenHash; }
+
+    public Instant getOidcIdTokenIssuedAt() { return oidcIdTokenIssuedAt; }
+    public void setOidcIdTokenIssuedAt(Instant oidcIdTokenIssuedAt) { this.oidcIdTokenIssuedAt = oidcIdTokenIssuedAt; }
+
+    public Instant getOidcIdTokenExpiresAt() { return oidcIdTokenExpiresAt; }
+    public void setOidcIdTokenExpiresAt(Instant oidcIdTokenExpiresAt) { this.oidcIdTokenExpiresAt = oidcIdTokenExpiresAt; }
+
+    public String getOidcIdTokenMetadata() { return oidcIdTokenMetadata; }
+    public void setOidcIdTokenMetadata(String oidcIdTokenMetadata) { this.oidcIdTokenMetadata = oidcIdTokenMetadata; }
+
+    public String getOidcIdTokenClaims() { return oidcIdTokenClaims; }
+    public void setOidcIdTokenClaims(String oidcIdTokenClaims) { this.oidcIdTokenClaims = oidcIdTokenClaims; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,103 @@
+package com.henry.myauthserver.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Persistent form of a {@code RegisteredClient}. Every save takes the next
+ * {@code change_version}, which lets each node pick up changed clients by polling for
+ * versions above the last one it has seen.
+ */
+@Entity
+@Table(name = "oauth2_registered_client", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_oauth2_registered_client_client_id", columnNames = "client_id"),
+        @UniqueConstraint(name = "uk_oauth2_registered_client_change_version", columnNames = "change_version")
+})
+public class OAuth2RegisteredClientEntity {
+
+    @Id
+    @Column(length = 100)
+    private String id;
+
+    @Column(name = "client_id", nullable = false, length = 100)
+    private String clientId;
+
+    @Column(name = "client_id_issued_at")
+    private Instant clientIdIssuedAt;
+
+    @Column(name = "client_secret", length = 200)
+    private String clientSecret;
+
+    @Column(name = "client_secret_expires_at")
+    private Instant clientSecretExpiresAt;
+
+    @Column(name = "client_name", nullable = false, length = 200)
+    private String clientName;
+
+    @Column(name = "client_authentication_methods", nullable = false, length = 1000)
+    private String clientAuthenticationMethods;
+
+    @Column(name = "authorization_grant_types", nullable = false, length = 1000)
+    private String authorizationGrantTypes;
+
+    @Column(name = "redirect_uris", length = 1000)
+    private String redirectUris;
+
+    @Column(name = "post_logout_redirect_uris", length = 1000)
+    private String postLogoutRedirectUris;
+
+    @Column(nullable = false, length = 1000)
+    private String scopes;
+
+    @Column(name = "client_settings", nullable = false, length = 2000)
+    private String clientSettings;
+
+    @Column(name = "token_settings", nullable = false, length = 2000)
+    private String tokenSettings;
+
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
+
+    public Instant getClientIdIssuedAt() { return clientIdIssuedAt; }
+    public void setClientIdIssuedAt(Instant clientIdIssuedAt) { this.clientIdIssuedAt = clientIdIssuedAt; }
+
+    public String getClientSecret() { return clientSecret; }
+    public void setClientSecret(String clientSecret) { this.clientSecret = clientSecret; }
+
+    public Instant getClientSecretExpiresAt() { return clientSecretExpiresAt; }
+    public void setClientSecretExpiresAt(Instant clientSecretExpiresAt) { this.clientSecretExpiresAt = clientSecretExpiresAt; }
+
+    public String getClientName() { return clientName; }
+    public void setClientName(String clientName) { this.clientName = clientName; }
+
+    public String getClientAuthenticationMethods() { return clientAuthenticationMethods; }
+    public void setClientAuthenticationMethods(String clientAuthenticationMethods) { this.clientAuthenticationMethods = clientAuthenticationMethods; }
+
+    public String getAuthorizationGrantTypes() { return authorizationGrantTypes; }
+    public void setAuthorizationGrantTypes(String authorizationGrantTypes) { this.authorizationGrantTypes = authorizationGrantTypes; }
+
+    public String getRedirectUris() { return redirectUris; }
+    public void setRedirectUris(String redirectUris) { this.redirectUris = redirectUris; }
+
+    public String getPostLogoutRedirectUris() { return postLogoutRedirectUris; }
+    public void setPostLogoutRedirectUris(String postLogoutRedirectUris) { this.postLogoutRedirectUris = postLogoutRedirectUris; }
+
+    public String getScopes() { return scopes; }
+    public void setScopes(String scopes) { this.scopes = scopes; }
+
+    public String getClientSettings() { return clientSettings; }
+    public void setClientSettings(String clientSettings) { this.clientSettings = clientSettings; }
+
+    public String getTokenSettings() { return tokenSettings; }
+    public void setTokenSettings(String tokenSettings) { this.tokenSettings = tokenSettings; }
+
+    public long getChangeVersion() { return changeVersion; }
+    public void setChangeVersion(long changeVersion) { this.changeVersion = changeVersion; }
+}
@@ -0,0 +1,46 @@
+package com.henry.myauthserver.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A refresh token that has been exchanged for a new one. Presenting it again means it
+ * leaked, and the authorization it belonged to (its token family) is revoked.
+ */
+@Entity
+@Table(name = "oauth2_retired_refresh_token", indexes = {
+        @Index(name = "idx_retired_refresh_token_authorization", columnList = "authorization_id"),
+        @Index(name = "idx_retired_refresh_token_expires_at", columnList = "expires_at")
+})
+public class RetiredRefreshTokenEntity {
+
+    @Id
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
+
+    @Column(name = "authorization_id", nullable = false, length = 100)
+    private String authorizationId;
+
+    // Kept until the family itself can no longer be refreshed
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public RetiredRefreshTokenEntity() {
+    }
+
+    public RetiredRefreshTokenEntity(String tokenHash, String authorizationId, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.authorizationId = authorizationId;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+
+    public String getAuthorizationId() { return authorizationId; }
+    public void setAuthorizationId(String authorizationId) { this.authorizationId = authorizationId; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
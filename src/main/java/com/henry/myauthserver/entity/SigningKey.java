@@ -0,0 +1,88 @@
+package com.henry.myauthserver.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A JWT signing key in the key ring. The key material is the JWK JSON, including the
+ * private part, encrypted when an encryption password is configured.
+ */
+@Entity
+@Table(name = "signing_keys", indexes = {
+        @Index(name = "idx_signing_keys_status", columnList = "status")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_signing_keys_next_slot", columnNames = "next_slot")
+})
+public class SigningKey {
+
+    public enum Status {
+        /** Published, waiting to become active at the next rotation. */
+        NEXT,
+        /** Published and used to sign new tokens. */
+        ACTIVE,
+        /** Published only so tokens it signed can still be verified. */
+        RETIRED
+    }
+
+    @Id
+    @Column(length = 100)
+    private String kid;
+
+    @Column(nullable = false, length = 20)
+    private String algorithm;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "key_data", nullable = false, length = 10000)
+    private String keyData;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "activated_at")
+    private Instant activatedAt;
+
+    @Column(name = "retired_at")
+    private Instant retiredAt;
+
+    // The algorithm while the key is NEXT, otherwise null: the unique constraint allows one
+    // next key per algorithm, so two nodes cannot both publish one
+    @Column(name = "next_slot", length = 20)
+    private String nextSlot;
+
+    // Guards promotions so two nodes rotating at once cannot both win
+    @Version
+    private long version;
+
+    @PrePersist
+    @PreUpdate
+    void updateNextSlot() {
+        nextSlot = status == Status.NEXT ? algorithm : null;
+    }
+
+    // Getters and Setters
+    public String getKid() { return kid; }
+    public void setKid(String kid) { this.kid = kid; }
+
+    public String getAlgorithm() { return algorithm; }
+    public void setAlgorithm(String algorithm) { this.algorithm = algorithm; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getKeyData() { return keyData; }
+    public void setKeyData(String keyData) { this.keyData = keyData; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getActivatedAt() { return activatedAt; }
+    public void setActivatedAt(Instant activatedAt) { this.activatedAt = activatedAt; }
+
+    public Instant getRetiredAt() { return retiredAt; }
+    public void setRetiredAt(Instant retiredAt) { this.retiredAt = retiredAt; }
+
+    public long getVersion() { return version; }
+}
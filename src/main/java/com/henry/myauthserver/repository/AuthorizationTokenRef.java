@@ -0,0 +1,10 @@
+package com.henry.myauthserver.repository;
+
+import java.time.Instant;
+
+/**
+ * Id and current access token of an authorization: all that is needed to revoke it.
+ * Loaded through a constructor expression so none of the token payloads are read.
+ */
+public record AuthorizationTokenRef(String id, String accessTokenHash, Instant accessTokenExpiresAt) {
+}
@@ -0,0 +1,22 @@
+package com.henry.myauthserver.repository;
+
+import com.henry.myauthserver.entity.CacheInvalidation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+    // Walks the (invalidated_at, id) index, so each poll reads only the recent rows
+    List<CacheInvalidation> findByInvalidatedAtGreaterThanEqualAndIdGreaterThanOrderById(Instant invalidatedAt,
+                                                                                        Long id, Pageable pageable);
+
+    @Query("select c.id from CacheInvalidation c where c.invalidatedAt < :before")
+    List<Long> findIdsInvalidatedBefore(@Param("before") Instant before, Pageable pageable);
+}
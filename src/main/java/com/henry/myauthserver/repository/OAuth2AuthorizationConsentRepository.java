@@ -0,0 +1,10 @@
+package com.henry.myauthserver.repository;
+
+import com.henry.myauthserver.entity.OAuth2AuthorizationConsentEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OAuth2AuthorizationConsentRepository
+        extends JpaRepository<OAuth2AuthorizationConsentEntity, OAuth2AuthorizationConsentEntity.ConsentId> {
+}
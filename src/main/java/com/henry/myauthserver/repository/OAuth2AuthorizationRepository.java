@@ -0,0 +1,49 @@
+package com.henry.myauthserver.repository;
+
+import com.henry.myauthserver.entity.OAuth2AuthorizationEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OAuth2AuthorizationRepository extends JpaRepository<OAuth2AuthorizationEntity, String> {
+    Optional<OAuth2AuthorizationEntity> findByStateHash(String stateHash);
+    Optional<OAuth2AuthorizationEntity> findByAuthorizationCodeHash(String authorizationCodeHash);
+    Optional<OAuth2AuthorizationEntity> findByAccessTokenHash(String accessTokenHash);
+    Optional<OAuth2AuthorizationEntity> findByRefreshTokenHash(String refreshTokenHash);
+    Optional<OAuth2AuthorizationEntity> findByOidcIdTokenHash(String oidcIdTokenHash);
+
+    @Query("select a from OAuth2AuthorizationEntity a where a.stateHash = :hash" +
+           " or a.authorizationCodeHash = :hash or a.accessTokenHash = :hash" +
+           " or a.refreshTokenHash = :hash or a.oidcIdTokenHash = :hash")
+    Optional<OAuth2AuthorizationEntity> findByAnyTokenHash(@Param("hash") String hash);
+
+    // Locks the row until the saving transaction ends, so concurrent saves of one
+    // authorization each see the refresh token the other one wrote
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a.refreshTokenHash from OAuth2AuthorizationEntity a where a.id = :id")
+    Optional<String> findRefreshTokenHashForUpdateById(@Param("id") String id);
+
+    @Query("select new com.henry.myauthserver.repository.AuthorizationTokenRef(a.id, a.accessTokenHash, a.accessTokenExpiresAt) " +
+           "from OAuth2AuthorizationEntity a where a.id = :id")
+    Optional<AuthorizationTokenRef> findTokenRefById(@Param("id") String id);
+
+    @Query("select new com.henry.myauthserver.repository.AuthorizationTokenRef(a.id, a.accessTokenHash, a.accessTokenExpiresAt) " +
+           "from OAuth2AuthorizationEntity a where a.principalName = :principalName")
+    List<AuthorizationTokenRef> findTokenRefsByPrincipalName(@Param("principalName") String principalName);
+
+    // Served from the expires_at index
+    @Query("select count(a) from OAuth2AuthorizationEntity a where a.expiresAt >= :now")
+    long countActive(@Param("now") Instant now);
+
+    @Query("select a.id from OAuth2AuthorizationEntity a where a.expiresAt < :now")
+    List<String> findExpiredIds(@Param("now") Instant now, Pageable pageable);
+}
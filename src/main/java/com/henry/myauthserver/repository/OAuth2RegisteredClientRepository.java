@@ -0,0 +1,16 @@
+package com.henry.myauthserver.repository;
+
+import com.henry.myauthserver.entity.OAuth2RegisteredClientEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OAuth2RegisteredClientRepository extends JpaRepository<OAuth2RegisteredClientEntity, String> {
+    List<OAuth2RegisteredClientEntity> findByChangeVersionGreaterThanOrderByChangeVersion(long changeVersion);
+
+    @Query("select coalesce(max(c.changeVersion), 0) from OAuth2RegisteredClientEntity c")
+    long findMaxChangeVersion();
+}
@@ -0,0 +1,26 @@
+package com.henry.myauthserver.repository;
+
+import com.henry.myauthserver.entity.RetiredRefreshTokenEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RetiredRefreshTokenRepository extends JpaRepository<RetiredRefreshTokenEntity, String> {
+
+    @Transactional
+    @Modifying
+    @Query("delete from RetiredRefreshTokenEntity r where r.authorizationId in :authorizationIds")
+    int deleteByAuthorizationIds(@Param("authorizationIds") Collection<String> authorizationIds);
+
+    @Query("select r.tokenHash from RetiredRefreshTokenEntity r where r.expiresAt < :now")
+    List<String> findExpiredHashes(@Param("now") Instant now, Pageable pageable);
+}
@@ -0,0 +1,25 @@
+package com.henry.myauthserver.repository;
+
+import com.henry.myauthserver.entity.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    // Walks the primary key; used for the initial full load
+    List<RevokedToken> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    // Walks the (revoked_at, id) index, so each poll reads only the recent rows
+    List<RevokedToken> findByRevokedAtGreaterThanEqualAndIdGreaterThanOrderById(Instant revokedAt, Long id,
+                                                                               Pageable pageable);
+
+    @Query("select r.id from RevokedToken r where r.expiresAt < :now")
+    List<Long> findExpiredIds(@Param("now") Instant now, Pageable pageable);
+}
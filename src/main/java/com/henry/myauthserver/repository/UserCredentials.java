@@ -0,0 +1,10 @@
+package com.henry.myauthserver.repository;
+
+/**
+ * Read-only view of the columns needed to authenticate a user and to describe them in
+ * issued tokens. Loaded through a
+ * constructor expression, so Hibernate never creates a managed {@code AppUser},
+ * takes no dirty-checking snapshot and keeps nothing in the persistence context.
+ */
+public record UserCredentials(String username, String email, String password, String role, boolean enabled) {
+}
@@ -2,7 +2,11 @@ package com.henry.myauthserver.repository;
 
 import com.henry.myauthserver.entity.AppUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -12,4 +16,18 @@ public interface UserRepository extends JpaRepository<AppUser, Long> {
     Optional<AppUser> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    boolean existsByUsernameNormalized(String usernameNormalized);
+    boolean existsByEmailNormalized(String emailNormalized);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.henry.myauthserver.repository.UserCredentials(u.username, u.email, u.password, u.role, u.enabled) " +
+           "from AppUser u where u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
+    // Fills the normalized columns for rows created before they existed
+    @Transactional
+    @Modifying
+    @Query("update AppUser u set u.usernameNormalized = lower(trim(u.username)), u.emailNormalized = lower(trim(u.email)) " +
+           "where u.usernameNormalized is null or u.emailNormalized is null")
+    int backfillNormalizedColumns();
 }
\ No newline at end of file
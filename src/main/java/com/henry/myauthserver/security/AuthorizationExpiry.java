@@ -0,0 +1,33 @@
+package com.henry.myauthserver.security;
+
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+final class AuthorizationExpiry {
+
+    private AuthorizationExpiry() {
+    }
+
+    /**
+     * The latest expiry of any token in the authorization. Authorizations still waiting
+     * for consent carry no token yet and are kept for {@code pendingTtl}.
+     */
+    static Instant latestExpiry(OAuth2Authorization authorization, Duration pendingTtl) {
+        return Stream.of(
+                        authorization.getToken(OAuth2AuthorizationCode.class),
+                        authorization.getToken(OAuth2AccessToken.class),
+                        authorization.getToken(OAuth2RefreshToken.class),
+                        authorization.getToken(OidcIdToken.class))
+                .filter(token -> token != null && token.getToken().getExpiresAt() != null)
+                .map(token -> token.getToken().getExpiresAt())
+                .max(Instant::compareTo)
+                .orElseGet(() -> Instant.now().plus(pendingTtl));
+    }
+}
@@ -0,0 +1,48 @@
+package com.henry.myauthserver.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes authorization attributes, token metadata and client settings to JSON with
+ * the Spring Security modules, whose type allowlist keeps deserialization safe.
+ */
+class AuthorizationServerJson {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    AuthorizationServerJson() {
+        ClassLoader classLoader = AuthorizationServerJson.class.getClassLoader();
+        List<Module> securityModules = SecurityJackson2Modules.getModules(classLoader);
+        objectMapper.registerModules(securityModules);
+        objectMapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+    }
+
+    Map<String, Object> parseMap(String data) {
+        if (data == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(data, MAP_TYPE);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    String writeMap(Map<String, Object> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.henry.myauthserver.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.resource.introspection.BadOpaqueTokenException;
+import org.springframework.security.oauth2.server.resource.introspection.OAuth2IntrospectionAuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.resource.introspection.OpaqueTokenIntrospector;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves reference access tokens presented to the authorization server's own protected
+ * endpoints, such as {@code /userinfo}, straight from the authorization store instead of
+ * over HTTP introspection. A token is accepted while the store holds it as active, so a
+ * revoked token is rejected on the next call.
+ */
+public class AuthorizationStoreTokenIntrospector implements OpaqueTokenIntrospector {
+
+    private final OAuth2AuthorizationService authorizationService;
+
+    public AuthorizationStoreTokenIntrospector(OAuth2AuthorizationService authorizationService) {
+        this.authorizationService = authorizationService;
+    }
+
+    @Override
+    public OAuth2AuthenticatedPrincipal introspect(String token) {
+        OAuth2Authorization authorization = authorizationService.findByToken(token, OAuth2TokenType.ACCESS_TOKEN);
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken =
+                authorization != null ? authorization.getAccessToken() : null;
+        if (accessToken == null || !accessToken.isActive()) {
+            throw new BadOpaqueTokenException("Provided token isn't active");
+        }
+
+        Map<String, Object> claims = new HashMap<>();
+        if (accessToken.getClaims() != null) {
+            claims.putAll(accessToken.getClaims());
+        }
+        claims.putIfAbsent(OAuth2TokenIntrospectionClaimNames.SUB, authorization.getPrincipalName());
+        List<GrantedAuthority> authorities = accessToken.getToken().getScopes().stream()
+                .<GrantedAuthority>map(scope -> new SimpleGrantedAuthority("SCOPE_" + scope))
+                .toList();
+        return new OAuth2IntrospectionAuthenticatedPrincipal(authorization.getPrincipalName(), claims, authorities);
+    }
+}
@@ -0,0 +1,328 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.henry.myauthserver.util.TokenHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Single-node {@link OAuth2AuthorizationService} that keeps a bounded number of
+ * authorizations on heap.
+ * <p>
+ * Authorizations are held in a Caffeine cache capped at {@code maxEntries} and expire at
+ * the latest expiry of their tokens; Caffeine tracks per-entry expiry in a hierarchical
+ * timer wheel and its scheduler removes entries when they fall due rather than when they
+ * are next read. Every token type has its own concurrent index from token value to
+ * authorization id. Indexes are updated inside the cache entry's atomic compute and
+ * cleaned up by the eviction listener, so an eviction can never leave entries behind. The same goes
+ * for the principal index and the refresh tokens rotated out of each authorization.
+ */
+public class BoundedInMemoryOAuth2AuthorizationService implements RevocableOAuth2AuthorizationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BoundedInMemoryOAuth2AuthorizationService.class);
+
+    private final Cache<String, OAuth2Authorization> authorizations;
+    private final Map<TokenKind, ConcurrentHashMap<String, String>> indexes = new EnumMap<>(TokenKind.class);
+    private final ConcurrentHashMap<String, Set<String>> idsByPrincipal = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> retiredRefreshTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> retiredRefreshTokensById = new ConcurrentHashMap<>();
+    private final Duration pendingAuthorizationTtl;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BoundedInMemoryOAuth2AuthorizationService(long maxEntries, Duration pendingAuthorizationTtl,
+                                                     ApplicationEventPublisher eventPublisher) {
+        this(maxEntries, pendingAuthorizationTtl, eventPublisher, Ticker.systemTicker(),
+                Scheduler.systemScheduler(), ForkJoinPool.commonPool());
+    }
+
+    BoundedInMemoryOAuth2AuthorizationService(long maxEntries, Duration pendingAuthorizationTtl,
+                                              ApplicationEventPublisher eventPublisher,
+                                              Ticker ticker, Scheduler scheduler, Executor executor) {
+        this.pendingAuthorizationTtl = pendingAuthorizationTtl;
+        this.eventPublisher = eventPublisher;
+        for (TokenKind kind : TokenKind.values()) {
+            indexes.put(kind, new ConcurrentHashMap<>());
+        }
+        this.authorizations = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new LatestTokenExpiry())
+                .ticker(ticker)
+                .scheduler(scheduler)
+                .executor(executor)
+                .evictionListener(this::onEviction)
+                .build();
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Objects.requireNonNull(authorization, "authorization cannot be null");
+        // Indexing inside the entry's compute keeps it atomic with eviction: the listener
+        // either runs before and sees the previous value, or after and removes these entries
+        authorizations.asMap().compute(authorization.getId(), (id, previous) -> {
+            index(authorization, previous);
+            return authorization;
+        });
+        TokenInvalidatedEvent invalidated = TokenInvalidatedEvent.forAccessToken(authorization);
+        if (invalidated != null) {
+            eventPublisher.publishEvent(invalidated);
+        }
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Objects.requireNonNull(authorization, "authorization cannot be null");
+        removeAndUnindex(authorization.getId());
+    }
+
+    @Override
+    public int revokeAll(String principalName) {
+        Set<String> ids = idsByPrincipal.get(principalName);
+        int revoked = 0;
+        if (ids != null) {
+            for (String id : Set.copyOf(ids)) {
+                if (revoke(id)) {
+                    revoked++;
+                }
+            }
+        }
+        return revoked;
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        return authorizations.getIfPresent(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        Objects.requireNonNull(token, "token cannot be empty");
+        if (tokenType == null) {
+            for (TokenKind kind : TokenKind.values()) {
+                OAuth2Authorization authorization = find(kind, token);
+                if (authorization != null) {
+                    return authorization;
+                }
+            }
+            return null;
+        }
+        TokenKind kind = TokenKind.of(tokenType);
+        if (kind == null) {
+            return null;
+        }
+        return find(kind, token);
+    }
+
+    @Override
+    public boolean revokeRotatedRefreshToken(String refreshToken) {
+        String id = retiredRefreshTokens.get(refreshToken);
+        if (id == null || !revoke(id)) {
+            return false;
+        }
+        log.warn("Rotated refresh token of authorization {} was presented again, revoking the token family", id);
+        return true;
+    }
+
+    public long estimatedSize() {
+        return authorizations.estimatedSize();
+    }
+
+    // Expired authorizations are evicted by the cache, so its size is the active count
+    @Override
+    public long countActive() {
+        return estimatedSize();
+    }
+
+    private boolean revoke(String id) {
+        OAuth2Authorization removed = removeAndUnindex(id);
+        if (removed == null) {
+            return false;
+        }
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = removed.getAccessToken();
+        if (accessToken != null && !accessToken.isExpired()) {
+            eventPublisher.publishEvent(new TokenInvalidatedEvent(
+                    TokenHash.sha256(accessToken.getToken().getTokenValue()), accessToken.getToken().getExpiresAt()));
+        }
+        return true;
+    }
+
+    private OAuth2Authorization removeAndUnindex(String id) {
+        OAuth2Authorization[] removed = new OAuth2Authorization[1];
+        authorizations.asMap().computeIfPresent(id, (key, authorization) -> {
+            unindex(authorization);
+            removed[0] = authorization;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private void index(OAuth2Authorization authorization, OAuth2Authorization previous) {
+        String id = authorization.getId();
+        for (TokenKind kind : TokenKind.values()) {
+            String token = kind.tokenOf(authorization);
+            String previousToken = previous != null ? kind.tokenOf(previous) : null;
+            if (previousToken != null && !previousToken.equals(token)) {
+                indexes.get(kind).remove(previousToken, id);
+                if (kind == TokenKind.REFRESH_TOKEN) {
+                    retire(previousToken, id);
+                }
+            }
+            if (token != null) {
+                indexes.get(kind).put(token, id);
+            }
+        }
+        if (previous != null && !previous.getPrincipalName().equals(authorization.getPrincipalName())) {
+            removePrincipalId(previous.getPrincipalName(), id);
+        }
+        idsByPrincipal.compute(authorization.getPrincipalName(), (name, ids) -> {
+            Set<String> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            result.add(id);
+            return result;
+        });
+    }
+
+    private void retire(String refreshToken, String id) {
+        retiredRefreshTokens.put(refreshToken, id);
+        retiredRefreshTokensById.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(refreshToken);
+    }
+
+    private OAuth2Authorization find(TokenKind kind, String token) {
+        String id = indexes.get(kind).get(token);
+        if (id == null) {
+            return null;
+        }
+        OAuth2Authorization authorization = authorizations.getIfPresent(id);
+        // The index may briefly point at an authorization that has just been replaced
+        // or evicted; only answer when the stored token still matches
+        return authorization != null && token.equals(kind.tokenOf(authorization)) ? authorization : null;
+    }
+
+    // Runs atomically with the removal of the entry, like the index updates in save(), so
+    // a concurrent save of the same id re-indexes its tokens after this has finished
+    private void onEviction(String id, OAuth2Authorization authorization, RemovalCause cause) {
+        if (id != null && authorization != null) {
+            unindex(authorization);
+        }
+    }
+
+    private void unindex(OAuth2Authorization authorization) {
+        String id = authorization.getId();
+        for (TokenKind kind : TokenKind.values()) {
+            String token = kind.tokenOf(authorization);
+            if (token != null) {
+                indexes.get(kind).remove(token, id);
+            }
+        }
+        removePrincipalId(authorization.getPrincipalName(), id);
+        Set<String> retired = retiredRefreshTokensById.remove(id);
+        if (retired != null) {
+            retired.forEach(token -> retiredRefreshTokens.remove(token, id));
+        }
+    }
+
+    private void removePrincipalId(String principalName, String id) {
+        idsByPrincipal.computeIfPresent(principalName, (name, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private class LatestTokenExpiry implements Expiry<String, OAuth2Authorization> {
+
+        @Override
+        public long expireAfterCreate(String id, OAuth2Authorization authorization, long currentTime) {
+            Instant expiresAt = AuthorizationExpiry.latestExpiry(authorization, pendingAuthorizationTtl);
+            return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, OAuth2Authorization authorization,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(id, authorization, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, OAuth2Authorization authorization,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private enum TokenKind {
+        STATE(OAuth2ParameterNames.STATE) {
+            @Override
+            String tokenOf(OAuth2Authorization authorization) {
+                return authorization.getAttribute(OAuth2ParameterNames.STATE);
+            }
+        },
+        CODE(OAuth2ParameterNames.CODE) {
+            @Override
+            String tokenOf(OAuth2Authorization authorization) {
+                return tokenValue(authorization.getToken(OAuth2AuthorizationCode.class));
+            }
+        },
+        ACCESS_TOKEN(OAuth2TokenType.ACCESS_TOKEN.getValue()) {
+            @Override
+            String tokenOf(OAuth2Authorization authorization) {
+                return tokenValue(authorization.getToken(OAuth2AccessToken.class));
+            }
+        },
+        REFRESH_TOKEN(OAuth2TokenType.REFRESH_TOKEN.getValue()) {
+            @Override
+            String tokenOf(OAuth2Authorization authorization) {
+                return tokenValue(authorization.getToken(OAuth2RefreshToken.class));
+            }
+        },
+        ID_TOKEN(OidcParameterNames.ID_TOKEN) {
+            @Override
+            String tokenOf(OAuth2Authorization authorization) {
+                return tokenValue(authorization.getToken(OidcIdToken.class));
+            }
+        };
+
+        private final String tokenType;
+
+        TokenKind(String tokenType) {
+            this.tokenType = tokenType;
+        }
+
+        abstract String tokenOf(OAuth2Authorization authorization);
+
+        static TokenKind of(OAuth2TokenType tokenType) {
+            for (TokenKind kind : values()) {
+                if (kind.tokenType.equals(tokenType.getValue())) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+
+        private static String tokenValue(OAuth2Authorization.Token<?> token) {
+            return token != null ? token.getToken().getTokenValue() : null;
+        }
+    }
+}
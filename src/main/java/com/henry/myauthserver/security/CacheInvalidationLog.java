@@ -0,0 +1,120 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.CacheInvalidation;
+import com.henry.myauthserver.repository.CacheInvalidationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Replicates cache invalidations between nodes through the {@code cache_invalidations}
+ * table, the same way {@link TokenRevocationList} replicates revocations.
+ * <p>
+ * A node that changes a cached value evicts its own entry and {@link #publish publishes}
+ * the key; every node polls for rows written since its previous poll started, less
+ * {@code pollLag}, and hands each key to the listener registered for its cache. A stale
+ * entry therefore outlives a change on another node by at most one poll interval plus the
+ * commit delay. Listeners may see a key more than once and must treat eviction as idempotent.
+ */
+public class CacheInvalidationLog {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationLog.class);
+
+    private final CacheInvalidationRepository invalidationRepository;
+    private final TransactionTemplate publishTransaction;
+    private final int batchSize;
+    // Rows become visible at commit and are stamped with the writing node's clock, so each
+    // poll re-reads this far before the previous one; it covers commit delay and clock skew
+    private final Duration pollLag;
+    private final Duration retention;
+    private final Map<String, Consumer<String>> listeners = new ConcurrentHashMap<>();
+    // Rows already handed to a listener, kept while a poll can still re-read them
+    private final Map<Long, Instant> dispatched = new HashMap<>();
+
+    private Instant lastPollStart;
+
+    public CacheInvalidationLog(CacheInvalidationRepository invalidationRepository,
+                                PlatformTransactionManager transactionManager, int batchSize,
+                                Duration pollLag, Duration retention) {
+        if (!retention.minus(pollLag).isPositive()) {
+            throw new IllegalArgumentException("retention must be longer than pollLag");
+        }
+        this.invalidationRepository = invalidationRepository;
+        // Publishers run after their own commit, where a joined transaction would never commit
+        this.publishTransaction = new TransactionTemplate(transactionManager);
+        this.publishTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.pollLag = pollLag;
+        this.retention = retention;
+    }
+
+    public void register(String cacheName, Consumer<String> listener) {
+        listeners.put(cacheName, listener);
+    }
+
+    public void publish(String cacheName, String key) {
+        publishTransaction.executeWithoutResult(status ->
+                invalidationRepository.save(new CacheInvalidation(cacheName, key)));
+    }
+
+    /**
+     * Hands invalidations written since the last poll to their listeners. Caches start
+     * empty, so the first call only looks back {@code pollLag}.
+     */
+    @Scheduled(initialDelayString = "${security.cache-invalidation.poll-interval:PT2S}",
+               fixedDelayString = "${security.cache-invalidation.poll-interval:PT2S}")
+    public synchronized void poll() {
+        Instant now = Instant.now();
+        Instant since = (lastPollStart != null ? lastPollStart : now).minus(pollLag);
+        dispatched.values().removeIf(invalidatedAt -> invalidatedAt.isBefore(since));
+
+        long afterId = 0;
+        int applied = 0;
+        List<CacheInvalidation> rows;
+        do {
+            rows = invalidationRepository.findByInvalidatedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                    since, afterId, PageRequest.of(0, batchSize));
+            for (CacheInvalidation row : rows) {
+                if (dispatched.putIfAbsent(row.getId(), row.getInvalidatedAt()) == null) {
+                    Consumer<String> listener = listeners.get(row.getCacheName());
+                    if (listener != null) {
+                        listener.accept(row.getCacheKey());
+                        applied++;
+                    }
+                }
+                afterId = row.getId();
+            }
+        } while (rows.size() == batchSize);
+        lastPollStart = now;
+
+        if (applied > 0) {
+            log.debug("Applied {} cache invalidations from the shared table", applied);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${security.cache-invalidation.purge-interval:PT5M}",
+               fixedDelayString = "${security.cache-invalidation.purge-interval:PT5M}")
+    public void purgeExpired() {
+        // Every node runs this; deleting rows another node already deleted is harmless
+        Instant before = Instant.now().minus(retention);
+        List<Long> expiredIds;
+        do {
+            expiredIds = invalidationRepository.findIdsInvalidatedBefore(before, PageRequest.of(0, batchSize));
+            if (!expiredIds.isEmpty()) {
+                invalidationRepository.deleteAllByIdInBatch(expiredIds);
+            }
+        } while (expiredIds.size() == batchSize);
+    }
+}
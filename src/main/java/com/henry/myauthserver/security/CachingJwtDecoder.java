@@ -0,0 +1,82 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.henry.myauthserver.util.TokenHash;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * {@link JwtDecoder} that remembers tokens it has already verified, keyed by the SHA-256
+ * hash of the token, so repeat calls with the same bearer token skip parsing and signature
+ * verification. Entries are evicted when the token expires.
+ * <p>
+ * Every call first checks the cluster-wide {@link TokenRevocationList}, so a token revoked
+ * on any node is rejected whether or not it is cached here.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    // Upper bound for tokens without an exp claim
+    private static final Duration MAX_TTL = Duration.ofMinutes(5);
+
+    private final JwtDecoder delegate;
+    private final TokenRevocationList revocationList;
+    private final Cache<String, Jwt> verified;
+
+    public CachingJwtDecoder(JwtDecoder delegate, TokenRevocationList revocationList, long maxSize) {
+        this.delegate = delegate;
+        this.revocationList = revocationList;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, Jwt>creating((hash, jwt) -> untilExpiry(jwt.getExpiresAt())))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String hash = TokenHash.sha256(token);
+        if (revocationList.isRevoked(hash)) {
+            throw new BadJwtException("Token has been revoked");
+        }
+
+        Jwt jwt = verified.getIfPresent(hash);
+        if (jwt != null && (jwt.getExpiresAt() == null || jwt.getExpiresAt().isAfter(Instant.now()))) {
+            return jwt;
+        }
+
+        jwt = delegate.decode(token);
+        verified.put(hash, jwt);
+        return jwt;
+    }
+
+    @EventListener
+    public void onTokenInvalidated(TokenInvalidatedEvent event) {
+        verified.invalidate(event.tokenHash());
+    }
+
+    public Stats getStats() {
+        CacheStats stats = verified.stats();
+        return new Stats(verified.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                revocationList.size());
+    }
+
+    private static Duration untilExpiry(Instant expiresAt) {
+        if (expiresAt == null) {
+            return MAX_TTL;
+        }
+        Duration remaining = Duration.between(Instant.now(), expiresAt);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    public record Stats(long size, long hits, long misses, double hitRate, long revoked) {
+    }
+}
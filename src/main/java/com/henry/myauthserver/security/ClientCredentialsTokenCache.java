@@ -0,0 +1,157 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.henry.myauthserver.util.TokenHash;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Hands out an already-issued access token for repeat client_credentials requests.
+ * <p>
+ * Clients with the {@value #REUSE_ACCESS_TOKENS} client setting get the token last issued
+ * for the same requested scopes while it has at least {@code minRemaining} left, instead
+ * of a freshly signed one. The reused token is reported with the remaining lifetime.
+ * Before reuse the token is looked up in the authorization store, a single indexed read,
+ * so a token revoked on any node is never handed out again. Tokens are keyed by the
+ * client's current grant types and scopes as well, so a client that loses the
+ * client_credentials grant or a scope is checked by the delegate again. Other clients,
+ * requests carrying a DPoP proof and tokens that are not plain bearer tokens always go
+ * to the delegate.
+ * <p>
+ * Like {@link TokenIntrospectionCache}, not an {@link AuthenticationProvider} bean; the
+ * token endpoint's client credentials provider is wrapped with {@link #wrap}.
+ */
+public class ClientCredentialsTokenCache {
+
+    /** Per-client {@code ClientSettings} entry enabling token reuse. */
+    public static final String REUSE_ACCESS_TOKENS = "settings.client.reuse-access-tokens";
+
+    private static final String DPOP_PROOF = "dpop_proof";
+
+    private final OAuth2AuthorizationService authorizationService;
+    private final Duration minRemaining;
+    private final Cache<TokenKey, IssuedToken> tokens;
+
+    public ClientCredentialsTokenCache(OAuth2AuthorizationService authorizationService, long maxSize,
+                                       Duration minRemaining) {
+        this.authorizationService = authorizationService;
+        this.minRemaining = minRemaining;
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<TokenKey, IssuedToken>creating((key, issued) -> reusableFor(issued.token())))
+                .recordStats()
+                .build();
+    }
+
+    public AuthenticationProvider wrap(AuthenticationProvider delegate) {
+        return new AuthenticationProvider() {
+            @Override
+            public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+                return issue((OAuth2ClientCredentialsAuthenticationToken) authentication, delegate);
+            }
+
+            @Override
+            public boolean supports(Class<?> authentication) {
+                return delegate.supports(authentication);
+            }
+        };
+    }
+
+    private Authentication issue(OAuth2ClientCredentialsAuthenticationToken request, AuthenticationProvider delegate) {
+        RegisteredClient registeredClient = request.getPrincipal() instanceof OAuth2ClientAuthenticationToken client
+                && client.isAuthenticated() ? client.getRegisteredClient() : null;
+        if (registeredClient == null || !reuseEnabled(registeredClient)
+                || request.getAdditionalParameters().containsKey(DPOP_PROOF)) {
+            return delegate.authenticate(request);
+        }
+
+        TokenKey key = new TokenKey(registeredClient.getId(), new TreeSet<>(request.getScopes()),
+                Set.copyOf(registeredClient.getAuthorizationGrantTypes()), Set.copyOf(registeredClient.getScopes()));
+        OAuth2AccessToken cached = reusable(key);
+        if (cached != null) {
+            // Issued now as far as the client is concerned, so expires_in is what is left
+            OAuth2AccessToken reused = new OAuth2AccessToken(cached.getTokenType(), cached.getTokenValue(),
+                    Instant.now(), cached.getExpiresAt(), cached.getScopes());
+            return new OAuth2AccessTokenAuthenticationToken(registeredClient, (Authentication) request.getPrincipal(),
+                    reused);
+        }
+
+        Authentication result = delegate.authenticate(request);
+        if (result instanceof OAuth2AccessTokenAuthenticationToken issued
+                && OAuth2AccessToken.TokenType.BEARER.equals(issued.getAccessToken().getTokenType())
+                && issued.getAdditionalParameters().isEmpty()) {
+            OAuth2AccessToken token = issued.getAccessToken();
+            tokens.put(key, new IssuedToken(token, TokenHash.sha256(token.getTokenValue())));
+        }
+        return result;
+    }
+
+    private OAuth2AccessToken reusable(TokenKey key) {
+        IssuedToken issued = tokens.getIfPresent(key);
+        if (issued == null) {
+            return null;
+        }
+        OAuth2Authorization authorization =
+                authorizationService.findByToken(issued.token().getTokenValue(), OAuth2TokenType.ACCESS_TOKEN);
+        OAuth2Authorization.Token<OAuth2AccessToken> stored =
+                authorization != null ? authorization.getAccessToken() : null;
+        if (stored == null || !stored.isActive()) {
+            tokens.invalidate(key);
+            return null;
+        }
+        return issued.token();
+    }
+
+    @EventListener
+    public void onTokenInvalidated(TokenInvalidatedEvent event) {
+        tokens.asMap().values().removeIf(issued -> issued.hash().equals(event.tokenHash()));
+    }
+
+    public Stats getStats() {
+        CacheStats stats = tokens.stats();
+        return new Stats(tokens.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+
+    private Duration reusableFor(OAuth2AccessToken token) {
+        if (token.getExpiresAt() == null) {
+            return Duration.ZERO;
+        }
+        Duration remaining = Duration.between(Instant.now(), token.getExpiresAt()).minus(minRemaining);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private static boolean reuseEnabled(RegisteredClient registeredClient) {
+        Object setting = registeredClient.getClientSettings().getSetting(REUSE_ACCESS_TOKENS);
+        return Boolean.TRUE.equals(setting) || "true".equals(String.valueOf(setting));
+    }
+
+    private record IssuedToken(OAuth2AccessToken token, String hash) {
+    }
+
+    // The client's grants and scopes are part of the key: any change to them misses the cache
+    private record TokenKey(String registeredClientId, Set<String> scopes,
+                            Set<AuthorizationGrantType> clientGrantTypes, Set<String> clientScopes) {
+    }
+
+    public record Stats(long size, long hits, long misses, double hitRate) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.henry.myauthserver.entity.OAuth2AuthorizationConsentEntity;
+import com.henry.myauthserver.repository.OAuth2AuthorizationConsentRepository;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsent;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Database-backed {@link OAuth2AuthorizationConsentService} with a read-through cache keyed
+ * by (registered client, principal). Consents survive restarts and are visible to every
+ * node, while a repeat authorization is answered from memory.
+ * <p>
+ * Only granted consents are cached. An absent consent is looked up every time, so a grant
+ * made on another node is seen at once. Writes through this node update the cache
+ * immediately and are published to the {@link CacheInvalidationLog} by principal name, so
+ * the other nodes drop every consent they hold for that user within one poll interval.
+ * The ttl only bounds how long an entry survives a missed invalidation.
+ */
+public class JpaOAuth2AuthorizationConsentService implements OAuth2AuthorizationConsentService {
+
+    static final String CACHE_NAME = "consent";
+
+    private final OAuth2AuthorizationConsentRepository consentRepository;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final CacheInvalidationLog invalidationLog;
+    private final Cache<ConsentKey, OAuth2AuthorizationConsent> cache;
+
+    public JpaOAuth2AuthorizationConsentService(OAuth2AuthorizationConsentRepository consentRepository,
+                                                RegisteredClientRepository registeredClientRepository,
+                                                CacheInvalidationLog invalidationLog,
+                                                long maxSize, Duration ttl) {
+        this.consentRepository = consentRepository;
+        this.registeredClientRepository = registeredClientRepository;
+        this.invalidationLog = invalidationLog;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        invalidationLog.register(CACHE_NAME, this::evictPrincipal);
+    }
+
+    @Override
+    public void save(OAuth2AuthorizationConsent authorizationConsent) {
+        Objects.requireNonNull(authorizationConsent, "authorizationConsent cannot be null");
+        consentRepository.save(toEntity(authorizationConsent));
+        cache.put(keyOf(authorizationConsent), authorizationConsent);
+        invalidationLog.publish(CACHE_NAME, authorizationConsent.getPrincipalName());
+    }
+
+    @Override
+    public void remove(OAuth2AuthorizationConsent authorizationConsent) {
+        Objects.requireNonNull(authorizationConsent, "authorizationConsent cannot be null");
+        consentRepository.deleteById(new OAuth2AuthorizationConsentEntity.ConsentId(
+                authorizationConsent.getRegisteredClientId(), authorizationConsent.getPrincipalName()));
+        cache.invalidate(keyOf(authorizationConsent));
+        invalidationLog.publish(CACHE_NAME, authorizationConsent.getPrincipalName());
+    }
+
+    @Override
+    public OAuth2AuthorizationConsent findById(String registeredClientId, String principalName) {
+        ConsentKey key = new ConsentKey(registeredClientId, principalName);
+        // A mapping function returning null stores nothing, so absence is never cached
+        return cache.get(key, this::load);
+    }
+
+    public Stats getStats() {
+        CacheStats stats = cache.stats();
+        return new Stats(cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+
+    // Consent changes are rare, so a scan of the cache is cheaper than a second index
+    private void evictPrincipal(String principalName) {
+        cache.asMap().keySet().removeIf(key -> key.principalName().equals(principalName));
+    }
+
+    private OAuth2AuthorizationConsent load(ConsentKey key) {
+        return consentRepository.findById(
+                        new OAuth2AuthorizationConsentEntity.ConsentId(key.registeredClientId(), key.principalName()))
+                .map(this::toObject)
+                .orElse(null);
+    }
+
+    private OAuth2AuthorizationConsent toObject(OAuth2AuthorizationConsentEntity entity) {
+        String registeredClientId = entity.getRegisteredClientId();
+        RegisteredClient registeredClient = registeredClientRepository.findById(registeredClientId);
+        if (registeredClient == null) {
+            throw new DataRetrievalFailureException("The RegisteredClient with id '" + registeredClientId
+                    + "' was not found in the RegisteredClientRepository.");
+        }
+
+        OAuth2AuthorizationConsent.Builder builder = OAuth2AuthorizationConsent.withId(
+                registeredClientId, entity.getPrincipalName());
+        for (String authority : StringUtils.commaDelimitedListToSet(entity.getAuthorities())) {
+            builder.authority(new SimpleGrantedAuthority(authority));
+        }
+        return builder.build();
+    }
+
+    private OAuth2AuthorizationConsentEntity toEntity(OAuth2AuthorizationConsent authorizationConsent) {
+        OAuth2AuthorizationConsentEntity entity = new OAuth2AuthorizationConsentEntity();
+        entity.setRegisteredClientId(authorizationConsent.getRegisteredClientId());
+        entity.setPrincipalName(authorizationConsent.getPrincipalName());
+
+        Set<String> authorities = new HashSet<>();
+        for (GrantedAuthority authority : authorizationConsent.getAuthorities()) {
+            authorities.add(authority.getAuthority());
+        }
+        entity.setAuthorities(StringUtils.collectionToCommaDelimitedString(authorities));
+        return entity;
+    }
+
+    private static ConsentKey keyOf(OAuth2AuthorizationConsent authorizationConsent) {
+        return new ConsentKey(authorizationConsent.getRegisteredClientId(), authorizationConsent.getPrincipalName());
+    }
+
+    private record ConsentKey(String registeredClientId, String principalName) {
+    }
+
+    public record Stats(long size, long hits, long misses, double hitRate) {
+    }
+}
@@ -0,0 +1,361 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.OAuth2AuthorizationEntity;
+import com.henry.myauthserver.entity.RetiredRefreshTokenEntity;
+import com.henry.myauthserver.repository.AuthorizationTokenRef;
+import com.henry.myauthserver.repository.OAuth2AuthorizationRepository;
+import com.henry.myauthserver.repository.RetiredRefreshTokenRepository;
+import com.henry.myauthserver.util.TokenHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Database-backed {@link OAuth2AuthorizationService}. Authorizations survive restarts and
+ * are shared by every node; each token is found through an indexed SHA-256 hash of its
+ * value, and expired rows are purged in chunks by a scheduled job so the table stays at
+ * the size of the live authorizations.
+ * <p>
+ * A rotated refresh token is recorded by hash in {@code oauth2_retired_refresh_token}, so
+ * detecting its reuse is a primary key lookup, and revoking every session of a user goes
+ * through the (principal_name, id) index. Lookups never write: a revocation deletes the
+ * authorizations and their retired tokens in one transaction, and the invalidation events
+ * are published once it has committed.
+ */
+public class JpaOAuth2AuthorizationService implements RevocableOAuth2AuthorizationService {
+
+    private static final Logger log = LoggerFactory.getLogger(JpaOAuth2AuthorizationService.class);
+
+    private static final OAuth2TokenType STATE_TOKEN_TYPE = new OAuth2TokenType(OAuth2ParameterNames.STATE);
+    private static final OAuth2TokenType CODE_TOKEN_TYPE = new OAuth2TokenType(OAuth2ParameterNames.CODE);
+    private static final OAuth2TokenType ID_TOKEN_TOKEN_TYPE = new OAuth2TokenType(OidcParameterNames.ID_TOKEN);
+
+    private final OAuth2AuthorizationRepository authorizationRepository;
+    private final RetiredRefreshTokenRepository retiredRefreshTokenRepository;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthorizationServerJson json = new AuthorizationServerJson();
+    private final int purgeChunkSize;
+    private final Duration pendingAuthorizationTtl;
+
+    public JpaOAuth2AuthorizationService(OAuth2AuthorizationRepository authorizationRepository,
+                                         RetiredRefreshTokenRepository retiredRefreshTokenRepository,
+                                         RegisteredClientRepository registeredClientRepository,
+                                         ApplicationEventPublisher eventPublisher,
+                                         PlatformTransactionManager transactionManager,
+                                         int purgeChunkSize, Duration pendingAuthorizationTtl) {
+        this.authorizationRepository = authorizationRepository;
+        this.retiredRefreshTokenRepository = retiredRefreshTokenRepository;
+        this.registeredClientRepository = registeredClientRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.purgeChunkSize = purgeChunkSize;
+        this.pendingAuthorizationTtl = pendingAuthorizationTtl;
+    }
+
+    // The rotation is recorded in the same transaction as the new token, so a failed save
+    // never leaves a still-valid refresh token marked as retired
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        OAuth2AuthorizationEntity entity = toEntity(authorization);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (entity.getRefreshTokenHash() != null) {
+                retirePreviousRefreshToken(entity);
+            }
+            authorizationRepository.save(entity);
+        });
+        TokenInvalidatedEvent invalidated = TokenInvalidatedEvent.forAccessToken(authorization);
+        if (invalidated != null) {
+            eventPublisher.publishEvent(invalidated);
+        }
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        transactionTemplate.executeWithoutResult(status -> {
+            authorizationRepository.deleteById(authorization.getId());
+            retiredRefreshTokenRepository.deleteByAuthorizationIds(List.of(authorization.getId()));
+        });
+    }
+
+    @Override
+    public int revokeAll(String principalName) {
+        List<AuthorizationTokenRef> revoked = transactionTemplate.execute(status ->
+                delete(authorizationRepository.findTokenRefsByPrincipalName(principalName)));
+        publishInvalidated(revoked);
+        return revoked.size();
+    }
+
+    @Override
+    public boolean revokeRotatedRefreshToken(String refreshToken) {
+        String hash = TokenHash.sha256(refreshToken);
+        List<AuthorizationTokenRef> revoked = transactionTemplate.execute(status ->
+                retiredRefreshTokenRepository.findById(hash)
+                        .map(retired -> {
+                            log.warn("Rotated refresh token of authorization {} was presented again, "
+                                    + "revoking the token family", retired.getAuthorizationId());
+                            return delete(authorizationRepository.findTokenRefById(retired.getAuthorizationId())
+                                    .stream().toList());
+                        })
+                        .orElse(null));
+        if (revoked == null) {
+            return false;
+        }
+        publishInvalidated(revoked);
+        return true;
+    }
+
+    @Override
+    public long countActive() {
+        return authorizationRepository.countActive(Instant.now());
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        return authorizationRepository.findById(id).map(this::toObject).orElse(null);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        String hash = TokenHash.sha256(token);
+        Optional<OAuth2AuthorizationEntity> result;
+        if (tokenType == null) {
+            result = authorizationRepository.findByAnyTokenHash(hash);
+        } else if (STATE_TOKEN_TYPE.equals(tokenType)) {
+            result = authorizationRepository.findByStateHash(hash);
+        } else if (CODE_TOKEN_TYPE.equals(tokenType)) {
+            result = authorizationRepository.findByAuthorizationCodeHash(hash);
+        } else if (OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)) {
+            result = authorizationRepository.findByAccessTokenHash(hash);
+        } else if (OAuth2TokenType.REFRESH_TOKEN.equals(tokenType)) {
+            result = authorizationRepository.findByRefreshTokenHash(hash);
+        } else if (ID_TOKEN_TOKEN_TYPE.equals(tokenType)) {
+            result = authorizationRepository.findByOidcIdTokenHash(hash);
+        } else {
+            result = Optional.empty();
+        }
+        return result.map(this::toObject).orElse(null);
+    }
+
+    @Scheduled(initialDelayString = "${oauth2.authorization.purge-interval:PT5M}",
+               fixedDelayString = "${oauth2.authorization.purge-interval:PT5M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        long purged = 0;
+        List<String> expiredIds;
+        // Short transactions per chunk instead of one long delete over the whole table
+        do {
+            expiredIds = authorizationRepository.findExpiredIds(now, PageRequest.of(0, purgeChunkSize));
+            if (!expiredIds.isEmpty()) {
+                authorizationRepository.deleteAllByIdInBatch(expiredIds);
+                purged += expiredIds.size();
+            }
+        } while (expiredIds.size() == purgeChunkSize);
+
+        if (purged > 0) {
+            log.info("Purged {} expired authorizations", purged);
+        }
+
+        List<String> expiredHashes;
+        do {
+            expiredHashes = retiredRefreshTokenRepository.findExpiredHashes(now, PageRequest.of(0, purgeChunkSize));
+            if (!expiredHashes.isEmpty()) {
+                retiredRefreshTokenRepository.deleteAllByIdInBatch(expiredHashes);
+            }
+        } while (expiredHashes.size() == purgeChunkSize);
+    }
+
+    // The refresh grant replaces the token in the same authorization, so a changed hash
+    // on save is a rotation; runs inside the caller's transaction
+    private void retirePreviousRefreshToken(OAuth2AuthorizationEntity entity) {
+        authorizationRepository.findRefreshTokenHashForUpdateById(entity.getId())
+                .filter(previous -> !previous.equals(entity.getRefreshTokenHash()))
+                .ifPresent(previous -> retiredRefreshTokenRepository.save(new RetiredRefreshTokenEntity(
+                        previous, entity.getId(), entity.getRefreshTokenExpiresAt())));
+    }
+
+    // Runs inside the caller's transaction
+    private List<AuthorizationTokenRef> delete(List<AuthorizationTokenRef> authorizations) {
+        if (!authorizations.isEmpty()) {
+            List<String> ids = authorizations.stream().map(AuthorizationTokenRef::id).toList();
+            authorizationRepository.deleteAllByIdInBatch(ids);
+            retiredRefreshTokenRepository.deleteByAuthorizationIds(ids);
+        }
+        return authorizations;
+    }
+
+    private void publishInvalidated(List<AuthorizationTokenRef> authorizations) {
+        Instant now = Instant.now();
+        for (AuthorizationTokenRef authorization : authorizations) {
+            if (authorization.accessTokenHash() != null && authorization.accessTokenExpiresAt().isAfter(now)) {
+                eventPublisher.publishEvent(new TokenInvalidatedEvent(
+                        authorization.accessTokenHash(), authorization.accessTokenExpiresAt()));
+            }
+        }
+    }
+
+    private OAuth2Authorization toObject(OAuth2AuthorizationEntity entity) {
+        RegisteredClient registeredClient = registeredClientRepository.findById(entity.getRegisteredClientId());
+        if (registeredClient == null) {
+            throw new DataRetrievalFailureException("The RegisteredClient with id '" + entity.getRegisteredClientId()
+                    + "' was not found in the RegisteredClientRepository.");
+        }
+
+        OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(registeredClient)
+                .id(entity.getId())
+                .principalName(entity.getPrincipalName())
+                .authorizationGrantType(resolveAuthorizationGrantType(entity.getAuthorizationGrantType()))
+                .authorizedScopes(StringUtils.commaDelimitedListToSet(entity.getAuthorizedScopes()))
+                .attributes(attributes -> attributes.putAll(json.parseMap(entity.getAttributes())));
+        if (entity.getState() != null) {
+            builder.attribute(OAuth2ParameterNames.STATE, entity.getState());
+        }
+
+        if (entity.getAuthorizationCodeValue() != null) {
+            OAuth2AuthorizationCode authorizationCode = new OAuth2AuthorizationCode(
+                    entity.getAuthorizationCodeValue(),
+                    entity.getAuthorizationCodeIssuedAt(),
+                    entity.getAuthorizationCodeExpiresAt());
+            builder.token(authorizationCode, metadata -> metadata.putAll(json.parseMap(entity.getAuthorizationCodeMetadata())));
+        }
+
+        if (entity.getAccessTokenValue() != null) {
+            OAuth2AccessToken accessToken = new OAuth2AccessToken(
+                    OAuth2AccessToken.TokenType.BEARER,
+                    entity.getAccessTokenValue(),
+                    entity.getAccessTokenIssuedAt(),
+                    entity.getAccessTokenExpiresAt(),
+                    StringUtils.commaDelimitedListToSet(entity.getAccessTokenScopes()));
+            builder.token(accessToken, metadata -> metadata.putAll(json.parseMap(entity.getAccessTokenMetadata())));
+        }
+
+        if (entity.getRefreshTokenValue() != null) {
+            OAuth2RefreshToken refreshToken = new OAuth2RefreshToken(
+                    entity.getRefreshTokenValue(),
+                    entity.getRefreshTokenIssuedAt(),
+                    entity.getRefreshTokenExpiresAt());
+            builder.token(refreshToken, metadata -> metadata.putAll(json.parseMap(entity.getRefreshTokenMetadata())));
+        }
+
+        if (entity.getOidcIdTokenValue() != null) {
+            OidcIdToken idToken = new OidcIdToken(
+                    entity.getOidcIdTokenValue(),
+                    entity.getOidcIdTokenIssuedAt(),
+                    entity.getOidcIdTokenExpiresAt(),
+                    json.parseMap(entity.getOidcIdTokenClaims()));
+            builder.token(idToken, metadata -> metadata.putAll(json.parseMap(entity.getOidcIdTokenMetadata())));
+        }
+
+        return builder.build();
+    }
+
+    private OAuth2AuthorizationEntity toEntity(OAuth2Authorization authorization) {
+        OAuth2AuthorizationEntity entity = new OAuth2AuthorizationEntity();
+        entity.setId(authorization.getId());
+        entity.setRegisteredClientId(authorization.getRegisteredClientId());
+        entity.setPrincipalName(authorization.getPrincipalName());
+        entity.setAuthorizationGrantType(authorization.getAuthorizationGrantType().getValue());
+        entity.setAuthorizedScopes(StringUtils.collectionToDelimitedString(authorization.getAuthorizedScopes(), ","));
+        entity.setAttributes(json.writeMap(authorization.getAttributes()));
+        String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        entity.setState(state);
+        entity.setStateHash(TokenHash.sha256(state));
+
+        OAuth2Authorization.Token<OAuth2AuthorizationCode> authorizationCode =
+                authorization.getToken(OAuth2AuthorizationCode.class);
+        setTokenValues(authorizationCode,
+                entity::setAuthorizationCodeValue,
+                entity::setAuthorizationCodeHash,
+                entity::setAuthorizationCodeIssuedAt,
+                entity::setAuthorizationCodeExpiresAt,
+                entity::setAuthorizationCodeMetadata);
+
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getToken(OAuth2AccessToken.class);
+        setTokenValues(accessToken,
+                entity::setAccessTokenValue,
+                entity::setAccessTokenHash,
+                entity::setAccessTokenIssuedAt,
+                entity::setAccessTokenExpiresAt,
+                entity::setAccessTokenMetadata);
+        if (accessToken != null && accessToken.getToken().getScopes() != null) {
+            entity.setAccessTokenScopes(StringUtils.collectionToDelimitedString(accessToken.getToken().getScopes(), ","));
+        }
+
+        OAuth2Authorization.Token<OAuth2RefreshToken> refreshToken = authorization.getToken(OAuth2RefreshToken.class);
+        setTokenValues(refreshToken,
+                entity::setRefreshTokenValue,
+                entity::setRefreshTokenHash,
+                entity::setRefreshTokenIssuedAt,
+                entity::setRefreshTokenExpiresAt,
+                entity::setRefreshTokenMetadata);
+
+        OAuth2Authorization.Token<OidcIdToken> oidcIdToken = authorization.getToken(OidcIdToken.class);
+        setTokenValues(oidcIdToken,
+                entity::setOidcIdTokenValue,
+                entity::setOidcIdTokenHash,
+                entity::setOidcIdTokenIssuedAt,
+                entity::setOidcIdTokenExpiresAt,
+                entity::setOidcIdTokenMetadata);
+        if (oidcIdToken != null) {
+            entity.setOidcIdTokenClaims(json.writeMap(oidcIdToken.getClaims()));
+        }
+
+        entity.setExpiresAt(AuthorizationExpiry.latestExpiry(authorization, pendingAuthorizationTtl));
+        return entity;
+    }
+
+    private void setTokenValues(OAuth2Authorization.Token<?> token,
+                                Consumer<String> tokenValueConsumer,
+                                Consumer<String> tokenHashConsumer,
+                                Consumer<Instant> issuedAtConsumer,
+                                Consumer<Instant> expiresAtConsumer,
+                                Consumer<String> metadataConsumer) {
+        if (token != null) {
+            OAuth2Token oAuth2Token = token.getToken();
+            tokenValueConsumer.accept(oAuth2Token.getTokenValue());
+            tokenHashConsumer.accept(TokenHash.sha256(oAuth2Token.getTokenValue()));
+            issuedAtConsumer.accept(oAuth2Token.getIssuedAt());
+            expiresAtConsumer.accept(oAuth2Token.getExpiresAt());
+            metadataConsumer.accept(json.writeMap(token.getMetadata()));
+        }
+    }
+
+    private static AuthorizationGrantType resolveAuthorizationGrantType(String authorizationGrantType) {
+        if (AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equals(authorizationGrantType)) {
+            return AuthorizationGrantType.AUTHORIZATION_CODE;
+        } else if (AuthorizationGrantType.CLIENT_CREDENTIALS.getValue().equals(authorizationGrantType)) {
+            return AuthorizationGrantType.CLIENT_CREDENTIALS;
+        } else if (AuthorizationGrantType.REFRESH_TOKEN.getValue().equals(authorizationGrantType)) {
+            return AuthorizationGrantType.REFRESH_TOKEN;
+        } else if (AuthorizationGrantType.DEVICE_CODE.getValue().equals(authorizationGrantType)) {
+            return AuthorizationGrantType.DEVICE_CODE;
+        }
+        return new AuthorizationGrantType(authorizationGrantType);
+    }
+}
@@ -0,0 +1,241 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.OAuth2RegisteredClientEntity;
+import com.henry.myauthserver.repository.OAuth2RegisteredClientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Database-backed {@link RegisteredClientRepository} that serves every lookup from an
+ * immutable in-memory snapshot.
+ * <p>
+ * The snapshot maps both id and client_id to the client and is replaced atomically, so
+ * the authorize and token endpoints never touch the database. Other nodes' changes are
+ * picked up by polling for rows whose {@code change_version} is above the snapshot's, and
+ * a periodic full reload drops clients deleted from the table.
+ * <p>
+ * A save takes the highest version plus one. The unique constraint makes a concurrent
+ * save of the same version wait for the first to commit and then fail, so versions
+ * become visible in order and the poll never skips one; the losing save retries.
+ */
+public class JpaRegisteredClientRepository implements RegisteredClientRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(JpaRegisteredClientRepository.class);
+
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+
+    private final OAuth2RegisteredClientRepository clientRepository;
+    private final AuthorizationServerJson json = new AuthorizationServerJson();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public JpaRegisteredClientRepository(OAuth2RegisteredClientRepository clientRepository) {
+        this.clientRepository = clientRepository;
+    }
+
+    @Override
+    public void save(RegisteredClient registeredClient) {
+        Objects.requireNonNull(registeredClient, "registeredClient cannot be null");
+        OAuth2RegisteredClientEntity entity = toEntity(registeredClient);
+        for (int attempt = 1; ; attempt++) {
+            entity.setChangeVersion(clientRepository.findMaxChangeVersion() + 1);
+            try {
+                clientRepository.saveAndFlush(entity);
+                break;
+            } catch (DataIntegrityViolationException e) {
+                // Most likely another node took the same change_version first
+                if (attempt == MAX_SAVE_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Change version {} was taken, retrying save of client '{}'",
+                        entity.getChangeVersion(), registeredClient.getClientId());
+            }
+        }
+        apply(List.of(entity));
+    }
+
+    @Override
+    public RegisteredClient findById(String id) {
+        return snapshot.byId().get(id);
+    }
+
+    @Override
+    public RegisteredClient findByClientId(String clientId) {
+        return snapshot.byClientId().get(clientId);
+    }
+
+    /**
+     * Registers a client owned by configuration, or updates the stored one when the
+     * configuration has changed since. The secret of {@code configured}, if any, is the raw
+     * value: it is compared with the stored hash and only encoded when it has to be written.
+     * The stored id and issue time are kept, so authorizations still resolve the client.
+     */
+    public void seed(RegisteredClient configured, PasswordEncoder passwordEncoder) {
+        RegisteredClient stored = findByClientId(configured.getClientId());
+        String secret = configured.getClientSecret();
+        if (secret != null) {
+            secret = stored != null && stored.getClientSecret() != null
+                    && passwordEncoder.matches(secret, stored.getClientSecret())
+                    ? stored.getClientSecret()
+                    : passwordEncoder.encode(secret);
+        }
+        RegisteredClient.Builder builder = RegisteredClient.from(configured).clientSecret(secret);
+        if (stored != null) {
+            builder.id(stored.getId()).clientIdIssuedAt(stored.getClientIdIssuedAt());
+        }
+        // Round-trip through the stored form so settings compare with the same value types
+        RegisteredClient desired = toObject(toEntity(builder.build()));
+        if (!desired.equals(stored)) {
+            save(desired);
+            log.info("{} client '{}'", stored == null ? "Registered" : "Updated", configured.getClientId());
+        }
+    }
+
+    /** Replaces the snapshot with every client in the table, dropping deleted ones. */
+    @Scheduled(initialDelayString = "${oauth2.client-registry.full-reload-interval:PT5M}",
+               fixedDelayString = "${oauth2.client-registry.full-reload-interval:PT5M}")
+    public synchronized void reload() {
+        Map<String, RegisteredClient> byId = new HashMap<>();
+        Map<String, RegisteredClient> byClientId = new HashMap<>();
+        long version = 0;
+        for (OAuth2RegisteredClientEntity entity : clientRepository.findAll()) {
+            RegisteredClient registeredClient = toObject(entity);
+            byId.put(registeredClient.getId(), registeredClient);
+            byClientId.put(registeredClient.getClientId(), registeredClient);
+            version = Math.max(version, entity.getChangeVersion());
+        }
+        int removed = snapshot.byId().size() - byId.size();
+        // Versions come from the rows read, so a save racing with this is re-read by refresh()
+        snapshot = new Snapshot(Map.copyOf(byId), Map.copyOf(byClientId), version);
+        if (removed > 0) {
+            log.debug("Full reload dropped {} deleted clients", removed);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${oauth2.client-registry.refresh-interval:PT30S}",
+               fixedDelayString = "${oauth2.client-registry.refresh-interval:PT30S}")
+    public void refresh() {
+        List<OAuth2RegisteredClientEntity> changed =
+                clientRepository.findByChangeVersionGreaterThanOrderByChangeVersion(snapshot.version());
+        if (!changed.isEmpty()) {
+            apply(changed);
+            log.debug("Reloaded {} changed clients, now at version {}", changed.size(), snapshot.version());
+        }
+    }
+
+    public int size() {
+        return snapshot.byId().size();
+    }
+
+    // Writers copy the current snapshot and swap in the result; readers keep using the
+    // snapshot they already hold
+    private synchronized void apply(List<OAuth2RegisteredClientEntity> changed) {
+        Snapshot current = snapshot;
+        Map<String, RegisteredClient> byId = new HashMap<>(current.byId());
+        Map<String, RegisteredClient> byClientId = new HashMap<>(current.byClientId());
+        long version = current.version();
+        for (OAuth2RegisteredClientEntity entity : changed) {
+            RegisteredClient previous = byId.get(entity.getId());
+            if (previous != null) {
+                byClientId.remove(previous.getClientId());
+            }
+            RegisteredClient registeredClient = toObject(entity);
+            byId.put(registeredClient.getId(), registeredClient);
+            byClientId.put(registeredClient.getClientId(), registeredClient);
+            version = Math.max(version, entity.getChangeVersion());
+        }
+        snapshot = new Snapshot(Map.copyOf(byId), Map.copyOf(byClientId), version);
+    }
+
+    private RegisteredClient toObject(OAuth2RegisteredClientEntity entity) {
+        return RegisteredClient.withId(entity.getId())
+                .clientId(entity.getClientId())
+                .clientIdIssuedAt(entity.getClientIdIssuedAt())
+                .clientSecret(entity.getClientSecret())
+                .clientSecretExpiresAt(entity.getClientSecretExpiresAt())
+                .clientName(entity.getClientName())
+                .clientAuthenticationMethods(methods ->
+                        StringUtils.commaDelimitedListToSet(entity.getClientAuthenticationMethods())
+                                .forEach(method -> methods.add(resolveClientAuthenticationMethod(method))))
+                .authorizationGrantTypes(grantTypes ->
+                        StringUtils.commaDelimitedListToSet(entity.getAuthorizationGrantTypes())
+                                .forEach(grantType -> grantTypes.add(resolveAuthorizationGrantType(grantType))))
+                .redirectUris(uris -> uris.addAll(StringUtils.commaDelimitedListToSet(entity.getRedirectUris())))
+                .postLogoutRedirectUris(uris ->
+                        uris.addAll(StringUtils.commaDelimitedListToSet(entity.getPostLogoutRedirectUris())))
+                .scopes(scopes -> scopes.addAll(StringUtils.commaDelimitedListToSet(entity.getScopes())))
+                .clientSettings(ClientSettings.withSettings(json.parseMap(entity.getClientSettings())).build())
+                .tokenSettings(TokenSettings.withSettings(json.parseMap(entity.getTokenSettings())).build())
+                .build();
+    }
+
+    private OAuth2RegisteredClientEntity toEntity(RegisteredClient registeredClient) {
+        List<String> clientAuthenticationMethods = new ArrayList<>();
+        registeredClient.getClientAuthenticationMethods().forEach(method ->
+                clientAuthenticationMethods.add(method.getValue()));
+
+        List<String> authorizationGrantTypes = new ArrayList<>();
+        registeredClient.getAuthorizationGrantTypes().forEach(grantType ->
+                authorizationGrantTypes.add(grantType.getValue()));
+
+        OAuth2RegisteredClientEntity entity = new OAuth2RegisteredClientEntity();
+        entity.setId(registeredClient.getId());
+        entity.setClientId(registeredClient.getClientId());
+        entity.setClientIdIssuedAt(registeredClient.getClientIdIssuedAt());
+        entity.setClientSecret(registeredClient.getClientSecret());
+        entity.setClientSecretExpiresAt(registeredClient.getClientSecretExpiresAt());
+        entity.setClientName(registeredClient.getClientName());
+        entity.setClientAuthenticationMethods(StringUtils.collectionToCommaDelimitedString(clientAuthenticationMethods));
+        entity.setAuthorizationGrantTypes(StringUtils.collectionToCommaDelimitedString(authorizationGrantTypes));
+        entity.setRedirectUris(StringUtils.collectionToCommaDelimitedString(registeredClient.getRedirectUris()));
+        entity.setPostLogoutRedirectUris(StringUtils.collectionToCommaDelimitedString(
+                registeredClient.getPostLogoutRedirectUris()));
+        entity.setScopes(StringUtils.collectionToCommaDelimitedString(registeredClient.getScopes()));
+        entity.setClientSettings(json.writeMap(registeredClient.getClientSettings().getSettings()));
+        entity.setTokenSettings(json.writeMap(registeredClient.getTokenSettings().getSettings()));
+        return entity;
+    }
+
+    private static AuthorizationGrantType resolveAuthorizationGrantType(String authorizationGrantType) {
+        if (AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equals(authorizationGrantType)) {
+            return AuthorizationGrantType.AUTHORIZATION_CODE;
+        } else if (AuthorizationGrantType.CLIENT_CREDENTIALS.getValue().equals(authorizationGrantType)) {
+            return AuthorizationGrantType.CLIENT_CREDENTIALS;
+        } else if (AuthorizationGrantType.REFRESH_TOKEN.getValue().equals(authorizationGrantType)) {
+            return AuthorizationGrantType.REFRESH_TOKEN;
+        }
+        return new AuthorizationGrantType(authorizationGrantType);
+    }
+
+    private static ClientAuthenticationMethod resolveClientAuthenticationMethod(String clientAuthenticationMethod) {
+        if (ClientAuthenticationMethod.CLIENT_SECRET_BASIC.getValue().equals(clientAuthenticationMethod)) {
+            return ClientAuthenticationMethod.CLIENT_SECRET_BASIC;
+        } else if (ClientAuthenticationMethod.CLIENT_SECRET_POST.getValue().equals(clientAuthenticationMethod)) {
+            return ClientAuthenticationMethod.CLIENT_SECRET_POST;
+        } else if (ClientAuthenticationMethod.NONE.getValue().equals(clientAuthenticationMethod)) {
+            return ClientAuthenticationMethod.NONE;
+        }
+        return new ClientAuthenticationMethod(clientAuthenticationMethod);
+    }
+
+    private record Snapshot(Map<String, RegisteredClient> byId, Map<String, RegisteredClient> byClientId,
+                            long version) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), 0);
+    }
+}
@@ -0,0 +1,100 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.service.AppUserDetailsService;
+import com.henry.myauthserver.service.UserDetailsCache;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
+
+/**
+ * Customizes every JWT the authorization server issues (access and ID tokens).
+ * <p>
+ * Tokens are signed with the client's {@value #SIGNATURE_ALGORITHM} token setting when
+ * the key ring holds an active key for it, otherwise with the configured default.
+ * <p>
+ * Tokens issued for a user carry {@value #ROLE_CLAIM} and {@value #EMAIL_CLAIM} claims.
+ * They come from the user cache that also serves logins, so a refresh grant costs no user
+ * query while the entry is cached, and a role change shows up in the next token once the
+ * entry is invalidated. If the user no longer exists, the role is taken from the
+ * authorities of the principal captured at login.
+ */
+public class JwtTokenCustomizer implements OAuth2TokenCustomizer<JwtEncodingContext> {
+
+    /** Per-client {@code TokenSettings} entry naming the JWS algorithm, e.g. {@code ES256}. */
+    public static final String SIGNATURE_ALGORITHM = "settings.token.signature-algorithm";
+
+    public static final String ROLE_CLAIM = "role";
+    public static final String EMAIL_CLAIM = "email";
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenCustomizer.class);
+
+    private final SigningKeyRing keyRing;
+    private final SignatureAlgorithm defaultAlgorithm;
+    private final AppUserDetailsService userDetailsService;
+
+    public JwtTokenCustomizer(SigningKeyRing keyRing, SignatureAlgorithm defaultAlgorithm,
+                              AppUserDetailsService userDetailsService) {
+        this.keyRing = keyRing;
+        this.defaultAlgorithm = defaultAlgorithm;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public void customize(JwtEncodingContext context) {
+        context.getJwsHeader().algorithm(signatureAlgorithm(context.getRegisteredClient()));
+        if (isUserToken(context)) {
+            addUserClaims(context);
+        }
+    }
+
+    private void addUserClaims(JwtEncodingContext context) {
+        Authentication principal = context.getPrincipal();
+        try {
+            UserDetailsCache.CachedUser user = userDetailsService.loadUserAttributes(principal.getName());
+            context.getClaims()
+                    .claim(ROLE_CLAIM, user.role())
+                    .claim(EMAIL_CLAIM, user.email());
+        } catch (UsernameNotFoundException e) {
+            principal.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .filter(authority -> authority.startsWith(ROLE_PREFIX))
+                    .findFirst()
+                    .ifPresent(role -> context.getClaims().claim(ROLE_CLAIM, role.substring(ROLE_PREFIX.length())));
+        }
+    }
+
+    // Client credentials tokens have the client itself as principal
+    private static boolean isUserToken(JwtEncodingContext context) {
+        OAuth2TokenType tokenType = context.getTokenType();
+        return context.getPrincipal() != null
+                && !(context.getPrincipal() instanceof OAuth2ClientAuthenticationToken)
+                && (OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)
+                        || OidcParameterNames.ID_TOKEN.equals(tokenType.getValue()));
+    }
+
+    private SignatureAlgorithm signatureAlgorithm(RegisteredClient registeredClient) {
+        Object configured = registeredClient.getTokenSettings().getSetting(SIGNATURE_ALGORITHM);
+        if (configured == null) {
+            return defaultAlgorithm;
+        }
+        SignatureAlgorithm algorithm = SignatureAlgorithm.from(configured.toString());
+        if (algorithm == null || !keyRing.canSign(JWSAlgorithm.parse(algorithm.getName()))) {
+            log.warn("Client '{}' asks for signature algorithm {} which has no active key, using {}",
+                    registeredClient.getClientId(), configured, defaultAlgorithm.getName());
+            return defaultAlgorithm;
+        }
+        return algorithm;
+    }
+}
@@ -0,0 +1,36 @@
+package com.henry.myauthserver.security;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+
+import java.io.IOException;
+
+/**
+ * Redirects failed logins back to the login page as before, except when the hashing
+ * pool rejected the attempt: then the client gets a 503 with {@code Retry-After}.
+ */
+public class LoginFailureHandler extends SimpleUrlAuthenticationFailureHandler {
+
+    public LoginFailureHandler(String defaultFailureUrl) {
+        super(defaultFailureUrl);
+    }
+
+    @Override
+    public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+                                        AuthenticationException exception) throws IOException, ServletException {
+        if (exception instanceof PasswordHashingSaturatedException saturated) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(saturated.getRetryAfterSeconds()));
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Server is busy, please retry shortly");
+            return;
+        }
+        super.onAuthenticationFailure(request, response, exception);
+    }
+}
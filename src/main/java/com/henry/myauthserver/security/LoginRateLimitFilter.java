@@ -0,0 +1,166 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.henry.myauthserver.entity.AppUser;
+import com.henry.myauthserver.util.BloomFilter;
+import com.henry.myauthserver.util.TokenBucket;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits login and registration attempts before any password is hashed or any user
+ * is looked up.
+ * <p>
+ * {@code POST /login} is limited per client IP and per submitted username, and
+ * {@code POST /api/auth/register} per client IP. Each key has its own
+ * {@link TokenBucket} in a Caffeine cache. Lookups of existing keys take no lock. A bucket
+ * is evicted once it has been idle long enough to have refilled completely, so expiry
+ * never resets a limit early. When more than {@code maxKeys} keys are active, a bucket that
+ * is still limiting can be evicted for size; its key is remembered in a Bloom filter for
+ * one refill window and its next bucket starts drained, so flooding the cache with new
+ * keys fails closed instead of resetting someone's limit. Rejected requests get a 429 with
+ * {@code Retry-After}.
+ * <p>
+ * The client IP is {@link HttpServletRequest#getRemoteAddr()}; behind a proxy, enable
+ * {@code server.forward-headers-strategy} so it is the forwarded address.
+ */
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN_PATH = "/login";
+    private static final String REGISTER_PATH = "/api/auth/register";
+
+    private final Buckets loginsPerIp;
+    private final Buckets loginsPerUsername;
+    private final Buckets registrationsPerIp;
+    private final LongSupplier nanoTime;
+
+    public LoginRateLimitFilter(Limit loginPerIp, Limit loginPerUsername, Limit registrationPerIp, long maxKeys) {
+        this(loginPerIp, loginPerUsername, registrationPerIp, maxKeys, System::nanoTime);
+    }
+
+    LoginRateLimitFilter(Limit loginPerIp, Limit loginPerUsername, Limit registrationPerIp, long maxKeys,
+                         LongSupplier nanoTime) {
+        this.loginsPerIp = new Buckets(loginPerIp, maxKeys, nanoTime);
+        this.loginsPerUsername = new Buckets(loginPerUsername, maxKeys, nanoTime);
+        this.registrationsPerIp = new Buckets(registrationPerIp, maxKeys, nanoTime);
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = pathOf(request);
+        return !LOGIN_PATH.equals(path) && !REGISTER_PATH.equals(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = nanoTime.getAsLong();
+        String ip = request.getRemoteAddr();
+        long wait;
+        if (LOGIN_PATH.equals(pathOf(request))) {
+            wait = loginsPerIp.tryAcquire(ip, now);
+            String username = request.getParameter("username");
+            if (wait == 0 && username != null && !username.isBlank()) {
+                wait = loginsPerUsername.tryAcquire(AppUser.normalize(username), now);
+            }
+        } else {
+            wait = registrationsPerIp.tryAcquire(ip, now);
+        }
+
+        if (wait > 0) {
+            reject(response, wait);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many attempts, please retry later\"}");
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /** Burst of {@code capacity} requests, then one per {@code refillInterval}. */
+    public record Limit(long capacity, Duration refillInterval) {
+    }
+
+    private static final class Buckets {
+
+        private static final double EVICTED_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+        private final Limit limit;
+        private final long maxKeys;
+        private final long windowNanos;
+        private final Cache<String, TokenBucket> buckets;
+
+        // Keys whose bucket was evicted while still limiting, in two generations so each
+        // key is remembered for at least one full refill window
+        private volatile BloomFilter evicted;
+        private volatile BloomFilter previouslyEvicted;
+        private long generationStart;
+
+        Buckets(Limit limit, long maxKeys, LongSupplier nanoTime) {
+            this.limit = limit;
+            this.maxKeys = maxKeys;
+            Duration window = limit.refillInterval().multipliedBy(limit.capacity());
+            this.windowNanos = window.toNanos();
+            this.evicted = new BloomFilter(maxKeys, EVICTED_FALSE_POSITIVE_PROBABILITY);
+            this.previouslyEvicted = new BloomFilter(maxKeys, EVICTED_FALSE_POSITIVE_PROBABILITY);
+            this.generationStart = nanoTime.getAsLong();
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(window)
+                    .executor(Runnable::run)
+                    .evictionListener((String key, TokenBucket bucket, RemovalCause cause) -> {
+                        long now = nanoTime.getAsLong();
+                        if (cause == RemovalCause.SIZE && bucket != null && !bucket.isFull(now)) {
+                            remember(key, now);
+                        }
+                    })
+                    .build();
+        }
+
+        long tryAcquire(String key, long now) {
+            return buckets.get(key, k -> newBucket(k, now)).tryAcquire(now);
+        }
+
+        private TokenBucket newBucket(String key, long now) {
+            if (evicted.mightContain(key) || previouslyEvicted.mightContain(key)) {
+                return TokenBucket.drained(limit.capacity(), limit.refillInterval(), now);
+            }
+            return new TokenBucket(limit.capacity(), limit.refillInterval(), now);
+        }
+
+        private synchronized void remember(String key, long now) {
+            if (now - generationStart >= windowNanos) {
+                previouslyEvicted = evicted;
+                evicted = new BloomFilter(maxKeys, EVICTED_FALSE_POSITIVE_PROBABILITY);
+                generationStart = now;
+            }
+            evicted.put(key);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the JWK set and the discovery documents from pre-rendered byte arrays.
+ * <p>
+ * The first request for a document lets the authorization server's endpoint filter render
+ * it and keeps the bytes, a gzip copy and a strong ETag. Later requests are answered from
+ * memory with {@code Cache-Control: max-age} and a 304 when the client already holds the
+ * current representation. The JWK set is the same for every caller, is cached under its
+ * path alone and is re-rendered when the key ring version changes. The discovery documents
+ * only depend on the issuer, which is part of their cache key. Without a configured
+ * {@code oauth2.issuer} the issuer follows the Host header, so the cache is bounded by size
+ * and requests under unknown host names cannot push out the documents in use.
+ */
+public class MetadataResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Set<String> CACHED_PATHS = Set.of(
+            "/oauth2/jwks",
+            "/.well-known/openid-configuration",
+            "/.well-known/oauth-authorization-server");
+    private static final String JWKS_PATH = "/oauth2/jwks";
+    // Bounds the cache when clients reach the server under many host names; Caffeine keeps
+    // the frequently requested entries when it has to evict
+    private static final int MAX_ENTRIES = 64;
+
+    private final LongSupplier keySetVersion;
+    private final String cacheControl;
+    private final Cache<String, Document> documents = Caffeine.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .build();
+
+    public MetadataResponseCacheFilter(LongSupplier keySetVersion, Duration maxAge) {
+        this.keySetVersion = keySetVersion;
+        this.cacheControl = "public, max-age=" + maxAge.toSeconds();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !CACHED_PATHS.contains(pathOf(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = pathOf(request);
+        long version = JWKS_PATH.equals(path) ? keySetVersion.getAsLong() : 0;
+        String key = JWKS_PATH.equals(path) ? path : issuerOf(request) + path;
+
+        Document document = documents.getIfPresent(key);
+        if (document == null || document.version() != version) {
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            filterChain.doFilter(request, wrapper);
+            if (wrapper.getStatus() != HttpServletResponse.SC_OK) {
+                wrapper.copyBodyToResponse();
+                return;
+            }
+            document = Document.render(wrapper.getContentAsByteArray(), wrapper.getContentType(), version);
+            documents.put(key, document);
+        }
+        serve(document, request, response);
+    }
+
+    private void serve(Document document, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        boolean gzip = document.gzipped() != null && acceptsGzip(request);
+        String etag = gzip ? document.gzipEtag() : document.etag();
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), document)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = gzip ? document.gzipped() : document.body();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(document.contentType());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // Either representation's tag means the client holds the current document
+    private static boolean matches(String ifNoneMatch, Document document) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(document.etag()) || tag.equals(document.gzipEtag())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    // The issuer the endpoint renders into the discovery documents: the configured one, or
+    // else the requested scheme, host and port
+    private static String issuerOf(HttpServletRequest request) {
+        AuthorizationServerContext context = AuthorizationServerContextHolder.getContext();
+        if (context != null) {
+            return context.getIssuer();
+        }
+        return request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort()
+                + request.getContextPath();
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private record Document(byte[] body, byte[] gzipped, String contentType, String etag, String gzipEtag,
+                            long version) {
+
+        static Document render(byte[] body, String contentType, long version) throws IOException {
+            String hash = sha256(body);
+            byte[] gzipped = gzip(body);
+            // Tiny documents can grow when compressed; serve those as is
+            if (gzipped.length >= body.length) {
+                gzipped = null;
+            }
+            return new Document(body, gzipped, contentType, "\"" + hash + "\"", "\"" + hash + "-gz\"", version);
+        }
+
+        private static byte[] gzip(byte[] body) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(body);
+            }
+            return out.toByteArray();
+        }
+
+        private static String sha256(byte[] body) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+                return HexFormat.of().formatHex(digest, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
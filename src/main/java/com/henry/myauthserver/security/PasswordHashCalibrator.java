@@ -0,0 +1,63 @@
+package com.henry.myauthserver.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Benchmarks BCrypt on the current host and picks the highest work factor whose
+ * hash time stays within a target latency, so the cost can follow node sizes
+ * instead of being hardcoded.
+ */
+public final class PasswordHashCalibrator {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashCalibrator.class);
+
+    public static final int MIN_STRENGTH = 10;
+    public static final int MAX_STRENGTH = 16;
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+    private static final int SAMPLES = 2;
+
+    private PasswordHashCalibrator() {
+    }
+
+    public static int calibrateBCryptStrength(Duration target) {
+        int strength = calibrate(target, MIN_STRENGTH, MAX_STRENGTH, PasswordHashCalibrator::measureBCrypt);
+        log.info("Calibrated BCrypt strength {} for a target of {} ms", strength, target.toMillis());
+        return strength;
+    }
+
+    /**
+     * Walks the strengths upwards and returns the last one measured under the target.
+     * Each step doubles the work, so the search stops at the first strength over budget.
+     */
+    static int calibrate(Duration target, int minStrength, int maxStrength, IntToLongFunction measureNanos) {
+        long targetNanos = target.toNanos();
+        int chosen = minStrength;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            if (measureNanos.applyAsLong(strength) > targetNanos) {
+                break;
+            }
+            chosen = strength;
+        }
+        return chosen;
+    }
+
+    private static long measureBCrypt(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        if (strength == MIN_STRENGTH) {
+            encoder.encode(SAMPLE_PASSWORD); // JIT warm-up before the first measurement
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
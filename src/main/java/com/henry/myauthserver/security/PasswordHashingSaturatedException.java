@@ -0,0 +1,20 @@
+package com.henry.myauthserver.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Thrown when the password hashing pool and its queue are full. Extends
+ * {@link AuthenticationServiceException} so form login routes it to the
+ * failure handler instead of surfacing a 500.
+ */
+public class PasswordHashingSaturatedException extends AuthenticationServiceException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingSaturatedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
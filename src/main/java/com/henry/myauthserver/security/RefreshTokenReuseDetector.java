@@ -0,0 +1,46 @@
+package com.henry.myauthserver.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationToken;
+
+/**
+ * Wraps the token endpoint's refresh token provider so that presenting a refresh token
+ * which has already been rotated out revokes its whole authorization.
+ * <p>
+ * The delegate answers {@code invalid_grant} for a token it cannot find; only then is the
+ * token checked against the rotated tokens, so a successful refresh costs nothing extra
+ * and the authorization store's lookups stay free of writes.
+ */
+public class RefreshTokenReuseDetector implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final RevocableOAuth2AuthorizationService authorizationService;
+
+    public RefreshTokenReuseDetector(AuthenticationProvider delegate,
+                                     RevocableOAuth2AuthorizationService authorizationService) {
+        this.delegate = delegate;
+        this.authorizationService = authorizationService;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        try {
+            return delegate.authenticate(authentication);
+        } catch (OAuth2AuthenticationException e) {
+            if (OAuth2ErrorCodes.INVALID_GRANT.equals(e.getError().getErrorCode())
+                    && authentication instanceof OAuth2RefreshTokenAuthenticationToken refresh) {
+                authorizationService.revokeRotatedRefreshToken(refresh.getRefreshToken());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -0,0 +1,35 @@
+package com.henry.myauthserver.security;
+
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+
+/**
+ * Authorization store that can end sessions.
+ * <p>
+ * Each authorization is one token family: with refresh token rotation its refresh token
+ * is replaced on every use, and the replaced tokens are remembered against it. A refresh
+ * grant presenting one of them revokes the family through
+ * {@link #revokeRotatedRefreshToken}; lookups themselves never revoke. Revoking removes
+ * the authorization and publishes a {@link TokenInvalidatedEvent} for its access token.
+ */
+public interface RevocableOAuth2AuthorizationService extends OAuth2AuthorizationService {
+
+    /**
+     * Revokes every authorization of the principal through the principal index.
+     *
+     * @return the number of authorizations revoked
+     */
+    int revokeAll(String principalName);
+
+    /**
+     * Revokes the authorization the refresh token was rotated out of, if it was.
+     *
+     * @return {@code true} if the token had been rotated and its family was revoked
+     */
+    boolean revokeRotatedRefreshToken(String refreshToken);
+
+    /**
+     * Number of authorizations that have not expired yet. Database-backed stores answer
+     * with a query, so callers polling it should cache the result.
+     */
+    long countActive();
+}
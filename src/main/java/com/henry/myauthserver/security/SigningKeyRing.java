@@ -0,0 +1,306 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.SigningKey;
+import com.henry.myauthserver.repository.SigningKeyRepository;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent ring of JWT signing keys shared by every node.
+ * <p>
+ * Keys move from NEXT to ACTIVE to RETIRED. All of them are published in the JWK set, so
+ * clients see a key before it signs anything and can still verify tokens signed by a
+ * retired key; only the ACTIVE key signs. The next key is generated by the scheduled
+ * check, never on the request path, and each change swaps in a new immutable snapshot so
+ * token issuance never waits on a rotation.
+ * <p>
+ * Each configured algorithm (RS256, ES256) has its own active and next key and rotates
+ * independently. Keys of an algorithm that is no longer configured are retired. A unique
+ * slot per algorithm admits a single NEXT key, so when two nodes generate one at the same
+ * time only the first insert succeeds; extra NEXT keys from before the constraint existed
+ * are retired.
+ */
+public class SigningKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    // Deterministic on every node, even if two nodes activated a key at the same time
+    private static final Comparator<SigningKey> ACTIVATION_ORDER =
+            Comparator.comparing(SigningKey::getActivatedAt).thenComparing(SigningKey::getKid);
+    private static final Comparator<SigningKey> CREATION_ORDER =
+            Comparator.comparing(SigningKey::getCreatedAt).thenComparing(SigningKey::getKid);
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final TextEncryptor encryptor;
+    private final Duration rotationPeriod;
+    private final Duration retiredRetention;
+    private final int rsaKeySize;
+    private final List<JWSAlgorithm> algorithms;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public SigningKeyRing(SigningKeyRepository signingKeyRepository, TextEncryptor encryptor,
+                          Duration rotationPeriod, Duration retiredRetention, int rsaKeySize,
+                          List<JWSAlgorithm> algorithms) {
+        for (JWSAlgorithm algorithm : algorithms) {
+            if (!JWSAlgorithm.RS256.equals(algorithm) && !JWSAlgorithm.ES256.equals(algorithm)) {
+                throw new IllegalArgumentException("Unsupported signing algorithm: " + algorithm);
+            }
+        }
+        this.signingKeyRepository = signingKeyRepository;
+        this.encryptor = encryptor;
+        this.rotationPeriod = rotationPeriod;
+        this.retiredRetention = retiredRetention;
+        this.rsaKeySize = rsaKeySize;
+        this.algorithms = List.copyOf(algorithms);
+    }
+
+    /** Every published key; used by the JWK set endpoint and to verify tokens. */
+    public JWKSource<SecurityContext> publishedJwkSource() {
+        return (jwkSelector, context) -> jwkSelector.select(snapshot.published());
+    }
+
+    /** Only the active key of each algorithm; used to sign new tokens. */
+    public JWKSource<SecurityContext> signingJwkSource() {
+        return (jwkSelector, context) -> jwkSelector.select(snapshot.signing());
+    }
+
+    /** Increases whenever the published key set changes. */
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    public String getActiveKeyId(JWSAlgorithm algorithm) {
+        return snapshot.activeKeyIds().get(algorithm.getName());
+    }
+
+    /** Whether tokens can currently be signed with the algorithm. */
+    public boolean canSign(JWSAlgorithm algorithm) {
+        return snapshot.activeKeyIds().containsKey(algorithm.getName());
+    }
+
+    /**
+     * Loads the ring, creating the first active key of each algorithm when there is none.
+     * A key is generated here at most once per algorithm for the cluster lifetime; later
+     * keys come from {@link #rotateIfDue()}.
+     */
+    public synchronized void initialize() {
+        List<SigningKey> keys = signingKeyRepository.findAllByOrderByCreatedAt();
+        for (JWSAlgorithm algorithm : algorithms) {
+            List<SigningKey> algorithmKeys = ofAlgorithm(keys, algorithm);
+            if (latestActive(algorithmKeys) == null) {
+                SigningKey key = algorithmKeys.stream()
+                        .filter(k -> k.getStatus() == SigningKey.Status.NEXT)
+                        .findFirst()
+                        .orElseGet(() -> newKey(algorithm));
+                activate(key, Instant.now());
+                signingKeyRepository.save(key);
+                log.info("Activated {} signing key {}", algorithm, key.getKid());
+            }
+        }
+        publish(signingKeyRepository.findAllByOrderByCreatedAt());
+    }
+
+    @Scheduled(initialDelayString = "${security.signing-keys.check-interval:PT10M}",
+               fixedDelayString = "${security.signing-keys.check-interval:PT10M}")
+    public synchronized void rotateIfDue() {
+        List<SigningKey> created = new ArrayList<>();
+        try {
+            List<SigningKey> keys = signingKeyRepository.findAllByOrderByCreatedAt();
+            Instant now = Instant.now();
+            List<SigningKey> changed = new ArrayList<>();
+
+            for (JWSAlgorithm algorithm : algorithms) {
+                rotate(ofAlgorithm(keys, algorithm), algorithm, now, changed, created);
+            }
+            for (SigningKey key : keys) {
+                if (key.getStatus() != SigningKey.Status.RETIRED && !isConfigured(key.getAlgorithm())) {
+                    retire(key, now, changed);
+                }
+            }
+
+            List<SigningKey> expired = keys.stream()
+                    .filter(k -> k.getStatus() == SigningKey.Status.RETIRED
+                            && k.getRetiredAt().plus(retiredRetention).isBefore(now))
+                    .toList();
+
+            if (!changed.isEmpty()) {
+                signingKeyRepository.saveAll(changed);
+            }
+            if (!expired.isEmpty()) {
+                signingKeyRepository.deleteAll(expired);
+            }
+        } catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+            log.info("Signing keys were changed by another node, reloading");
+            created.clear();
+        }
+
+        // Inserted after the promotion has freed the slot; each algorithm on its own, so a
+        // node that lost the race for one still publishes the others
+        for (SigningKey key : created) {
+            try {
+                signingKeyRepository.save(key);
+            } catch (DataIntegrityViolationException e) {
+                log.info("Another node published the next {} signing key", key.getAlgorithm());
+            }
+        }
+        // Also picks up rotations performed by other nodes
+        publish(signingKeyRepository.findAllByOrderByCreatedAt());
+    }
+
+    private void rotate(List<SigningKey> keys, JWSAlgorithm algorithm, Instant now, List<SigningKey> changed,
+                        List<SigningKey> created) {
+        List<SigningKey> nextKeys = keys.stream()
+                .filter(k -> k.getStatus() == SigningKey.Status.NEXT)
+                .sorted(CREATION_ORDER)
+                .toList();
+        // Every node keeps the same one; the others would never be promoted
+        for (SigningKey extra : nextKeys.subList(Math.min(1, nextKeys.size()), nextKeys.size())) {
+            retire(extra, now, changed);
+        }
+        SigningKey next = nextKeys.isEmpty() ? null : nextKeys.get(0);
+        boolean nextPublished = next != null;
+        if (next == null) {
+            next = newKey(algorithm);
+        }
+
+        // Only a key that has already been published is promoted, so caches of the
+        // JWK set have had a full check interval to pick it up
+        SigningKey active = latestActive(keys);
+        if (active == null || (nextPublished && active.getActivatedAt().plus(rotationPeriod).isBefore(now))) {
+            for (SigningKey key : keys) {
+                if (key.getStatus() == SigningKey.Status.ACTIVE) {
+                    retire(key, now, changed);
+                }
+            }
+            activate(next, now);
+            changed.add(next);
+            created.add(newKey(algorithm));
+            log.info("Rotated {} signing key to {}", algorithm, next.getKid());
+        } else if (!nextPublished) {
+            created.add(next);
+        }
+    }
+
+    private void publish(List<SigningKey> keys) {
+        String fingerprint = keys.stream()
+                .map(k -> k.getKid() + ":" + k.getStatus())
+                .collect(Collectors.joining(","));
+        Snapshot current = snapshot;
+        if (fingerprint.equals(current.fingerprint())) {
+            return;
+        }
+
+        List<JWK> published = new ArrayList<>();
+        for (SigningKey key : keys) {
+            published.add(parse(key));
+        }
+
+        // The most recently activated key of each configured algorithm signs
+        Map<String, SigningKey> activeByAlgorithm = new LinkedHashMap<>();
+        keys.stream()
+                .filter(k -> k.getStatus() == SigningKey.Status.ACTIVE && isConfigured(k.getAlgorithm()))
+                .sorted(ACTIVATION_ORDER)
+                .forEach(k -> activeByAlgorithm.put(k.getAlgorithm(), k));
+        List<JWK> signing = new ArrayList<>();
+        for (SigningKey key : activeByAlgorithm.values()) {
+            signing.add(published.get(keys.indexOf(key)));
+        }
+
+        Map<String, String> activeKeyIds = new LinkedHashMap<>();
+        activeByAlgorithm.forEach((algorithm, key) -> activeKeyIds.put(algorithm, key.getKid()));
+        snapshot = new Snapshot(new JWKSet(published), new JWKSet(signing),
+                Map.copyOf(activeKeyIds), fingerprint, current.version() + 1);
+    }
+
+    private JWK parse(SigningKey key) {
+        try {
+            return JWK.parse(encryptor.decrypt(key.getKeyData()));
+        } catch (ParseException e) {
+            throw new IllegalStateException("Unreadable signing key " + key.getKid(), e);
+        }
+    }
+
+    private SigningKey newKey(JWSAlgorithm algorithm) {
+        try {
+            JWK jwk = JWSAlgorithm.ES256.equals(algorithm)
+                    ? new ECKeyGenerator(Curve.P_256)
+                            .keyID(UUID.randomUUID().toString())
+                            .keyUse(KeyUse.SIGNATURE)
+                            .algorithm(algorithm)
+                            .generate()
+                    : new RSAKeyGenerator(rsaKeySize)
+                            .keyID(UUID.randomUUID().toString())
+                            .keyUse(KeyUse.SIGNATURE)
+                            .algorithm(algorithm)
+                            .generate();
+            SigningKey key = new SigningKey();
+            key.setKid(jwk.getKeyID());
+            key.setAlgorithm(algorithm.getName());
+            key.setStatus(SigningKey.Status.NEXT);
+            key.setKeyData(encryptor.encrypt(jwk.toJSONString()));
+            key.setCreatedAt(Instant.now());
+            return key;
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean isConfigured(String algorithm) {
+        return algorithms.stream().anyMatch(a -> a.getName().equals(algorithm));
+    }
+
+    private static List<SigningKey> ofAlgorithm(List<SigningKey> keys, JWSAlgorithm algorithm) {
+        return keys.stream()
+                .filter(k -> algorithm.getName().equals(k.getAlgorithm()))
+                .toList();
+    }
+
+    private static void retire(SigningKey key, Instant now, List<SigningKey> changed) {
+        key.setStatus(SigningKey.Status.RETIRED);
+        key.setRetiredAt(now);
+        changed.add(key);
+    }
+
+    private static void activate(SigningKey key, Instant now) {
+        key.setStatus(SigningKey.Status.ACTIVE);
+        key.setActivatedAt(now);
+    }
+
+    private static SigningKey latestActive(List<SigningKey> keys) {
+        return keys.stream()
+                .filter(k -> k.getStatus() == SigningKey.Status.ACTIVE)
+                .max(ACTIVATION_ORDER)
+                .orElse(null);
+    }
+
+    private record Snapshot(JWKSet published, JWKSet signing, Map<String, String> activeKeyIds,
+                            String fingerprint, long version) {
+        static final Snapshot EMPTY = new Snapshot(new JWKSet(), new JWKSet(), Map.of(), "", 0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.henry.myauthserver.util.TokenHash;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenIntrospection;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Caches token introspection results so resource servers that introspect the same token
+ * on every request are answered without a store lookup.
+ * <p>
+ * Results are keyed by the SHA-256 hash of the token and kept for at most {@code ttl},
+ * and never past the token's expiry. Access tokens revoked on this node are dropped
+ * immediately, and every request is checked against the {@link TokenRevocationList}
+ * first, so a token revoked on another node is reported inactive once the list has
+ * polled. Other changes become visible after the ttl.
+ * <p>
+ * Deliberately not an {@link AuthenticationProvider} bean: a lone provider bean would
+ * replace the user login provider of the global authentication manager. The
+ * authorization server chain uses {@link #asAuthenticationProvider()} instead.
+ */
+public class TokenIntrospectionCache {
+
+    private static final OAuth2TokenIntrospection INACTIVE = OAuth2TokenIntrospection.builder().build();
+
+    private final AuthenticationProvider delegate;
+    private final TokenRevocationList revocationList;
+    private final Duration ttl;
+    private final Cache<String, OAuth2TokenIntrospection> results;
+
+    public TokenIntrospectionCache(AuthenticationProvider delegate, TokenRevocationList revocationList,
+                                   long maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.revocationList = revocationList;
+        this.ttl = ttl;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, OAuth2TokenIntrospection>creating((hash, claims) -> lifetime(claims)))
+                .recordStats()
+                .build();
+    }
+
+    public OAuth2TokenIntrospectionAuthenticationToken introspect(OAuth2TokenIntrospectionAuthenticationToken request) {
+        if (!(request.getPrincipal() instanceof OAuth2ClientAuthenticationToken clientPrincipal)
+                || !clientPrincipal.isAuthenticated()) {
+            throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT);
+        }
+
+        String hash = TokenHash.sha256(request.getToken());
+        if (revocationList.isRevoked(hash)) {
+            results.invalidate(hash);
+            return new OAuth2TokenIntrospectionAuthenticationToken(request.getToken(), clientPrincipal, INACTIVE);
+        }
+        OAuth2TokenIntrospection claims = results.getIfPresent(hash);
+        if (claims == null) {
+            OAuth2TokenIntrospectionAuthenticationToken result =
+                    (OAuth2TokenIntrospectionAuthenticationToken) delegate.authenticate(request);
+            claims = result.getTokenClaims();
+            results.put(hash, claims);
+        }
+        return new OAuth2TokenIntrospectionAuthenticationToken(request.getToken(), clientPrincipal, claims);
+    }
+
+    public AuthenticationProvider asAuthenticationProvider() {
+        return new AuthenticationProvider() {
+            @Override
+            public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+                return introspect((OAuth2TokenIntrospectionAuthenticationToken) authentication);
+            }
+
+            @Override
+            public boolean supports(Class<?> authentication) {
+                return OAuth2TokenIntrospectionAuthenticationToken.class.isAssignableFrom(authentication);
+            }
+        };
+    }
+
+    @EventListener
+    public void onTokenInvalidated(TokenInvalidatedEvent event) {
+        results.invalidate(event.tokenHash());
+    }
+
+    public Stats getStats() {
+        CacheStats stats = results.stats();
+        return new Stats(results.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+
+    private Duration lifetime(OAuth2TokenIntrospection claims) {
+        Instant expiresAt = claims.getExpiresAt();
+        if (!claims.isActive() || expiresAt == null) {
+            return ttl;
+        }
+        Duration remaining = Duration.between(Instant.now(), expiresAt);
+        if (remaining.isNegative()) {
+            return Duration.ZERO;
+        }
+        return remaining.compareTo(ttl) < 0 ? remaining : ttl;
+    }
+
+    public record Stats(long size, long hits, long misses, double hitRate) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.util.TokenHash;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+
+import java.time.Instant;
+
+/**
+ * Published when an access token is revoked or otherwise invalidated before it expires.
+ * Carries only the SHA-256 hash of the token value.
+ */
+public record TokenInvalidatedEvent(String tokenHash, Instant expiresAt) {
+
+    /** The event for the authorization's access token, or {@code null} if it is still valid. */
+    static TokenInvalidatedEvent forAccessToken(OAuth2Authorization authorization) {
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken == null || !accessToken.isInvalidated()) {
+            return null;
+        }
+        return new TokenInvalidatedEvent(TokenHash.sha256(accessToken.getToken().getTokenValue()),
+                accessToken.getToken().getExpiresAt());
+    }
+}
@@ -0,0 +1,149 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.RevokedToken;
+import com.henry.myauthserver.repository.RevokedTokenRepository;
+import com.henry.myauthserver.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cluster-wide list of tokens revoked before their expiry.
+ * <p>
+ * Revocations on this node are recorded in the {@code revoked_tokens} table, and every
+ * node picks up the others' by polling for rows revoked since its previous poll started,
+ * less {@code pollLag}. Lookups
+ * go through a Bloom filter first, so the usual case of a token that was never revoked
+ * costs a few hash probes and no map access; a filter hit is confirmed against the exact
+ * set. Neither structure supports removal, so the scheduled purge drops expired entries
+ * and rebuilds the filter.
+ */
+public class TokenRevocationList {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    // Retention for the rare token without an expiry
+    private static final Duration DEFAULT_RETENTION = Duration.ofDays(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int batchSize;
+    // Rows become visible at commit and are stamped with the revoking node's clock, so each
+    // poll re-reads this far before the previous one; it covers commit delay and clock skew
+    private final Duration pollLag;
+    private final long expectedRevocations;
+    private final double falsePositiveProbability;
+    private final ConcurrentHashMap<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+    private long capacity;
+    private Instant lastPollStart;
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository, int batchSize, Duration pollLag,
+                               long expectedRevocations, double falsePositiveProbability) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.batchSize = batchSize;
+        this.pollLag = pollLag;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.capacity = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveProbability);
+    }
+
+    public boolean isRevoked(String tokenHash) {
+        return filter.mightContain(tokenHash) && revoked.containsKey(tokenHash);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    @EventListener
+    public void onTokenInvalidated(TokenInvalidatedEvent event) {
+        Instant expiresAt = event.expiresAt() != null ? event.expiresAt() : Instant.now().plus(DEFAULT_RETENTION);
+        if (!expiresAt.isAfter(Instant.now()) || revoked.containsKey(event.tokenHash())) {
+            return;
+        }
+        add(event.tokenHash(), expiresAt);
+        try {
+            revokedTokenRepository.save(new RevokedToken(event.tokenHash(), expiresAt));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Token was already recorded as revoked by another node");
+        }
+    }
+
+    /** Loads revocations added since the last poll; the first call loads all of them. */
+    @Scheduled(initialDelayString = "${security.revocation.poll-interval:PT2S}",
+               fixedDelayString = "${security.revocation.poll-interval:PT2S}")
+    public synchronized void poll() {
+        Instant now = Instant.now();
+        Instant since = lastPollStart != null ? lastPollStart.minus(pollLag) : null;
+        long afterId = 0;
+        int added = 0;
+        List<RevokedToken> rows;
+        do {
+            PageRequest page = PageRequest.of(0, batchSize);
+            rows = since == null
+                    ? revokedTokenRepository.findByIdGreaterThanOrderById(afterId, page)
+                    : revokedTokenRepository.findByRevokedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                            since, afterId, page);
+            for (RevokedToken row : rows) {
+                if (row.getExpiresAt().isAfter(now) && !revoked.containsKey(row.getTokenHash())) {
+                    add(row.getTokenHash(), row.getExpiresAt());
+                    added++;
+                }
+                afterId = row.getId();
+            }
+        } while (rows.size() == batchSize);
+        lastPollStart = now;
+
+        if (added > 0) {
+            log.debug("Loaded {} revoked tokens, now tracking {}", added, revoked.size());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${security.revocation.purge-interval:PT5M}",
+               fixedDelayString = "${security.revocation.purge-interval:PT5M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        synchronized (this) {
+            if (revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now))) {
+                rebuildFilter();
+            }
+        }
+
+        // Every node runs this; deleting rows another node already deleted is harmless
+        List<Long> expiredIds;
+        do {
+            expiredIds = revokedTokenRepository.findExpiredIds(now, PageRequest.of(0, batchSize));
+            if (!expiredIds.isEmpty()) {
+                revokedTokenRepository.deleteAllByIdInBatch(expiredIds);
+            }
+        } while (expiredIds.size() == batchSize);
+    }
+
+    // The exact set is updated first, so a filter hit always finds the entry
+    private synchronized void add(String tokenHash, Instant expiresAt) {
+        revoked.put(tokenHash, expiresAt);
+        if (revoked.size() > capacity) {
+            rebuildFilter();
+        } else {
+            filter.put(tokenHash);
+        }
+    }
+
+    private void rebuildFilter() {
+        long newCapacity = Math.max(expectedRevocations, revoked.size() * 2L);
+        BloomFilter rebuilt = new BloomFilter(newCapacity, falsePositiveProbability);
+        revoked.keySet().forEach(rebuilt::put);
+        capacity = newCapacity;
+        filter = rebuilt;
+    }
+}
@@ -0,0 +1,205 @@
+package com.henry.myauthserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts consecutive failed logins per account and locks the account for
+ * {@code lock-duration} once {@code max-attempts} is reached.
+ * <p>
+ * Counters live in memory and are updated from the authentication events, so a failed
+ * login costs no write. Changes are collected per account and written to the users table
+ * in one JDBC batch every {@code flush-interval}; only the latest state of an account is
+ * written, however many attempts happened in between. Counters of accounts without a
+ * failure for {@code lock-duration} are dropped and reset in the table.
+ * <p>
+ * Only existing accounts are counted, so failures for made-up usernames cannot fill the
+ * counters. {@code max-size} bounds the accounts with failures but no lock; locked accounts
+ * weigh nothing and are never evicted for size, only when the lock runs out.
+ * <p>
+ * Each node counts the attempts it sees. Persisted locks are loaded when the application
+ * is ready, so a restart does not lift them.
+ */
+@Service
+public class AccountLockoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountLockoutService.class);
+
+    private static final String UPDATE_SQL =
+            "update users set failed_login_attempts = ?, locked_until = ? where username = ?";
+    private static final String EXISTS_SQL = "select count(*) from users where username = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserDetailsCache userDetailsCache;
+    private final int maxAttempts;
+    private final Duration lockDuration;
+    private final Clock clock;
+    private final Cache<String, Attempts> attempts;
+    // Latest unwritten state per account; replaced, never appended to
+    private final Map<String, Attempts> pending = new ConcurrentHashMap<>();
+
+    // The package-private constructor is for tests; Spring needs telling which one to use
+    @Autowired
+    public AccountLockoutService(DataSource dataSource, UserDetailsCache userDetailsCache,
+                                 @Value("${security.lockout.max-attempts:5}") int maxAttempts,
+                                 @Value("${security.lockout.lock-duration:PT15M}") Duration lockDuration,
+                                 @Value("${security.lockout.max-size:100000}") long maxSize) {
+        this(new JdbcTemplate(dataSource), userDetailsCache, maxAttempts, lockDuration, maxSize, Clock.systemUTC());
+    }
+
+    AccountLockoutService(JdbcTemplate jdbcTemplate, UserDetailsCache userDetailsCache, int maxAttempts,
+                          Duration lockDuration, long maxSize, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userDetailsCache = userDetailsCache;
+        this.maxAttempts = maxAttempts;
+        this.lockDuration = lockDuration;
+        this.clock = clock;
+        long originMillis = clock.millis();
+        this.attempts = Caffeine.newBuilder()
+                // A lock is set on write and lasts lockDuration, so it ends when the entry expires
+                .maximumWeight(maxSize)
+                .weigher((String username, Attempts current) -> current.lockedUntil() != null ? 0 : 1)
+                .expireAfterWrite(lockDuration)
+                // Follows the clock so lock expiry and entry expiry agree
+                .ticker(() -> (clock.millis() - originMillis) * 1_000_000)
+                .executor(Runnable::run)
+                .removalListener((String username, Attempts removed, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        pending.putIfAbsent(username, Attempts.NONE);
+                    }
+                })
+                .build();
+    }
+
+    public boolean isLocked(String username) {
+        Attempts current = attempts.getIfPresent(username);
+        return current != null && current.isLocked(clock.instant());
+    }
+
+    @EventListener
+    public void onFailure(AuthenticationFailureBadCredentialsEvent event) {
+        String username = event.getAuthentication().getName();
+        if (!exists(username)) {
+            return;
+        }
+        Instant now = clock.instant();
+        Attempts updated = attempts.asMap().compute(username, (key, current) -> {
+            if (current != null && current.isLocked(now)) {
+                return current;
+            }
+            int failures = current == null || current.lockedUntil() != null ? 1 : current.failures() + 1;
+            return failures >= maxAttempts
+                    ? new Attempts(failures, now.plus(lockDuration))
+                    : new Attempts(failures, null);
+        });
+        pending.put(username, updated);
+        if (updated.lockedUntil() != null && updated.failures() == maxAttempts) {
+            log.info("Locked account '{}' until {} after {} failed logins", username, updated.lockedUntil(),
+                    maxAttempts);
+        }
+    }
+
+    // Accounts without recorded failures are skipped, so a normal login writes nothing
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        String username = event.getAuthentication().getName();
+        if (attempts.asMap().remove(username) != null) {
+            pending.put(username, Attempts.NONE);
+        }
+    }
+
+    // The failed login has just loaded an existing user into the cache, so the query only
+    // runs for unknown usernames, which the login has already looked up in the table anyway
+    private boolean exists(String username) {
+        if (attempts.getIfPresent(username) != null || userDetailsCache.contains(username)) {
+            return true;
+        }
+        Integer count = jdbcTemplate.queryForObject(EXISTS_SQL, Integer.class, username);
+        return count != null && count > 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Instant now = clock.instant();
+        jdbcTemplate.query("select username, failed_login_attempts, locked_until from users " +
+                        "where failed_login_attempts > 0 or locked_until > ?",
+                (RowCallbackHandler) rs -> {
+                    Timestamp lockedUntil = rs.getTimestamp(3);
+                    attempts.put(rs.getString(1), new Attempts(rs.getInt(2),
+                            lockedUntil == null ? null : lockedUntil.toInstant()));
+                },
+                Timestamp.from(now));
+        log.info("Loaded failed login counters for {} accounts", attempts.estimatedSize());
+    }
+
+    @PreDestroy
+    @Scheduled(initialDelayString = "${security.lockout.flush-interval:PT10S}",
+               fixedDelayString = "${security.lockout.flush-interval:PT10S}")
+    public void flush() {
+        attempts.cleanUp();
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Attempts>> batch = new ArrayList<>();
+        for (Map.Entry<String, Attempts> entry : pending.entrySet()) {
+            // Only the state taken here is removed; a newer one stays for the next flush
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry);
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (ps, entry) -> {
+                Attempts state = entry.getValue();
+                ps.setInt(1, state.failures());
+                ps.setTimestamp(2, state.lockedUntil() == null ? null : Timestamp.from(state.lockedUntil()));
+                ps.setString(3, entry.getKey());
+            });
+        } catch (DataAccessException e) {
+            batch.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+            log.warn("Could not persist {} failed login counters, retrying on the next flush", batch.size(), e);
+        }
+    }
+
+    public Stats getStats() {
+        Instant now = clock.instant();
+        long locked = attempts.asMap().values().stream().filter(a -> a.isLocked(now)).count();
+        return new Stats(attempts.estimatedSize(), locked, pending.size());
+    }
+
+    record Attempts(int failures, Instant lockedUntil) {
+
+        static final Attempts NONE = new Attempts(0, null);
+
+        boolean isLocked(Instant now) {
+            return lockedUntil != null && lockedUntil.isAfter(now);
+        }
+    }
+
+    public record Stats(long trackedAccounts, long lockedAccounts, long pendingWrites) {
+    }
+}
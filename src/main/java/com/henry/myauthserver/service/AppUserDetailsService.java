@@ -0,0 +1,71 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.repository.UserCredentials;
+import com.henry.myauthserver.repository.UserRepository;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+@Service
+public class AppUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final UserDetailsCache userDetailsCache;
+    private final AccountLockoutService accountLockoutService;
+
+    public AppUserDetailsService(UserRepository userRepository, UserService userService,
+                                 UserDetailsCache userDetailsCache, AccountLockoutService accountLockoutService) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.userDetailsCache = userDetailsCache;
+        this.accountLockoutService = accountLockoutService;
+    }
+
+    // The lock is applied on every lookup rather than cached, so it lifts on time
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails user = userDetailsCache.get(username, this::loadFromDatabase);
+        if (accountLockoutService.isLocked(username)) {
+            return User.withUserDetails(user)
+                    .accountLocked(true)
+                    .build();
+        }
+        return user;
+    }
+
+    /**
+     * Email, role and status of the user from the same cache that serves logins.
+     *
+     * @throws UsernameNotFoundException if the user does not exist
+     */
+    public UserDetailsCache.CachedUser loadUserAttributes(String username) throws UsernameNotFoundException {
+        return userDetailsCache.getUser(username, this::loadFromDatabase);
+    }
+
+    private UserDetailsCache.CachedUser loadFromDatabase(String username) {
+        UserCredentials user = userRepository.findCredentialsByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+
+        return new UserDetailsCache.CachedUser(
+                user.username(),
+                user.email(),
+                user.password(),
+                user.role(),
+                user.enabled()
+        );
+    }
+
+    // Called by DaoAuthenticationProvider after a successful login when the
+    // PasswordEncoder reports the stored hash as outdated (cost or algorithm)
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userService.updatePasswordHash(user.getUsername(), newPassword);
+        return User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+}
@@ -0,0 +1,207 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.repository.UserRepository;
+import com.henry.myauthserver.security.BoundedPasswordEncoder;
+import com.henry.myauthserver.security.CachingJwtDecoder;
+import com.henry.myauthserver.security.ClientCredentialsTokenCache;
+import com.henry.myauthserver.security.JpaOAuth2AuthorizationConsentService;
+import com.henry.myauthserver.security.RevocableOAuth2AuthorizationService;
+import com.henry.myauthserver.security.TokenIntrospectionCache;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Operational numbers for monitoring that are cheap to poll.
+ * <p>
+ * The user count is a counter incremented on every registration seen by this node and
+ * reconciled with {@code COUNT(*)} every {@code refresh-interval}, which also picks up
+ * registrations on other nodes. The active authorization count is refreshed on the same
+ * schedule. Reading the stats only touches memory and the connection pool's own counters,
+ * so it costs the same whatever the size of the tables. The stats of the in-memory caches
+ * and the password hashing pool are reported alongside.
+ */
+@Service
+public class OperationalStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(OperationalStatsService.class);
+
+    private static final int CONNECTION_CHECK_TIMEOUT_SECONDS = 2;
+
+    private final UserRepository userRepository;
+    private final RevocableOAuth2AuthorizationService authorizationService;
+    private final DataSource dataSource;
+    private final HikariDataSource pool;
+    private final Supplier<Components> components;
+    private final LongSupplier nanoTime;
+
+    private final AtomicLong userCount = new AtomicLong(-1);
+    // Registrations since startup; lets a reconcile keep increments that raced with its query
+    private final AtomicLong registrations = new AtomicLong();
+    private final RegistrationRate registrationRate = new RegistrationRate();
+    private volatile long activeAuthorizations = -1;
+    private volatile Instant refreshedAt;
+
+    // The package-private constructor is for tests; Spring needs telling which one to use
+    @Autowired
+    public OperationalStatsService(UserRepository userRepository,
+                                   RevocableOAuth2AuthorizationService authorizationService,
+                                   DataSource dataSource,
+                                   BoundedPasswordEncoder passwordEncoder,
+                                   UserDetailsCache userDetailsCache,
+                                   UserAvailabilityService availabilityService,
+                                   AccountLockoutService lockoutService,
+                                   JpaOAuth2AuthorizationConsentService consentService,
+                                   CachingJwtDecoder jwtDecoder,
+                                   TokenIntrospectionCache introspectionCache,
+                                   ClientCredentialsTokenCache clientCredentialsTokenCache) {
+        this(userRepository, authorizationService, dataSource, () -> new Components(
+                passwordEncoder.getStats(),
+                userDetailsCache.getStats(),
+                availabilityService.getStats(),
+                lockoutService.getStats(),
+                consentService.getStats(),
+                jwtDecoder.getStats(),
+                introspectionCache.getStats(),
+                clientCredentialsTokenCache.getStats()
+        ), System::nanoTime);
+    }
+
+    OperationalStatsService(UserRepository userRepository, RevocableOAuth2AuthorizationService authorizationService,
+                            DataSource dataSource, Supplier<Components> components, LongSupplier nanoTime) {
+        this.userRepository = userRepository;
+        this.authorizationService = authorizationService;
+        this.dataSource = dataSource;
+        this.pool = dataSource instanceof HikariDataSource hikari ? hikari : null;
+        this.components = components;
+        this.nanoTime = nanoTime;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${security.stats.refresh-interval:PT1M}",
+               fixedDelayString = "${security.stats.refresh-interval:PT1M}")
+    public void refresh() {
+        long registrationsBefore = registrations.get();
+        long counted = userRepository.count();
+        // Registrations committed while counting may be counted twice until the next refresh
+        userCount.set(counted + registrations.get() - registrationsBefore);
+        activeAuthorizations = authorizationService.countActive();
+        refreshedAt = Instant.now();
+        log.debug("Refreshed stats: {} users, {} active authorizations", counted, activeAuthorizations);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() != UserChangedEvent.Type.REGISTERED) {
+            return;
+        }
+        registrations.incrementAndGet();
+        registrationRate.record(currentMinute());
+        userCount.updateAndGet(count -> count < 0 ? count : count + 1);
+    }
+
+    /** The maintained user count, or {@code -1} before the first refresh. */
+    public long getUserCount() {
+        return userCount.get();
+    }
+
+    /**
+     * Borrows a connection from the pool and validates it, without touching any table.
+     * Bounded by a short timeout so a dead database answers quickly.
+     */
+    public boolean isDatabaseReachable() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(CONNECTION_CHECK_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            log.debug("Database connection check failed", e);
+            return false;
+        }
+    }
+
+    public Stats getStats() {
+        long minute = currentMinute();
+        return new Stats(
+                userCount.get(),
+                registrationRate.sum(minute, 1),
+                registrationRate.sum(minute, 60),
+                activeAuthorizations,
+                refreshedAt,
+                poolStats(),
+                components.get()
+        );
+    }
+
+    private Pool poolStats() {
+        HikariPoolMXBean mxBean = pool == null ? null : pool.getHikariPoolMXBean();
+        if (mxBean == null) {
+            // Not a Hikari pool, or no connection has been requested yet
+            return null;
+        }
+        return new Pool(mxBean.getActiveConnections(), mxBean.getIdleConnections(), mxBean.getTotalConnections(),
+                pool.getMaximumPoolSize(), mxBean.getThreadsAwaitingConnection());
+    }
+
+    private long currentMinute() {
+        return TimeUnit.NANOSECONDS.toMinutes(nanoTime.getAsLong());
+    }
+
+    // Registrations per minute for the last hour, in a ring of 60 buckets
+    private static final class RegistrationRate {
+
+        private final long[] minutes = new long[60];
+        private final long[] counts = new long[60];
+
+        synchronized void record(long minute) {
+            int slot = (int) Math.floorMod(minute, 60L);
+            if (minutes[slot] != minute) {
+                minutes[slot] = minute;
+                counts[slot] = 0;
+            }
+            counts[slot]++;
+        }
+
+        synchronized long sum(long currentMinute, int lastMinutes) {
+            long sum = 0;
+            for (int slot = 0; slot < 60; slot++) {
+                if (counts[slot] > 0 && currentMinute - minutes[slot] < lastMinutes) {
+                    sum += counts[slot];
+                }
+            }
+            return sum;
+        }
+    }
+
+    public record Pool(int active, int idle, int total, int max, int awaiting) {
+    }
+
+    public record Components(BoundedPasswordEncoder.Stats passwordHashing,
+                             UserDetailsCache.Stats userDetailsCache,
+                             UserAvailabilityService.Stats availabilityFilter,
+                             AccountLockoutService.Stats lockout,
+                             JpaOAuth2AuthorizationConsentService.Stats consentCache,
+                             CachingJwtDecoder.Stats jwtDecoderCache,
+                             TokenIntrospectionCache.Stats introspectionCache,
+                             ClientCredentialsTokenCache.Stats clientCredentialsTokenCache) {
+    }
+
+    public record Stats(long users, long registrationsLastMinute, long registrationsLastHour,
+                        long activeAuthorizations, Instant refreshedAt, Pool connectionPool,
+                        Components components) {
+    }
+}
@@ -0,0 +1,202 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.entity.AppUser;
+import com.henry.myauthserver.repository.UserRepository;
+import com.henry.myauthserver.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers "is this username/email taken?" from in-memory Bloom filters of the normalized
+ * values in the users table. A negative from the filter is definite and costs no query;
+ * only possible hits are confirmed against the database.
+ * <p>
+ * The filters are bulk-loaded when the application is ready and updated on local
+ * registrations. Other nodes' registrations are picked up every {@code sync-interval} by
+ * reading the rows created since the previous sync, re-reading {@code sync-lag} before it
+ * to cover clock skew and transactions that commit late. A periodic rebuild resizes the
+ * filters as the table grows. Until the first load completes every check goes to the
+ * database.
+ * <p>
+ * A name registered on another node can therefore be reported as available for up to
+ * {@code sync-interval}. Answers are hints for forms and pre-checks only; registration and
+ * import rely on the unique constraints.
+ */
+@Service
+public class UserAvailabilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserAvailabilityService.class);
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long minimumExpectedUsers;
+    private final double falsePositiveProbability;
+    private final Duration syncLag;
+
+    private volatile Filters current;
+    private volatile Filters building;
+    // Rows created at or after this (minus the lag) are read by the next sync
+    private volatile LocalDateTime syncedFrom;
+
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+
+    public UserAvailabilityService(UserRepository userRepository, DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${security.availability-filter.expected-users:100000}") long minimumExpectedUsers,
+                                   @Value("${security.availability-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                                   @Value("${security.availability-filter.sync-lag:PT1M}") Duration syncLag) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.minimumExpectedUsers = minimumExpectedUsers;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.syncLag = syncLag;
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        return !usernameMightExist(username) || !confirmUsername(AppUser.normalize(username));
+    }
+
+    public boolean isEmailAvailable(String email) {
+        return !emailMightExist(email) || !confirmEmail(AppUser.normalize(email));
+    }
+
+    /** {@code false} means the username is definitely not taken. */
+    public boolean usernameMightExist(String username) {
+        Filters filters = current;
+        if (filters != null && !filters.usernames().mightContain(AppUser.normalize(username))) {
+            filterNegatives.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /** {@code false} means the email is definitely not taken. */
+    public boolean emailMightExist(String email) {
+        Filters filters = current;
+        if (filters != null && !filters.emails().mightContain(AppUser.normalize(email))) {
+            filterNegatives.increment();
+            return false;
+        }
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${security.availability-filter.rebuild-interval:PT1H}",
+               fixedDelayString = "${security.availability-filter.rebuild-interval:PT1H}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        LocalDateTime readStart = LocalDateTime.now();
+        // Sized for twice the current table so the filter stays accurate until the next rebuild
+        long expected = Math.max(minimumExpectedUsers, userRepository.count() * 2);
+        Filters next = new Filters(new BloomFilter(expected, falsePositiveProbability),
+                new BloomFilter(expected, falsePositiveProbability));
+
+        // Registrations committed while the table is being read go into both filters. The
+        // read runs in a read-only transaction so PostgreSQL streams it with a cursor.
+        building = next;
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.query("select username, email from users", (RowCallbackHandler) rs -> {
+                        next.usernames().put(AppUser.normalize(rs.getString(1)));
+                        next.emails().put(AppUser.normalize(rs.getString(2)));
+                    }));
+            current = next;
+            syncedFrom = readStart;
+        } finally {
+            building = null;
+        }
+        log.info("Loaded availability filters with {} users in {} ms",
+                next.usernames().getInsertions(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Adds users registered since the previous sync, on any node, to the loaded filters. */
+    @Scheduled(initialDelayString = "${security.availability-filter.sync-interval:PT10S}",
+               fixedDelayString = "${security.availability-filter.sync-interval:PT10S}")
+    public void syncRecentRegistrations() {
+        Filters filters = current;
+        LocalDateTime from = syncedFrom;
+        if (filters == null || from == null) {
+            return;
+        }
+        LocalDateTime readStart = LocalDateTime.now();
+        jdbcTemplate.query("select username, email from users where created_at >= ?", (RowCallbackHandler) rs -> {
+            UserChangedEvent registered = new UserChangedEvent(rs.getString(1), rs.getString(2),
+                    UserChangedEvent.Type.REGISTERED);
+            add(building, registered);
+            add(filters, registered);
+        }, from.minus(syncLag));
+        syncedFrom = readStart;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() != UserChangedEvent.Type.REGISTERED) {
+            return;
+        }
+        add(building, event);
+        add(current, event);
+    }
+
+    public Stats getStats() {
+        Filters filters = current;
+        return new Stats(
+                filters != null,
+                filters == null ? 0 : filters.usernames().getInsertions(),
+                filters == null ? 0 : filters.usernames().getBitCount(),
+                filters == null ? 1.0 : filters.usernames().expectedFalsePositiveProbability(),
+                filterNegatives.sum(),
+                databaseChecks.sum()
+        );
+    }
+
+    private boolean confirmUsername(String normalizedUsername) {
+        databaseChecks.increment();
+        return userRepository.existsByUsernameNormalized(normalizedUsername);
+    }
+
+    private boolean confirmEmail(String normalizedEmail) {
+        databaseChecks.increment();
+        return userRepository.existsByEmailNormalized(normalizedEmail);
+    }
+
+    private static void add(Filters filters, UserChangedEvent event) {
+        if (filters != null) {
+            putIfAbsent(filters.usernames(), AppUser.normalize(event.username()));
+            putIfAbsent(filters.emails(), AppUser.normalize(event.email()));
+        }
+    }
+
+    // Syncs re-read overlapping rows; skipping known values keeps the insertion count honest
+    private static void putIfAbsent(BloomFilter filter, String value) {
+        if (!filter.mightContain(value)) {
+            filter.put(value);
+        }
+    }
+
+    private record Filters(BloomFilter usernames, BloomFilter emails) {
+    }
+
+    public record Stats(boolean loaded, long entries, long bits, double falsePositiveProbability,
+                        long filterNegatives, long databaseChecks) {
+    }
+}
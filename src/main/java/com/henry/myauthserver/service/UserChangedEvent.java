@@ -0,0 +1,17 @@
+package com.henry.myauthserver.service;
+
+/**
+ * Published by {@link UserService} whenever an account is created or changes in a way
+ * that affects authentication. Listeners holding derived state (caches, filters,
+ * counters) use it to stay in sync with the users table.
+ */
+public record UserChangedEvent(String username, String email, Type type) {
+
+    public enum Type {
+        REGISTERED,
+        PASSWORD_CHANGED,
+        ROLE_CHANGED,
+        ENABLED,
+        DISABLED
+    }
+}
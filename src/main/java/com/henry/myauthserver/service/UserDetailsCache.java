@@ -0,0 +1,98 @@
+package com.henry.myauthserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.henry.myauthserver.security.CacheInvalidationLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-based cache of the credentials needed to authenticate a user, shared with
+ * the token customizer so claims for refreshed tokens never cost a user query.
+ * <p>
+ * Entries are immutable snapshots and every lookup materializes a fresh {@link User}:
+ * the {@code ProviderManager} erases credentials on the returned principal after login,
+ * so handing out a shared instance would wipe the cached password.
+ * <p>
+ * A change committed on this node evicts the entry at once and is published to the
+ * {@link CacheInvalidationLog}, so other nodes drop their copy within
+ * {@code security.cache-invalidation.poll-interval} (2 seconds by default). Until then,
+ * and for at most the ttl if an invalidation is missed, a node may still authenticate
+ * with the previous password, role or enabled flag.
+ */
+@Component
+public class UserDetailsCache {
+
+    static final String CACHE_NAME = "user";
+
+    private final CacheInvalidationLog invalidationLog;
+    private final Cache<String, CachedUser> cache;
+
+    public UserDetailsCache(CacheInvalidationLog invalidationLog,
+                            @Value("${security.user-cache.max-size:10000}") long maxSize,
+                            @Value("${security.user-cache.ttl:PT5M}") Duration ttl) {
+        this.invalidationLog = invalidationLog;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        invalidationLog.register(CACHE_NAME, this::invalidate);
+    }
+
+    public UserDetails get(String username, Function<String, CachedUser> loader) {
+        return cache.get(username, loader).toUserDetails();
+    }
+
+    /** The cached snapshot itself, for callers that only read attributes. */
+    public CachedUser getUser(String username, Function<String, CachedUser> loader) {
+        return cache.get(username, loader);
+    }
+
+    /** Whether the user is cached, without loading it. */
+    public boolean contains(String username) {
+        return cache.getIfPresent(username) != null;
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    // Runs after the change is committed so a concurrent login cannot re-cache stale data
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidate(event.username());
+        // A new user is in no node's cache yet, so only changes need replicating
+        if (event.type() != UserChangedEvent.Type.REGISTERED) {
+            invalidationLog.publish(CACHE_NAME, event.username());
+        }
+    }
+
+    public Stats getStats() {
+        CacheStats stats = cache.stats();
+        return new Stats(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+
+    public record CachedUser(String username, String email, String password, String role, boolean enabled) {
+
+        UserDetails toUserDetails() {
+            return User.builder()
+                    .username(username)
+                    .password(password)
+                    .roles(role)
+                    .disabled(!enabled)
+                    .build();
+        }
+    }
+
+    public record Stats(long size, long hits, long misses, double hitRate, long evictions) {
+    }
+}
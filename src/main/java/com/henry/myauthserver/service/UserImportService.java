@@ -0,0 +1,425 @@
+package com.henry.myauthserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.henry.myauthserver.dto.RegistrationRequest;
+import com.henry.myauthserver.entity.AppUser;
+import com.henry.myauthserver.security.PasswordHashingSaturatedException;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Imports users from an NDJSON or CSV stream without going through
+ * {@link UserService#registerUser} once per row.
+ * <p>
+ * Rows are read incrementally and handled in batches: duplicates within the batch and
+ * against the users table are found with one query (skipped entirely for names the
+ * availability filter has never seen), plain passwords are hashed on a small pool while
+ * pre-hashed values in any encoding the password encoder matches (bcrypt, pbkdf2, argon2)
+ * are stored as given, and the remaining rows are written with a
+ * single JDBC batch insert. A batch that hits a concurrent registration falls back to
+ * row-by-row inserts so only the conflicting rows fail.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final String INSERT_SQL = "insert into users (username, email, password, username_normalized, " +
+            "email_normalized, enabled, role, created_at) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    // One entry per id registered with the DelegatingPasswordEncoder in SecurityConfig; a
+    // hash without an id is read as bcrypt, the encoder's default for matching
+    private static final String DEFAULT_HASH_ID = "bcrypt";
+    private static final Map<String, Pattern> HASH_FORMATS = Map.of(
+            "bcrypt", Pattern.compile("\\$2[aby]?\\$\\d\\d\\$[./A-Za-z0-9]{53}"),
+            // Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8() stores a 16-byte salt
+            // followed by a 256-bit hash, hex encoded; any other length can never match
+            "pbkdf2", Pattern.compile("[0-9a-fA-F]{" + 2 * (16 + 32) + "}"),
+            "argon2", Pattern.compile(
+                    "\\$argon2(?:id|i|d)\\$v=\\d+\\$m=\\d+,t=\\d+,p=\\d+\\$[A-Za-z0-9+/]+={0,2}\\$[A-Za-z0-9+/]+={0,2}"));
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final PasswordEncoder passwordEncoder;
+    private final UserAvailabilityService availabilityService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ExecutorService hashingExecutor;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public UserImportService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                             PasswordEncoder passwordEncoder, UserAvailabilityService availabilityService,
+                             ApplicationEventPublisher eventPublisher, Validator validator,
+                             @Value("${security.user-import.batch-size:500}") int batchSize,
+                             @Value("${security.user-import.hashing-threads:2}") int hashingThreads,
+                             @Value("${security.user-import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.availabilityService = availabilityService;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        // Hashes run on the shared bounded encoder; this pool only caps how many of its
+        // slots an import can hold, leaving the rest to logins
+        AtomicInteger counter = new AtomicInteger();
+        this.hashingExecutor = Executors.newFixedThreadPool(hashingThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Result importUsers(InputStream input, Format format) throws IOException {
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String[] header = null;
+        List<Row> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = splitCsv(line);
+                continue;
+            }
+            progress.total++;
+            try {
+                batch.add(format == Format.CSV ? parseCsv(header, line, lineNumber) : parseJson(line, lineNumber));
+            } catch (IllegalArgumentException e) {
+                progress.fail(lineNumber, e.getMessage());
+                continue;
+            }
+            if (batch.size() >= batchSize) {
+                importBatch(batch, progress);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, progress);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : progress.total * 1_000_000_000.0 / elapsedNanos;
+        log.info("Imported {} of {} users in {} ms ({} rows/s)", progress.imported, progress.total,
+                elapsedNanos / 1_000_000, Math.round(rowsPerSecond));
+        return new Result(progress.total, progress.imported, progress.failed, elapsedNanos / 1_000_000,
+                rowsPerSecond, progress.errors);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    private void importBatch(List<Row> rows, Progress progress) {
+        List<Row> accepted = hashPasswords(removeDuplicates(rows, progress), progress);
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            transaction.executeWithoutResult(status -> insert(accepted));
+            accepted.forEach(row -> imported(row, progress));
+        } catch (DataIntegrityViolationException e) {
+            // A user registered concurrently; find the conflicting rows one by one
+            for (Row row : accepted) {
+                try {
+                    transaction.executeWithoutResult(status -> insert(List.of(row)));
+                    imported(row, progress);
+                } catch (DataIntegrityViolationException rowViolation) {
+                    progress.fail(row.line(), "Username or email already exists");
+                }
+            }
+        }
+    }
+
+    private List<Row> removeDuplicates(List<Row> rows, Progress progress) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Row> unique = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (!usernames.add(row.normalizedUsername())) {
+                progress.fail(row.line(), "Duplicate username in import");
+            } else if (!emails.add(row.normalizedEmail())) {
+                progress.fail(row.line(), "Duplicate email in import");
+            } else {
+                unique.add(row);
+            }
+        }
+
+        // Only names the availability filter cannot rule out are looked up
+        List<String> candidateUsernames = new ArrayList<>();
+        List<String> candidateEmails = new ArrayList<>();
+        for (Row row : unique) {
+            if (availabilityService.usernameMightExist(row.normalizedUsername())) {
+                candidateUsernames.add(row.normalizedUsername());
+            }
+            if (availabilityService.emailMightExist(row.normalizedEmail())) {
+                candidateEmails.add(row.normalizedEmail());
+            }
+        }
+        if (candidateUsernames.isEmpty() && candidateEmails.isEmpty()) {
+            return unique;
+        }
+
+        Set<String> existingUsernames = new HashSet<>();
+        Set<String> existingEmails = new HashSet<>();
+        // An empty IN list is invalid SQL, so a placeholder that matches nothing stands in
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("usernames", candidateUsernames.isEmpty() ? List.of("") : candidateUsernames)
+                .addValue("emails", candidateEmails.isEmpty() ? List.of("") : candidateEmails);
+        namedJdbcTemplate.query("select username_normalized, email_normalized from users " +
+                        "where username_normalized in (:usernames) or email_normalized in (:emails)",
+                parameters, (RowCallbackHandler) rs -> {
+                    existingUsernames.add(rs.getString(1));
+                    existingEmails.add(rs.getString(2));
+                });
+
+        List<Row> available = new ArrayList<>(unique.size());
+        for (Row row : unique) {
+            if (existingUsernames.contains(row.normalizedUsername())) {
+                progress.fail(row.line(), "Username already exists");
+            } else if (existingEmails.contains(row.normalizedEmail())) {
+                progress.fail(row.line(), "Email already exists");
+            } else {
+                available.add(row);
+            }
+        }
+        return available;
+    }
+
+    private List<Row> hashPasswords(List<Row> rows, Progress progress) {
+        List<CompletableFuture<Row>> hashed = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            hashed.add(row.encodedPassword() != null
+                    ? CompletableFuture.completedFuture(row)
+                    : CompletableFuture.supplyAsync(() -> row.withEncodedPassword(
+                            passwordEncoder.encode(row.rawPassword())), hashingExecutor));
+        }
+
+        List<Row> ready = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                ready.add(hashed.get(i).join());
+            } catch (RuntimeException e) {
+                String message = e.getCause() instanceof PasswordHashingSaturatedException
+                        ? "Server is busy, retry this row later"
+                        : "Password could not be hashed";
+                progress.fail(rows.get(i).line(), message);
+            }
+        }
+        return ready;
+    }
+
+    private void insert(List<Row> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.username());
+            ps.setString(2, row.email());
+            ps.setString(3, row.encodedPassword());
+            ps.setString(4, row.normalizedUsername());
+            ps.setString(5, row.normalizedEmail());
+            ps.setBoolean(6, true);
+            ps.setString(7, "USER");
+            ps.setTimestamp(8, now);
+        });
+    }
+
+    private void imported(Row row, Progress progress) {
+        progress.imported++;
+        eventPublisher.publishEvent(new UserChangedEvent(row.username(), row.email(),
+                UserChangedEvent.Type.REGISTERED));
+    }
+
+    private Row parseJson(String line, long lineNumber) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return toRow(lineNumber, text(node, "username"), text(node, "email"), text(node, "password"),
+                text(node, "passwordHash"));
+    }
+
+    private Row parseCsv(String[] header, String line, long lineNumber) {
+        String[] values = splitCsv(line);
+        String username = null;
+        String email = null;
+        String password = null;
+        String passwordHash = null;
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            String value = values[i].isEmpty() ? null : values[i];
+            switch (header[i].trim().toLowerCase(Locale.ROOT)) {
+                case "username" -> username = value;
+                case "email" -> email = value;
+                case "password" -> password = value;
+                case "password_hash", "passwordhash" -> passwordHash = value;
+                default -> {
+                    // Extra columns are ignored
+                }
+            }
+        }
+        return toRow(lineNumber, username, email, password, passwordHash);
+    }
+
+    // Same rules as self-registration; a pre-hashed password replaces the length check
+    private Row toRow(long lineNumber, String username, String email, String password, String passwordHash) {
+        RegistrationRequest request = new RegistrationRequest();
+        request.setUsername(username);
+        request.setEmail(email);
+        request.setPassword(password);
+
+        List<String> properties = passwordHash == null
+                ? List.of("username", "email", "password")
+                : List.of("username", "email");
+        for (String property : properties) {
+            Set<ConstraintViolation<RegistrationRequest>> violations = validator.validateProperty(request, property);
+            if (!violations.isEmpty()) {
+                throw new IllegalArgumentException(violations.iterator().next().getMessage());
+            }
+        }
+
+        String encodedPassword = passwordHash == null ? null : toEncodedPassword(passwordHash);
+        return new Row(lineNumber, username, email, password, encodedPassword);
+    }
+
+    // Normalizes to the "{id}hash" form the password encoder stores
+    private static String toEncodedPassword(String passwordHash) {
+        String id = DEFAULT_HASH_ID;
+        String hash = passwordHash;
+        int idEnd = passwordHash.indexOf('}');
+        if (passwordHash.startsWith("{") && idEnd > 0) {
+            id = passwordHash.substring(1, idEnd);
+            hash = passwordHash.substring(idEnd + 1);
+        }
+        Pattern format = HASH_FORMATS.get(id);
+        if (format == null || !format.matcher(hash).matches()) {
+            throw new IllegalArgumentException("passwordHash must be a bcrypt, pbkdf2 or argon2 hash");
+        }
+        return "{" + id + "}" + hash;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    // RFC 4180 fields on a single line: quoted values may contain commas and "" escapes
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(String[]::new);
+    }
+
+    private record Row(long line, String username, String email, String rawPassword, String encodedPassword) {
+
+        String normalizedUsername() {
+            return AppUser.normalize(username);
+        }
+
+        String normalizedEmail() {
+            return AppUser.normalize(email);
+        }
+
+        Row withEncodedPassword(String encoded) {
+            return new Row(line, username, email, null, encoded);
+        }
+    }
+
+    private final class Progress {
+        long total;
+        long imported;
+        long failed;
+        final List<RowError> errors = new ArrayList<>();
+
+        void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+
+    public record RowError(long line, String message) {
+    }
+
+    public record Result(long total, long imported, long failed, long elapsedMillis, double rowsPerSecond,
+                         List<RowError> errors) {
+    }
+}
@@ -0,0 +1,222 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.entity.AppUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Case-insensitive prefix search over usernames or emails with keyset pagination.
+ * <p>
+ * Matching runs on the normalized (trimmed, lower-cased) columns, which already carry
+ * unique indexes. A prefix becomes the index range {@code [prefix, successor(prefix))}, or
+ * an open-ended one when no successor exists, and the next page starts after the last
+ * normalized value returned, so every page is a bounded index range scan however deep the
+ * client pages. The {@code like} condition
+ * repeats the prefix test for collations where the range alone is not exact.
+ * <p>
+ * With {@code security.user-search.index=memory} (meant for the single-node H2 dev
+ * setup) the same ranges are served from sorted in-memory maps, loaded when the
+ * application is ready and updated from this node's {@link UserChangedEvent}s.
+ */
+@Service
+public class UserSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchService.class);
+
+    private static final String COLUMNS = "select id, username, email, role, enabled, " +
+            "username_normalized, email_normalized from users ";
+    private static final RowMapper<UserSummary> SUMMARY_MAPPER = (rs, rowNum) -> new UserSummary(
+            rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getBoolean(5));
+
+    public enum Field {
+        USERNAME("username_normalized"),
+        EMAIL("email_normalized");
+
+        private final String column;
+
+        Field(String column) {
+            this.column = column;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean memoryIndex;
+    private final int maxPageSize;
+
+    // Normalized value -> user, in the same order as the database index
+    private final NavigableMap<String, UserSummary> byUsername = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, UserSummary> byEmail = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded;
+
+    public UserSearchService(DataSource dataSource,
+                             @Value("${security.user-search.index:database}") String index,
+                             @Value("${security.user-search.max-page-size:100}") int maxPageSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.memoryIndex = "memory".equalsIgnoreCase(index);
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * One page of users whose username or email starts with {@code prefix}, ignoring case.
+     *
+     * @param cursor the {@code next} value of the previous page, or {@code null} for the first
+     * @throws IllegalArgumentException if the prefix is blank, the limit out of range or the cursor invalid
+     */
+    public Page search(Field field, String prefix, String cursor, int limit) {
+        String normalizedPrefix = AppUser.normalize(prefix);
+        if (normalizedPrefix == null || normalizedPrefix.isEmpty()) {
+            throw new IllegalArgumentException("A search prefix is required");
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+        String after = cursor == null ? null : decodeCursor(cursor);
+        if (after != null && !after.startsWith(normalizedPrefix)) {
+            throw new IllegalArgumentException("The cursor does not belong to this search");
+        }
+
+        // One extra row tells whether there is a next page
+        List<Row> rows = memoryIndex && loaded
+                ? searchMemory(field, normalizedPrefix, after, limit + 1)
+                : searchDatabase(field, normalizedPrefix, after, limit + 1);
+
+        boolean more = rows.size() > limit;
+        List<UserSummary> users = new ArrayList<>(Math.min(rows.size(), limit));
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            users.add(rows.get(i).user());
+        }
+        String next = more ? encodeCursor(rows.get(limit - 1).key()) : null;
+        return new Page(users, next);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!memoryIndex) {
+            return;
+        }
+        long start = System.nanoTime();
+        jdbcTemplate.query(COLUMNS + "where username_normalized is not null and email_normalized is not null",
+                (RowCallbackHandler) rs -> index(SUMMARY_MAPPER.mapRow(rs, 0), rs.getString(6), rs.getString(7)));
+        loaded = true;
+        log.info("Loaded user search index with {} users in {} ms", byUsername.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!memoryIndex) {
+            return;
+        }
+        // Role and status live in the summary, so every change re-reads the row
+        jdbcTemplate.query(COLUMNS + "where username = ?", (RowCallbackHandler) rs -> index(
+                SUMMARY_MAPPER.mapRow(rs, 0), rs.getString(6), rs.getString(7)), event.username());
+    }
+
+    private List<Row> searchDatabase(Field field, String prefix, String after, int limit) {
+        String upper = successor(prefix);
+        String sql = COLUMNS + "where " + field.column + " >= ? and "
+                + (upper == null ? "" : field.column + " < ? and ")
+                + field.column + " like ? escape '\\' "
+                + (after == null ? "" : "and " + field.column + " > ? ")
+                + "order by " + field.column + " limit ?";
+        List<Object> args = new ArrayList<>(5);
+        args.add(prefix);
+        if (upper != null) {
+            args.add(upper);
+        }
+        args.add(likePattern(prefix));
+        if (after != null) {
+            args.add(after);
+        }
+        args.add(limit);
+        RowMapper<Row> mapper = (rs, rowNum) -> new Row(
+                field == Field.USERNAME ? rs.getString(6) : rs.getString(7), SUMMARY_MAPPER.mapRow(rs, rowNum));
+        return jdbcTemplate.query(sql, mapper, args.toArray());
+    }
+
+    private List<Row> searchMemory(Field field, String prefix, String after, int limit) {
+        NavigableMap<String, UserSummary> index = field == Field.USERNAME ? byUsername : byEmail;
+        String upper = successor(prefix);
+        NavigableMap<String, UserSummary> from = after == null
+                ? index.tailMap(prefix, true)
+                : index.tailMap(after, false);
+        NavigableMap<String, UserSummary> range = upper == null ? from : from.headMap(upper, false);
+        List<Row> rows = new ArrayList<>(limit);
+        for (Map.Entry<String, UserSummary> entry : range.entrySet()) {
+            if (rows.size() == limit) {
+                break;
+            }
+            rows.add(new Row(entry.getKey(), entry.getValue()));
+        }
+        return rows;
+    }
+
+    private void index(UserSummary user, String normalizedUsername, String normalizedEmail) {
+        if (normalizedUsername == null || normalizedEmail == null) {
+            return;
+        }
+        // A changed email leaves its old key behind; drop it so stale entries never match
+        UserSummary previous = byUsername.put(normalizedUsername, user);
+        if (previous != null && !previous.email().equalsIgnoreCase(user.email())) {
+            byEmail.remove(AppUser.normalize(previous.email()));
+        }
+        byEmail.put(normalizedEmail, user);
+    }
+
+    // The smallest string greater than every string starting with the prefix. Trailing
+    // U+FFFF chars cannot be incremented and are dropped first; a prefix made only of them
+    // has no successor, and null means the range has no upper end
+    static String successor(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    private static String likePattern(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static String encodeCursor(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private record Row(String key, UserSummary user) {
+    }
+
+    public record UserSummary(long id, String username, String email, String role, boolean enabled) {
+    }
+
+    public record Page(List<UserSummary> users, String next) {
+    }
+}
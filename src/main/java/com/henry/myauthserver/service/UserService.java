@@ -3,30 +3,46 @@ package com.henry.myauthserver.service;
 import com.henry.myauthserver.dto.RegistrationRequest;
 import com.henry.myauthserver.entity.AppUser;
 import com.henry.myauthserver.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Locale;
+
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserAvailabilityService availabilityService;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       ApplicationEventPublisher eventPublisher, UserAvailabilityService availabilityService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
+        this.availabilityService = availabilityService;
     }
 
     @Transactional
     public AppUser registerUser(RegistrationRequest request) {
-        // Check if the username exists
-        if (userRepository.existsByUsername(request.getUsername())) {
+        // Names the availability filter has never seen go straight to the insert; likely
+        // duplicates are confirmed first so they fail before paying for the password hash
+        if (!availabilityService.isUsernameAvailable(request.getUsername())) {
             throw new RuntimeException("Username already exists");
         }
-
-        // Check if email exists
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (!availabilityService.isEmailAvailable(request.getEmail())) {
             throw new RuntimeException("Email already exists");
         }
 
@@ -38,10 +54,95 @@ public class UserService {
         user.setEnabled(true);
         user.setRole("USER");
 
-        return userRepository.save(user);
+        // A single INSERT: the case-insensitive unique constraints on the normalized
+        // columns reject duplicates, with no check-then-insert race window
+        AppUser saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateUserException(e);
+        }
+        publish(saved, UserChangedEvent.Type.REGISTERED);
+        return saved;
+    }
+
+    @Transactional
+    public void updatePasswordHash(String username, String encodedPassword) {
+        AppUser user = findUser(username);
+        user.setPassword(encodedPassword);
+        userRepository.save(user);
+        publish(user, UserChangedEvent.Type.PASSWORD_CHANGED);
+    }
+
+    @Transactional
+    public void changeRole(String username, String role) {
+        AppUser user = findUser(username);
+        user.setRole(role);
+        userRepository.save(user);
+        publish(user, UserChangedEvent.Type.ROLE_CHANGED);
+    }
+
+    @Transactional
+    public void setEnabled(String username, boolean enabled) {
+        AppUser user = findUser(username);
+        user.setEnabled(enabled);
+        userRepository.save(user);
+        publish(user, enabled ? UserChangedEvent.Type.ENABLED : UserChangedEvent.Type.DISABLED);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillNormalizedColumns() {
+        try {
+            int updated = userRepository.backfillNormalizedColumns();
+            if (updated > 0) {
+                log.info("Backfilled normalized username/email for {} users", updated);
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Could not backfill normalized username/email, existing users differ only by case: {}",
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private AppUser findUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    }
+
+    private static RuntimeException duplicateUserException(DataIntegrityViolationException e) {
+        String violation = describeViolation(e);
+        boolean username = violation.contains("username_normalized");
+        boolean email = !username && violation.contains("email_normalized");
+        if (!username && !email) {
+            // Original case-sensitive constraints have generated names, fall back on the column
+            username = violation.contains("(username)") || violation.contains("(username ");
+            email = !username && (violation.contains("(email)") || violation.contains("(email "));
+        }
+        if (username) {
+            return new RuntimeException("Username already exists");
+        }
+        if (email) {
+            return new RuntimeException("Email already exists");
+        }
+        return e;
+    }
+
+    // Constraint names and driver messages differ between H2 and PostgreSQL, so match on
+    // the constraint/column names found anywhere in the cause chain
+    private static String describeViolation(Throwable e) {
+        StringBuilder violation = new StringBuilder();
+        for (Throwable cause = e; cause != null && cause.getCause() != cause; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException constraintViolation
+                    && constraintViolation.getConstraintName() != null) {
+                violation.append(constraintViolation.getConstraintName()).append(' ');
+            }
+            if (cause.getMessage() != null) {
+                violation.append(cause.getMessage()).append(' ');
+            }
+        }
+        return violation.toString().toLowerCase(Locale.ROOT);
     }
 
-    public long getUserCount() {
-        return userRepository.count();
+    private void publish(AppUser user, UserChangedEvent.Type type) {
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername(), user.getEmail(), type));
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.henry.myauthserver.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket holding up to {@code capacity} tokens and regaining one every
+ * {@code refillInterval}.
+ * <p>
+ * Implemented as the generic cell rate algorithm: the whole state is the time at which
+ * the bucket would be full again, kept in a single {@link AtomicLong} and advanced with
+ * CAS, so there is nothing to refill on a timer and no lock. Times are
+ * {@link System#nanoTime()} values passed in by the caller.
+ */
+public class TokenBucket {
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(long capacity, Duration refillInterval, long nowNanos) {
+        this.refillNanos = refillInterval.toNanos();
+        this.burstNanos = capacity * refillNanos;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /** A bucket with no tokens left, as if its whole burst had just been taken. */
+    public static TokenBucket drained(long capacity, Duration refillInterval, long nowNanos) {
+        TokenBucket bucket = new TokenBucket(capacity, refillInterval, nowNanos);
+        bucket.fullAt.set(nowNanos + bucket.burstNanos);
+        return bucket;
+    }
+
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() <= nowNanos;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + refillNanos;
+            long wait = next - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
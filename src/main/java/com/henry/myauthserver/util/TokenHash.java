@@ -0,0 +1,28 @@
+package com.henry.myauthserver.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 digests of token values, used wherever a token must be looked up or
+ * remembered without indexing or keeping the bearer secret itself.
+ */
+public final class TokenHash {
+
+    private TokenHash() {
+    }
+
+    public static String sha256(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
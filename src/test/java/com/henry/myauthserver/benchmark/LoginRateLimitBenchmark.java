@@ -0,0 +1,100 @@
+package com.henry.myauthserver.benchmark;
+
+import com.henry.myauthserver.security.LoginRateLimitFilter;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures what the login rate limiter adds per request when many threads post logins
+ * for a large set of client IPs and usernames, compared with calling the rest of the
+ * chain directly. Limits are high enough that no request is rejected, so both runs do the
+ * same downstream work. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class LoginRateLimitBenchmark {
+
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int DISTINCT_CLIENTS = 50_000;
+    private static final int WARMUP_REQUESTS_PER_THREAD = 200_000;
+    private static final int MEASURED_REQUESTS_PER_THREAD = 1_000_000;
+
+    @Test
+    void filterOverheadUnderConcurrentLogins() throws Exception {
+        // Mock requests are not thread-safe, so each thread posts for its own clients
+        List<List<MockHttpServletRequest>> requests = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            List<MockHttpServletRequest> clients = new ArrayList<>();
+            for (int i = t; i < DISTINCT_CLIENTS; i += THREADS) {
+                MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+                request.setRemoteAddr("10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255));
+                request.setParameter("username", "user-" + i);
+                clients.add(request);
+            }
+            requests.add(clients);
+        }
+
+        LoginRateLimitFilter.Limit unreachable = new LoginRateLimitFilter.Limit(1_000_000_000L, Duration.ofMillis(1));
+        LoginRateLimitFilter filter = new LoginRateLimitFilter(unreachable, unreachable, unreachable,
+                DISTINCT_CLIENTS * 2L);
+        LongAdder passed = new LongAdder();
+        FilterChain downstream = (request, response) -> passed.increment();
+
+        run(requests, (request, response) -> downstream.doFilter(request, response), WARMUP_REQUESTS_PER_THREAD);
+        run(requests, filter::doFilter, WARMUP_REQUESTS_PER_THREAD);
+        passed.reset();
+
+        double baseline = run(requests, (request, response) -> downstream.doFilter(request, response),
+                MEASURED_REQUESTS_PER_THREAD);
+        double limited = run(requests, filter::doFilter, MEASURED_REQUESTS_PER_THREAD);
+
+        assertEquals(2L * THREADS * MEASURED_REQUESTS_PER_THREAD, passed.sum());
+        System.out.printf("%d threads, %,d distinct clients%n", THREADS, DISTINCT_CLIENTS);
+        System.out.printf("Without limiter: %,.0f requests/s%n", baseline);
+        System.out.printf("With limiter:    %,.0f requests/s (%.0f ns added per request per thread)%n",
+                limited, (THREADS * 1e9 / limited) - (THREADS * 1e9 / baseline));
+    }
+
+    private double run(List<List<MockHttpServletRequest>> requests, Handler handler, int requestsPerThread)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (List<MockHttpServletRequest> clients : requests) {
+                tasks.add(() -> {
+                    // The filter only writes to the response when it rejects
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        handler.handle(clients.get(i % clients.size()), response);
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            return (double) THREADS * requestsPerThread * 1e9 / (System.nanoTime() - start);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception;
+    }
+}
@@ -0,0 +1,98 @@
+package com.henry.myauthserver.benchmark;
+
+import com.henry.myauthserver.repository.RevokedTokenRepository;
+import com.henry.myauthserver.security.BoundedInMemoryOAuth2AuthorizationService;
+import com.henry.myauthserver.security.TokenIntrospectionCache;
+import com.henry.myauthserver.security.TokenRevocationList;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Introspects a working set of reference tokens with and without the result cache on a
+ * single thread, so the rates are per core. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class TokenIntrospectionBenchmark {
+
+    private static final int ACTIVE_TOKENS = 10_000;
+    private static final int WARMUP_REQUESTS = 50_000;
+    private static final int MEASURED_REQUESTS = 500_000;
+
+    @Test
+    void cachedVersusUncachedIntrospection() {
+        RegisteredClient registeredClient = RegisteredClient.withId(UUID.randomUUID().toString())
+                .clientId("resource-server")
+                .clientSecret("{noop}secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scope("read")
+                .build();
+        InMemoryRegisteredClientRepository clients = new InMemoryRegisteredClientRepository(registeredClient);
+        BoundedInMemoryOAuth2AuthorizationService store =
+                new BoundedInMemoryOAuth2AuthorizationService(ACTIVE_TOKENS * 2, Duration.ofMinutes(10), event -> { });
+
+        String[] tokens = new String[ACTIVE_TOKENS];
+        Instant issuedAt = Instant.now();
+        for (int i = 0; i < ACTIVE_TOKENS; i++) {
+            tokens[i] = UUID.randomUUID().toString();
+            store.save(OAuth2Authorization.withRegisteredClient(registeredClient)
+                    .id(UUID.randomUUID().toString())
+                    .principalName("resource-server")
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokens[i],
+                            issuedAt, issuedAt.plus(Duration.ofMinutes(30)), Set.of("read")))
+                    .build());
+        }
+
+        OAuth2ClientAuthenticationToken client = new OAuth2ClientAuthenticationToken(
+                registeredClient, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, "secret");
+        AuthenticationProvider uncached = new OAuth2TokenIntrospectionAuthenticationProvider(clients, store);
+        TokenRevocationList revocationList = new TokenRevocationList(
+                mock(RevokedTokenRepository.class), 500, Duration.ofMinutes(1), ACTIVE_TOKENS, 0.01);
+        AuthenticationProvider cached = new TokenIntrospectionCache(
+                uncached, revocationList, ACTIVE_TOKENS, Duration.ofSeconds(30)).asAuthenticationProvider();
+
+        double uncachedRate = measure(uncached, client, tokens);
+        double cachedRate = measure(cached, client, tokens);
+
+        System.out.printf("Uncached: %,.0f introspections/s%n", uncachedRate);
+        System.out.printf("Cached:   %,.0f introspections/s (%.1fx)%n", cachedRate, cachedRate / uncachedRate);
+    }
+
+    private double measure(AuthenticationProvider provider, OAuth2ClientAuthenticationToken client, String[] tokens) {
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            introspect(provider, client, tokens);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            introspect(provider, client, tokens);
+        }
+        return MEASURED_REQUESTS * 1e9 / (System.nanoTime() - start);
+    }
+
+    private void introspect(AuthenticationProvider provider, OAuth2ClientAuthenticationToken client, String[] tokens) {
+        String token = tokens[ThreadLocalRandom.current().nextInt(tokens.length)];
+        OAuth2TokenIntrospectionAuthenticationToken result = (OAuth2TokenIntrospectionAuthenticationToken)
+                provider.authenticate(new OAuth2TokenIntrospectionAuthenticationToken(token, client, null, null));
+        assertTrue(result.getTokenClaims().isActive());
+    }
+}
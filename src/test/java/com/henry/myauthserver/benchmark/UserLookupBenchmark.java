@@ -0,0 +1,97 @@
+package com.henry.myauthserver.benchmark;
+
+import com.henry.myauthserver.entity.AppUser;
+import com.henry.myauthserver.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the authentication lookup through the full {@code AppUser} entity with the
+ * {@code UserCredentials} projection. Each lookup runs in its own persistence context,
+ * as it does per login request. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserLookupBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int WARMUP_ROUNDS = 5_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<String> usernames = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        List<AppUser> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            AppUser user = new AppUser();
+            user.setUsername("bench-user-" + i);
+            user.setEmail("bench-user-" + i + "@example.com");
+            user.setPassword("{bcrypt}$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z2Y6iU3nY0S2bVbVhbQ1Lxi.");
+            users.add(user);
+            usernames.add(user.getUsername());
+        }
+        userRepository.saveAll(users);
+    }
+
+    @Test
+    void entityVersusProjectionLookup() {
+        Result entity = measure("entity (findByUsername)",
+                username -> userRepository.findByUsername(username).orElseThrow());
+        Result projection = measure("projection (findCredentialsByUsername)",
+                username -> userRepository.findCredentialsByUsername(username).orElseThrow());
+
+        System.out.println(entity);
+        System.out.println(projection);
+        System.out.printf("projection allocates %.1f%% of entity bytes, latency %.1f%%%n",
+                100.0 * projection.bytesPerLookup() / entity.bytesPerLookup(),
+                100.0 * projection.nanosPerLookup() / entity.nanosPerLookup());
+
+        assertTrue(projection.bytesPerLookup() > 0 && entity.bytesPerLookup() > 0);
+    }
+
+    private Result measure(String name, Consumer<String> lookup) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            lookup.accept(usernames.get(i % USERS));
+        }
+
+        long bytesBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            lookup.accept(usernames.get(i % USERS));
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+        return new Result(name, elapsed / (double) MEASURED_ROUNDS, allocated / (double) MEASURED_ROUNDS);
+    }
+
+    private record Result(String name, double nanosPerLookup, double bytesPerLookup) {
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %10.1f us/lookup %10.0f bytes/lookup",
+                    name, nanosPerLookup / 1_000.0, bytesPerLookup);
+        }
+    }
+}
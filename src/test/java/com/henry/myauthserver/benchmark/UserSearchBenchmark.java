@@ -0,0 +1,144 @@
+package com.henry.myauthserver.benchmark;
+
+import com.henry.myauthserver.service.UserSearchService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures admin prefix search latency over a million users in an in-memory H2 database,
+ * through the database indexes and through the in-memory index, and checks the p99 of
+ * each against its target. Every search pages twice, as support staff typically do. Run
+ * with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserSearchBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int WARMUP_SEARCHES = 5_000;
+    private static final int MEASURED_SEARCHES = 20_000;
+    private static final int PAGE_SIZE = 20;
+
+    private static final double DATABASE_P99_TARGET_MILLIS = 25;
+    private static final double MEMORY_P99_TARGET_MILLIS = 2;
+
+    private EmbeddedDatabase database;
+    private final List<String> prefixes = new ArrayList<>();
+
+    @BeforeAll
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table users (id bigint auto_increment primary key, username varchar(50), " +
+                "email varchar(255), role varchar(255), enabled boolean, username_normalized varchar(50), " +
+                "email_normalized varchar(255), constraint uk_users_username_normalized unique (username_normalized), " +
+                "constraint uk_users_email_normalized unique (email_normalized))");
+
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            String username = randomName(random) + i;
+            String email = username + "@example.com";
+            batch.add(new Object[]{username, email, username, email});
+            if (batch.size() == 10_000) {
+                insert(jdbcTemplate, batch);
+                batch.clear();
+            }
+            // Two- to four-letter prefixes, as typed into a search box
+            if (i % 97 == 0) {
+                prefixes.add(username.substring(0, 2 + random.nextInt(3)));
+            }
+        }
+        insert(jdbcTemplate, batch);
+    }
+
+    @AfterAll
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void databaseVersusMemoryIndexSearch() {
+        UserSearchService databaseIndex = new UserSearchService(database, "database", 100);
+        UserSearchService memoryIndex = new UserSearchService(database, "memory", 100);
+        long loadStart = System.nanoTime();
+        memoryIndex.load();
+        long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+
+        Result fromDatabase = measure("database index", databaseIndex);
+        Result fromMemory = measure("memory index", memoryIndex);
+
+        System.out.println(fromDatabase);
+        System.out.println(fromMemory);
+        System.out.printf("memory index loaded %d users in %d ms%n", USERS, loadMillis);
+
+        assertTrue(fromDatabase.p99Millis() < DATABASE_P99_TARGET_MILLIS,
+                "database p99 " + fromDatabase.p99Millis() + " ms over target");
+        assertTrue(fromMemory.p99Millis() < MEMORY_P99_TARGET_MILLIS,
+                "memory p99 " + fromMemory.p99Millis() + " ms over target");
+    }
+
+    private Result measure(String name, UserSearchService searchService) {
+        for (int i = 0; i < WARMUP_SEARCHES; i++) {
+            searchTwoPages(searchService, prefixes.get(i % prefixes.size()));
+        }
+
+        long[] nanos = new long[MEASURED_SEARCHES];
+        for (int i = 0; i < MEASURED_SEARCHES; i++) {
+            long start = System.nanoTime();
+            searchTwoPages(searchService, prefixes.get(i % prefixes.size()));
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new Result(name, percentileMillis(nanos, 0.50), percentileMillis(nanos, 0.99),
+                nanos[nanos.length - 1] / 1_000_000.0);
+    }
+
+    private static void searchTwoPages(UserSearchService searchService, String prefix) {
+        UserSearchService.Page page = searchService.search(UserSearchService.Field.USERNAME, prefix, null, PAGE_SIZE);
+        if (page.next() != null) {
+            searchService.search(UserSearchService.Field.USERNAME, prefix, page.next(), PAGE_SIZE);
+        }
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("insert into users (username, email, role, enabled, username_normalized, " +
+                "email_normalized) values (?, ?, 'USER', true, ?, ?)", batch);
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[6];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(name);
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        return sortedNanos[(int) Math.ceil(percentile * sortedNanos.length) - 1] / 1_000_000.0;
+    }
+
+    private record Result(String name, double p50Millis, double p99Millis, double maxMillis) {
+        @Override
+        public String toString() {
+            return String.format("%-15s p50 %7.3f ms   p99 %7.3f ms   max %7.3f ms", name, p50Millis, p99Millis, maxMillis);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.henry.myauthserver.controller;
+
+import com.henry.myauthserver.security.RevocableOAuth2AuthorizationService;
+import com.henry.myauthserver.service.OperationalStatsService;
+import com.henry.myauthserver.service.UserExportService;
+import com.henry.myauthserver.service.UserImportService;
+import com.henry.myauthserver.service.UserSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdminControllerTest {
+
+    @Mock
+    private RevocableOAuth2AuthorizationService authorizationService;
+
+    @Mock
+    private UserImportService userImportService;
+
+    @Mock
+    private UserExportService userExportService;
+
+    @Mock
+    private UserSearchService userSearchService;
+
+    @Mock
+    private OperationalStatsService statsService;
+
+    @InjectMocks
+    private AdminController adminController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(adminController).build();
+    }
+
+    @Test
+    void revokeSessions_ReturnsNumberOfRevokedAuthorizations() throws Exception {
+        // Given
+        when(authorizationService.revokeAll("testuser")).thenReturn(3);
+
+        // When & Then
+        mockMvc.perform(delete("/api/admin/users/testuser/sessions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("testuser"))
+                .andExpect(jsonPath("$.revokedAuthorizations").value(3));
+    }
+
+    @Test
+    void importUsers_Csv_ReturnsImportSummary() throws Exception {
+        // Given
+        when(userImportService.importUsers(any(InputStream.class), eq(UserImportService.Format.CSV)))
+                .thenReturn(new UserImportService.Result(2, 1, 1, 40, 50.0,
+                        List.of(new UserImportService.RowError(3, "Username already exists"))));
+
+        // When & Then
+        mockMvc.perform(post("/api/admin/users/import")
+                        .contentType("text/csv")
+                        .content("username,email,password\nalice,alice@example.com,password123\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    @Test
+    void importUsers_UnsupportedContentType_Returns415() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/api/admin/users/import")
+                        .contentType(MediaType.APPLICATION_XML)
+                        .content("<users/>"))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(jsonPath("$.error").exists());
+        verifyNoInteractions(userImportService);
+    }
+
+    @Test
+    void exportUsers_AcceptsGzip_StreamsCompressedNdjson() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1,\"username\":\"alice\"}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(userExportService).exportUsers(any(OutputStream.class));
+
+        // When
+        MvcResult started = mockMvc.perform(get("/api/admin/users/export").header("Accept-Encoding", "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        // Then
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("{\"id\":1,\"username\":\"alice\"}\n", new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void searchUsers_ReturnsPageWithCursor() throws Exception {
+        // Given
+        when(userSearchService.search(UserSearchService.Field.EMAIL, "ali", null, 1))
+                .thenReturn(new UserSearchService.Page(
+                        List.of(new UserSearchService.UserSummary(7, "alice", "alice@example.com", "USER", true)),
+                        "YWxpY2U"));
+
+        // When & Then
+        mockMvc.perform(get("/api/admin/users").param("prefix", "ali").param("field", "email").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].username").value("alice"))
+                .andExpect(jsonPath("$.next").value("YWxpY2U"));
+    }
+
+    @Test
+    void searchUsers_InvalidLimit_Returns400() throws Exception {
+        // Given
+        when(userSearchService.search(UserSearchService.Field.USERNAME, "ali", null, 500))
+                .thenThrow(new IllegalArgumentException("limit must be between 1 and 100"));
+
+        // When & Then
+        mockMvc.perform(get("/api/admin/users").param("prefix", "ali").param("limit", "500"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("limit must be between 1 and 100"));
+    }
+
+    @Test
+    void stats_ReturnsMaintainedCounters() throws Exception {
+        // Given
+        when(statsService.getStats()).thenReturn(new OperationalStatsService.Stats(1_000, 2, 30, 42, null,
+                new OperationalStatsService.Pool(3, 7, 10, 10, 0), null));
+
+        // When & Then
+        mockMvc.perform(get("/api/admin/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users").value(1_000))
+                .andExpect(jsonPath("$.registrationsLastHour").value(30))
+                .andExpect(jsonPath("$.activeAuthorizations").value(42))
+                .andExpect(jsonPath("$.connectionPool.active").value(3));
+    }
+}
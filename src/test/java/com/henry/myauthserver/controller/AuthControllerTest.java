@@ -3,6 +3,9 @@ package com.henry.myauthserver.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.henry.myauthserver.dto.RegistrationRequest;
 import com.henry.myauthserver.entity.AppUser;
+import com.henry.myauthserver.security.PasswordHashingSaturatedException;
+import com.henry.myauthserver.service.OperationalStatsService;
+import com.henry.myauthserver.service.UserAvailabilityService;
 import com.henry.myauthserver.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,12 +13,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.env.Environment;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -25,6 +30,15 @@ class AuthControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private UserAvailabilityService availabilityService;
+
+    @Mock
+    private OperationalStatsService statsService;
+
+    @Mock
+    private Environment environment;
+
     @InjectMocks
     private AuthController authController;
 
@@ -101,6 +115,26 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.error").value("Email already exists"));
     }
 
+    @Test
+    void registerUser_HashingSaturated_ReturnsServiceUnavailable() throws Exception {
+        // Given
+        RegistrationRequest request = new RegistrationRequest();
+        request.setUsername("testuser");
+        request.setEmail("test@example.com");
+        request.setPassword("password123");
+
+        when(userService.registerUser(any(RegistrationRequest.class)))
+                .thenThrow(new PasswordHashingSaturatedException("Password hashing capacity exceeded", 2));
+
+        // When & Then
+        mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.error").value("Server is busy, please retry shortly"));
+    }
+
     @Test
     void registerUser_InvalidRequest_EmptyUsername() throws Exception {
         // Given
@@ -145,4 +179,66 @@ class AuthControllerTest {
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void checkAvailability_Username_ReturnsFilterAnswer() throws Exception {
+        // Given
+        when(availabilityService.isUsernameAvailable("newuser")).thenReturn(true);
+
+        // When & Then
+        mockMvc.perform(get("/api/auth/availability").param("username", "newuser"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("newuser"))
+                .andExpect(jsonPath("$.usernameAvailable").value(true))
+                .andExpect(jsonPath("$.emailAvailable").doesNotExist());
+    }
+
+    @Test
+    void checkAvailability_UsernameAndEmail_ReturnsBoth() throws Exception {
+        // Given
+        when(availabilityService.isUsernameAvailable("newuser")).thenReturn(true);
+        when(availabilityService.isEmailAvailable("taken@example.com")).thenReturn(false);
+
+        // When & Then
+        mockMvc.perform(get("/api/auth/availability")
+                .param("username", "newuser")
+                .param("email", "taken@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usernameAvailable").value(true))
+                .andExpect(jsonPath("$.emailAvailable").value(false));
+    }
+
+    @Test
+    void checkAvailability_NoParameters_ReturnsBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/auth/availability"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Username or email is required"));
+    }
+
+    @Test
+    void getDatabaseInfo_ReturnsMaintainedUserCount() throws Exception {
+        // Given
+        when(statsService.isDatabaseReachable()).thenReturn(true);
+        when(statsService.getUserCount()).thenReturn(1_000L);
+        when(environment.getActiveProfiles()).thenReturn(new String[]{"dev"});
+
+        // When & Then
+        mockMvc.perform(get("/api/auth/db-info"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userCount").value(1_000))
+                .andExpect(jsonPath("$.database").value("connected"))
+                .andExpect(jsonPath("$.profile").value("[dev]"));
+    }
+
+    @Test
+    void getDatabaseInfo_DatabaseUnreachable_Returns503() throws Exception {
+        // Given
+        when(statsService.isDatabaseReachable()).thenReturn(false);
+
+        // When & Then
+        mockMvc.perform(get("/api/auth/db-info"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("Database connection failed"));
+    }
 }
@@ -0,0 +1,189 @@
+package com.henry.myauthserver.controller;
+
+import com.henry.myauthserver.security.PasswordHashingSaturatedException;
+import com.henry.myauthserver.security.TokenIntrospectionCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenIntrospection;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenIntrospectionControllerTest {
+
+    private static final BCryptPasswordEncoder PASSWORD_ENCODER = new BCryptPasswordEncoder(4);
+
+    @Mock
+    private TokenIntrospectionCache introspectionCache;
+
+    @Mock
+    private RegisteredClientRepository registeredClientRepository;
+
+    @Mock
+    private OAuth2AuthorizationService authorizationService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        TokenIntrospectionController controller = new TokenIntrospectionController(introspectionCache,
+                registeredClientRepository, authorizationService, PASSWORD_ENCODER, 3);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void introspectBatch_NoCredentials_ReturnsUnauthorized() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/oauth2/introspect/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\": [\"t1\"]}"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string(HttpHeaders.WWW_AUTHENTICATE, "Basic"))
+                .andExpect(jsonPath("$.error").value("invalid_client"));
+
+        verifyNoInteractions(introspectionCache);
+    }
+
+    @Test
+    void introspectBatch_WrongSecret_ReturnsUnauthorized() throws Exception {
+        // Given
+        when(registeredClientRepository.findByClientId("resource-server")).thenReturn(confidentialClient());
+
+        // When & Then
+        mockMvc.perform(post("/oauth2/introspect/batch")
+                .header(HttpHeaders.AUTHORIZATION, basic("resource-server", "wrong"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\": [\"t1\"]}"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("invalid_client"));
+
+        verifyNoInteractions(introspectionCache);
+    }
+
+    @Test
+    void introspectBatch_PublicClient_ReturnsUnauthorized() throws Exception {
+        // Given
+        when(registeredClientRepository.findByClientId("spa")).thenReturn(RegisteredClient.withId("spa-id")
+                .clientId("spa")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:3000")
+                .build());
+
+        // When & Then
+        mockMvc.perform(post("/oauth2/introspect/batch")
+                .header(HttpHeaders.AUTHORIZATION, basic("spa", "anything"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\": [\"t1\"]}"))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(introspectionCache);
+    }
+
+    @Test
+    void introspectBatch_TooManyTokens_ReturnsBadRequest() throws Exception {
+        // Given
+        when(registeredClientRepository.findByClientId("resource-server")).thenReturn(confidentialClient());
+
+        // When & Then
+        mockMvc.perform(post("/oauth2/introspect/batch")
+                .header(HttpHeaders.AUTHORIZATION, basic("resource-server", "secret"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\": [\"t1\", \"t2\", \"t3\", \"t4\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("invalid_request"));
+
+        verifyNoInteractions(introspectionCache);
+    }
+
+    @Test
+    void introspectBatch_HashingPoolSaturated_ReturnsServiceUnavailable() throws Exception {
+        // Given
+        PasswordEncoder saturatedEncoder = mock(PasswordEncoder.class);
+        when(saturatedEncoder.matches(any(), any()))
+                .thenThrow(new PasswordHashingSaturatedException("Password hashing is saturated", 2));
+        TokenIntrospectionController controller = new TokenIntrospectionController(introspectionCache,
+                registeredClientRepository, authorizationService, saturatedEncoder, 3);
+        when(registeredClientRepository.findByClientId("resource-server")).thenReturn(confidentialClient());
+
+        // When & Then
+        MockMvcBuilders.standaloneSetup(controller).build()
+                .perform(post("/oauth2/introspect/batch")
+                        .header(HttpHeaders.AUTHORIZATION, basic("resource-server", "secret"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tokens\": [\"t1\"]}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                .andExpect(jsonPath("$.error").value("temporarily_unavailable"));
+
+        verifyNoInteractions(introspectionCache);
+    }
+
+    @Test
+    void introspectBatch_ReturnsResultsInRequestOrder() throws Exception {
+        // Given
+        Instant expiresAt = Instant.parse("2030-01-01T00:00:00Z");
+        when(registeredClientRepository.findByClientId("resource-server")).thenReturn(confidentialClient());
+        when(introspectionCache.introspect(any())).thenAnswer(invocation -> {
+            OAuth2TokenIntrospectionAuthenticationToken request = invocation.getArgument(0);
+            OAuth2TokenIntrospection claims = switch (request.getToken()) {
+                case "t1" -> OAuth2TokenIntrospection.builder(true).username("alice").expiresAt(expiresAt).build();
+                case "t3" -> OAuth2TokenIntrospection.builder(true).username("bob").build();
+                default -> OAuth2TokenIntrospection.builder().build();
+            };
+            return new OAuth2TokenIntrospectionAuthenticationToken(request.getToken(),
+                    (Authentication) request.getPrincipal(), claims);
+        });
+
+        // When & Then
+        mockMvc.perform(post("/oauth2/introspect/batch")
+                .header(HttpHeaders.AUTHORIZATION, basic("resource-server", "secret"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\": [\"t1\", \"t2\", \"t3\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(3))
+                .andExpect(jsonPath("$.results[0].username").value("alice"))
+                .andExpect(jsonPath("$.results[0].exp").value(expiresAt.getEpochSecond()))
+                .andExpect(jsonPath("$.results[1].active").value(false))
+                .andExpect(jsonPath("$.results[2].username").value("bob"));
+    }
+
+    private static RegisteredClient confidentialClient() {
+        return RegisteredClient.withId("resource-server-id")
+                .clientId("resource-server")
+                .clientSecret(PASSWORD_ENCODER.encode("secret"))
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+    }
+
+    private static String basic(String clientId, String secret) {
+        return "Basic " + Base64.getEncoder().encodeToString(
+                (clientId + ":" + secret).getBytes(StandardCharsets.UTF_8));
+    }
+}
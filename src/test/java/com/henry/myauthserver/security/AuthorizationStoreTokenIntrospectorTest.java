@@ -0,0 +1,91 @@
+package com.henry.myauthserver.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.resource.introspection.BadOpaqueTokenException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuthorizationStoreTokenIntrospectorTest {
+
+    @Mock
+    private OAuth2AuthorizationService authorizationService;
+
+    private AuthorizationStoreTokenIntrospector introspector;
+
+    @BeforeEach
+    void setUp() {
+        introspector = new AuthorizationStoreTokenIntrospector(authorizationService);
+    }
+
+    @Test
+    void introspect_ActiveToken_ReturnsPrincipalWithScopes() {
+        // Given
+        Instant now = Instant.now();
+        when(authorizationService.findByToken("reference-1", OAuth2TokenType.ACCESS_TOKEN))
+                .thenReturn(authorization(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "reference-1",
+                        now, now.plus(Duration.ofMinutes(30)), Set.of("openid", "profile"))));
+
+        // When
+        OAuth2AuthenticatedPrincipal principal = introspector.introspect("reference-1");
+
+        // Then
+        assertEquals("alice", principal.getName());
+        assertEquals("alice", principal.getAttribute("sub"));
+        assertTrue(principal.getAuthorities().contains(new SimpleGrantedAuthority("SCOPE_openid")));
+    }
+
+    @Test
+    void introspect_ExpiredToken_IsRejected() {
+        // Given
+        Instant issuedAt = Instant.now().minus(Duration.ofHours(1));
+        when(authorizationService.findByToken("reference-1", OAuth2TokenType.ACCESS_TOKEN))
+                .thenReturn(authorization(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "reference-1",
+                        issuedAt, issuedAt.plus(Duration.ofMinutes(30)), Set.of("openid"))));
+
+        // When & Then
+        assertThrows(BadOpaqueTokenException.class, () -> introspector.introspect("reference-1"));
+    }
+
+    @Test
+    void introspect_UnknownToken_IsRejected() {
+        // When & Then
+        assertThrows(BadOpaqueTokenException.class, () -> introspector.introspect("unknown"));
+    }
+
+    private static OAuth2Authorization authorization(OAuth2AccessToken accessToken) {
+        RegisteredClient registeredClient = RegisteredClient.withId("client-id")
+                .clientId("client")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:3000")
+                .scope("openid")
+                .build();
+        return OAuth2Authorization.withRegisteredClient(registeredClient)
+                .id("auth-1")
+                .principalName("alice")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .token(accessToken, metadata -> metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME,
+                        Map.of("client_id", "client")))
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.henry.myauthserver.security;
+
+import com.github.benmanes.caffeine.cache.Scheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedInMemoryOAuth2AuthorizationServiceTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final RegisteredClient registeredClient = RegisteredClient.withId("client-id")
+            .clientId("client")
+            .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("http://localhost:3000")
+            .scope("read")
+            .build();
+
+    private BoundedInMemoryOAuth2AuthorizationService service(long maxEntries) {
+        return new BoundedInMemoryOAuth2AuthorizationService(maxEntries, Duration.ofMinutes(10),
+                event -> { }, nanos::get, Scheduler.disabledScheduler(), Runnable::run);
+    }
+
+    @Test
+    void findByToken_UsesIndexForTokenType() {
+        // Given
+        BoundedInMemoryOAuth2AuthorizationService service = service(10);
+        service.save(authorization("auth-1", "access-1", "refresh-1"));
+
+        // When & Then
+        assertEquals("auth-1", service.findByToken("access-1", OAuth2TokenType.ACCESS_TOKEN).getId());
+        assertEquals("auth-1", service.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN).getId());
+        assertEquals("auth-1", service.findByToken("refresh-1", null).getId());
+        assertNull(service.findByToken("access-1", OAuth2TokenType.REFRESH_TOKEN));
+    }
+
+    @Test
+    void save_ReplacedTokens_NoLongerResolve() {
+        // Given
+        BoundedInMemoryOAuth2AuthorizationService service = service(10);
+        service.save(authorization("auth-1", "access-1", "refresh-1"));
+
+        // When
+        service.save(authorization("auth-1", "access-2", "refresh-1"));
+
+        // Then
+        assertNull(service.findByToken("access-1", OAuth2TokenType.ACCESS_TOKEN));
+        assertEquals("auth-1", service.findByToken("access-2", OAuth2TokenType.ACCESS_TOKEN).getId());
+        assertEquals("auth-1", service.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN).getId());
+    }
+
+    @Test
+    void remove_DropsAuthorizationAndIndexes() {
+        // Given
+        BoundedInMemoryOAuth2AuthorizationService service = service(10);
+        OAuth2Authorization authorization = authorization("auth-1", "access-1", "refresh-1");
+        service.save(authorization);
+
+        // When
+        service.remove(authorization);
+
+        // Then
+        assertNull(service.findById("auth-1"));
+        assertNull(service.findByToken("access-1", null));
+    }
+
+    @Test
+    void save_OverCapacity_EvictsEntries() {
+        // Given
+        BoundedInMemoryOAuth2AuthorizationService service = service(2);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            service.save(authorization("auth-" + i, "access-" + i, "refresh-" + i));
+        }
+
+        // Then
+        assertEquals(2, service.estimatedSize());
+    }
+
+    @Test
+    void findById_AfterLatestTokenExpiry_ReturnsNull() {
+        // Given
+        BoundedInMemoryOAuth2AuthorizationService service = service(10);
+        service.save(authorization("auth-1", "access-1", "refresh-1"));
+
+        // When - past the access token but not the refresh token
+        nanos.addAndGet(Duration.ofHours(1).toNanos());
+
+        // Then
+        assertNotNull(service.findById("auth-1"));
+
+        // When - past the refresh token
+        nanos.addAndGet(Duration.ofDays(1).toNanos());
+
+        // Then
+        assertNull(service.findById("auth-1"));
+        assertNull(service.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN));
+    }
+
+    @Test
+    void revokeRotatedRefreshToken_ReusedRotatedToken_RevokesTokenFamily() {
+        // Given
+        BoundedInMemoryOAuth2AuthorizationService service = service(10);
+        service.save(authorization("auth-1", "access-1", "refresh-1"));
+        service.save(authorization("auth-1", "access-2", "refresh-2"));
+        assertNull(service.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN));
+        assertNotNull(service.findById("auth-1"));
+
+        // When
+        boolean revoked = service.revokeRotatedRefreshToken("refresh-1");
+
+        // Then
+        assertTrue(revoked);
+        assertFalse(service.revokeRotatedRefreshToken("refresh-2"));
+        assertNull(service.findById("auth-1"));
+        assertNull(service.findByToken("refresh-2", OAuth2TokenType.REFRESH_TOKEN));
+    }
+
+    @Test
+    void revokeAll_RemovesOnlyThePrincipalsAuthorizations() {
+        // Given
+        BoundedInMemoryOAuth2AuthorizationService service = service(10);
+        service.save(authorization("auth-1", "access-1", "refresh-1"));
+        service.save(authorization("auth-2", "access-2", "refresh-2"));
+        service.save(authorization("auth-3", "access-3", "refresh-3", "other"));
+
+        // When
+        int revoked = service.revokeAll("user");
+
+        // Then
+        assertEquals(2, revoked);
+        assertNull(service.findById("auth-1"));
+        assertNull(service.findById("auth-2"));
+        assertNotNull(service.findById("auth-3"));
+        assertEquals(0, service.revokeAll("user"));
+    }
+
+    private OAuth2Authorization authorization(String id, String accessToken, String refreshToken) {
+        return authorization(id, accessToken, refreshToken, "user");
+    }
+
+    private OAuth2Authorization authorization(String id, String accessToken, String refreshToken,
+                                              String principalName) {
+        Instant now = Instant.now();
+        return OAuth2Authorization.withRegisteredClient(registeredClient)
+                .id(id)
+                .principalName(principalName)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .authorizedScopes(Set.of("read"))
+                .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, accessToken,
+                        now, now.plus(Duration.ofMinutes(30)), Set.of("read")))
+                .refreshToken(new OAuth2RefreshToken(refreshToken, now, now.plus(Duration.ofDays(1))))
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.henry.myauthserver.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (encoder != null) {
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    void encodeAndMatches_DelegateToWrappedEncoder() {
+        // Given
+        encoder = new BoundedPasswordEncoder(new ReversingEncoder(null), 2, 4, 1);
+
+        // When
+        String encoded = encoder.encode("secret");
+
+        // Then
+        assertEquals("terces", encoded);
+        assertTrue(encoder.matches("secret", encoded));
+        assertFalse(encoder.matches("other", encoded));
+        assertEquals(3, encoder.getStats().completed());
+    }
+
+    @Test
+    void encode_PoolAndQueueFull_RejectsImmediately() throws Exception {
+        // Given - one worker busy and one task queued
+        encoder = new BoundedPasswordEncoder(new ReversingEncoder(release), 1, 1, 5);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        awaitStats(1, 0);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        awaitStats(1, 1);
+
+        // When & Then
+        PasswordHashingSaturatedException exception = assertThrows(PasswordHashingSaturatedException.class,
+                () -> encoder.encode("third"));
+        assertEquals(5, exception.getRetryAfterSeconds());
+        assertEquals(1, encoder.getStats().rejected());
+
+        release.countDown();
+        assertEquals("tsrif", running.get(5, TimeUnit.SECONDS));
+        assertEquals("dnoces", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void upgradeEncoding_DelegatesWithoutUsingPool() {
+        // Given
+        encoder = new BoundedPasswordEncoder(new ReversingEncoder(null), 1, 1, 1);
+
+        // When & Then
+        assertTrue(encoder.upgradeEncoding("legacy"));
+        assertEquals(0, encoder.getStats().completed());
+    }
+
+    private void awaitStats(int active, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            BoundedPasswordEncoder.Stats stats = encoder.getStats();
+            if (stats.active() == active && stats.queued() == queued) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Pool did not reach active=" + active + ", queued=" + queued);
+    }
+
+    private static class ReversingEncoder implements PasswordEncoder {
+        private final CountDownLatch gate;
+
+        ReversingEncoder(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new StringBuilder(rawPassword).reverse().toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return encodedPassword.startsWith("legacy");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.CacheInvalidation;
+import com.henry.myauthserver.repository.CacheInvalidationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationLogTest {
+
+    @Mock
+    private CacheInvalidationRepository invalidationRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CacheInvalidationLog invalidationLog;
+
+    @BeforeEach
+    void setUp() {
+        invalidationLog = new CacheInvalidationLog(invalidationRepository, transactionManager, 2,
+                Duration.ofMinutes(1), Duration.ofHours(1));
+    }
+
+    @Test
+    void publish_AppendsRowForCacheAndKey() {
+        // When
+        invalidationLog.publish("consent", "user");
+
+        // Then
+        ArgumentCaptor<CacheInvalidation> captor = ArgumentCaptor.forClass(CacheInvalidation.class);
+        verify(invalidationRepository).save(captor.capture());
+        verify(transactionManager).commit(any());
+        assertEquals("consent", captor.getValue().getCacheName());
+        assertEquals("user", captor.getValue().getCacheKey());
+        assertNotNull(captor.getValue().getInvalidatedAt());
+    }
+
+    @Test
+    void poll_ReadsInPagesAndDispatchesByCacheName() {
+        // Given
+        List<String> consents = new ArrayList<>();
+        invalidationLog.register("consent", consents::add);
+        when(invalidationRepository.findByInvalidatedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                any(Instant.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "consent", "alice"), row(2, "unknown", "x")));
+        when(invalidationRepository.findByInvalidatedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                any(Instant.class), eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(row(3, "consent", "bob")));
+
+        // When
+        invalidationLog.poll();
+
+        // Then
+        assertEquals(List.of("alice", "bob"), consents);
+    }
+
+    @Test
+    void poll_RowReadAgainWithinLag_IsDispatchedOnce() {
+        // Given
+        List<String> consents = new ArrayList<>();
+        invalidationLog.register("consent", consents::add);
+        when(invalidationRepository.findByInvalidatedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                any(Instant.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "consent", "alice")));
+
+        // When
+        invalidationLog.poll();
+        invalidationLog.poll();
+
+        // Then
+        assertEquals(List.of("alice"), consents);
+        ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+        verify(invalidationRepository, times(2)).findByInvalidatedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                since.capture(), eq(0L), any(Pageable.class));
+        assertTrue(since.getValue().isBefore(Instant.now().minus(Duration.ofSeconds(59))));
+    }
+
+    @Test
+    void purgeExpired_DeletesRowsOlderThanRetention() {
+        // Given
+        when(invalidationRepository.findIdsInvalidatedBefore(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(7L));
+
+        // When
+        invalidationLog.purgeExpired();
+
+        // Then
+        ArgumentCaptor<Instant> before = ArgumentCaptor.forClass(Instant.class);
+        verify(invalidationRepository).findIdsInvalidatedBefore(before.capture(), any(Pageable.class));
+        assertTrue(before.getValue().isBefore(Instant.now().minus(Duration.ofMinutes(59))));
+        verify(invalidationRepository).deleteAllByIdInBatch(List.of(7L));
+    }
+
+    @Test
+    void constructor_RetentionNotLongerThanLag_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> new CacheInvalidationLog(invalidationRepository,
+                transactionManager, 2, Duration.ofMinutes(1), Duration.ofMinutes(1)));
+    }
+
+    private static CacheInvalidation row(long id, String cacheName, String key) {
+        CacheInvalidation row = new CacheInvalidation(cacheName, key);
+        row.setId(id);
+        return row;
+    }
+}
@@ -0,0 +1,93 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.repository.RevokedTokenRepository;
+import com.henry.myauthserver.util.TokenHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingJwtDecoderTest {
+
+    @Mock
+    private JwtDecoder delegate;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationList revocationList;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = new TokenRevocationList(revokedTokenRepository, 100, Duration.ofMinutes(1), 100, 0.01);
+        decoder = new CachingJwtDecoder(delegate, revocationList, 100);
+    }
+
+    @Test
+    void decode_SameToken_VerifiesOnce() {
+        // Given
+        Jwt jwt = jwt("token-1", Instant.now().plus(Duration.ofMinutes(30)));
+        when(delegate.decode("token-1")).thenReturn(jwt);
+
+        // When
+        Jwt first = decoder.decode("token-1");
+        Jwt second = decoder.decode("token-1");
+
+        // Then
+        assertSame(jwt, first);
+        assertSame(jwt, second);
+        verify(delegate, times(1)).decode("token-1");
+        assertEquals(1, decoder.getStats().hits());
+    }
+
+    @Test
+    void decode_ExpiredCachedToken_GoesBackToDelegate() {
+        // Given
+        when(delegate.decode("token-1")).thenReturn(jwt("token-1", Instant.now().minusSeconds(1)));
+
+        // When
+        decoder.decode("token-1");
+        decoder.decode("token-1");
+
+        // Then
+        verify(delegate, times(2)).decode("token-1");
+    }
+
+    @Test
+    void decode_RevokedToken_IsRejectedEvenWhenCached() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        when(delegate.decode("token-1")).thenReturn(jwt("token-1", expiresAt));
+        decoder.decode("token-1");
+
+        // When
+        TokenInvalidatedEvent event = new TokenInvalidatedEvent(TokenHash.sha256("token-1"), expiresAt);
+        revocationList.onTokenInvalidated(event);
+        decoder.onTokenInvalidated(event);
+
+        // Then
+        assertThrows(BadJwtException.class, () -> decoder.decode("token-1"));
+        verify(delegate, times(1)).decode("token-1");
+    }
+
+    private Jwt jwt(String value, Instant expiresAt) {
+        return Jwt.withTokenValue(value)
+                .header("alg", "RS256")
+                .subject("user")
+                .issuedAt(expiresAt.minus(Duration.ofMinutes(30)))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,224 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.util.TokenHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientCredentialsTokenCacheTest {
+
+    @Mock
+    private AuthenticationProvider delegate;
+
+    @Mock
+    private OAuth2AuthorizationService authorizationService;
+
+    private ClientCredentialsTokenCache cache;
+    private AuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ClientCredentialsTokenCache(authorizationService, 100, Duration.ofMinutes(5));
+        provider = cache.wrap(delegate);
+    }
+
+    @Test
+    void authenticate_RepeatRequest_ReusesStillValidToken() {
+        // Given
+        RegisteredClient client = client(true);
+        OAuth2AccessToken token = token("token-1", Instant.now().plus(Duration.ofMinutes(30)));
+        when(delegate.authenticate(any())).thenReturn(issued(client, token));
+        when(authorizationService.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN))
+                .thenReturn(authorization(client, token));
+
+        // When
+        provider.authenticate(request(client, Set.of("read")));
+        OAuth2AccessTokenAuthenticationToken second =
+                (OAuth2AccessTokenAuthenticationToken) provider.authenticate(request(client, Set.of("read")));
+
+        // Then
+        assertEquals("token-1", second.getAccessToken().getTokenValue());
+        assertEquals(token.getExpiresAt(), second.getAccessToken().getExpiresAt());
+        verify(delegate, times(1)).authenticate(any());
+        assertEquals(1, cache.getStats().hits());
+    }
+
+    @Test
+    void authenticate_DifferentScopes_IssuesNewToken() {
+        // Given
+        RegisteredClient client = client(true);
+        when(delegate.authenticate(any()))
+                .thenReturn(issued(client, token("token-1", Instant.now().plus(Duration.ofMinutes(30)))));
+
+        // When
+        provider.authenticate(request(client, Set.of("read")));
+        provider.authenticate(request(client, Set.of("write")));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void authenticate_ClientWithoutReuse_AlwaysIssuesNewToken() {
+        // Given
+        RegisteredClient client = client(false);
+        when(delegate.authenticate(any()))
+                .thenReturn(issued(client, token("token-1", Instant.now().plus(Duration.ofMinutes(30)))));
+
+        // When
+        provider.authenticate(request(client, Set.of("read")));
+        provider.authenticate(request(client, Set.of("read")));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+        verifyNoInteractions(authorizationService);
+    }
+
+    @Test
+    void authenticate_TokenCloseToExpiry_IsNotReused() {
+        // Given
+        RegisteredClient client = client(true);
+        when(delegate.authenticate(any()))
+                .thenReturn(issued(client, token("token-1", Instant.now().plus(Duration.ofMinutes(2)))));
+
+        // When
+        provider.authenticate(request(client, Set.of("read")));
+        provider.authenticate(request(client, Set.of("read")));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void authenticate_TokenRevokedElsewhere_IssuesNewToken() {
+        // Given
+        RegisteredClient client = client(true);
+        when(delegate.authenticate(any()))
+                .thenReturn(issued(client, token("token-1", Instant.now().plus(Duration.ofMinutes(30)))));
+        when(authorizationService.findByToken("token-1", OAuth2TokenType.ACCESS_TOKEN)).thenReturn(null);
+
+        // When
+        provider.authenticate(request(client, Set.of("read")));
+        provider.authenticate(request(client, Set.of("read")));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void onTokenInvalidated_CachedToken_IsDropped() {
+        // Given
+        RegisteredClient client = client(true);
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        when(delegate.authenticate(any())).thenReturn(issued(client, token("token-1", expiresAt)));
+        provider.authenticate(request(client, Set.of("read")));
+
+        // When
+        cache.onTokenInvalidated(new TokenInvalidatedEvent(TokenHash.sha256("token-1"), expiresAt));
+        provider.authenticate(request(client, Set.of("read")));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+        verifyNoInteractions(authorizationService);
+    }
+
+    @Test
+    void authenticate_ClientLostScope_GoesToDelegate() {
+        // Given
+        RegisteredClient client = client(true);
+        when(delegate.authenticate(any()))
+                .thenReturn(issued(client, token("token-1", Instant.now().plus(Duration.ofMinutes(30)))));
+        provider.authenticate(request(client, Set.of("read")));
+        RegisteredClient withoutRead = RegisteredClient.from(client)
+                .scopes(scopes -> scopes.remove("read"))
+                .build();
+
+        // When
+        provider.authenticate(request(withoutRead, Set.of("read")));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+        verifyNoInteractions(authorizationService);
+    }
+
+    @Test
+    void authenticate_DpopProof_IsNeverAnsweredFromCache() {
+        // Given
+        RegisteredClient client = client(true);
+        when(delegate.authenticate(any()))
+                .thenReturn(issued(client, token("token-1", Instant.now().plus(Duration.ofMinutes(30)))));
+        provider.authenticate(request(client, Set.of("read")));
+
+        // When
+        provider.authenticate(new OAuth2ClientCredentialsAuthenticationToken(principal(client), Set.of("read"),
+                Map.of("dpop_proof", "proof-jwt")));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+        verifyNoInteractions(authorizationService);
+    }
+
+    private static RegisteredClient client(boolean reuse) {
+        return RegisteredClient.withId("client-id")
+                .clientId("service")
+                .clientSecret("{noop}secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scope("read")
+                .scope("write")
+                .clientSettings(ClientSettings.builder()
+                        .setting(ClientCredentialsTokenCache.REUSE_ACCESS_TOKENS, reuse)
+                        .build())
+                .build();
+    }
+
+    private static Authentication principal(RegisteredClient client) {
+        return new OAuth2ClientAuthenticationToken(client, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, "secret");
+    }
+
+    private static OAuth2ClientCredentialsAuthenticationToken request(RegisteredClient client, Set<String> scopes) {
+        return new OAuth2ClientCredentialsAuthenticationToken(principal(client), scopes, null);
+    }
+
+    private static OAuth2AccessToken token(String value, Instant expiresAt) {
+        return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, value,
+                Instant.now(), expiresAt, Set.of("read"));
+    }
+
+    private static OAuth2AccessTokenAuthenticationToken issued(RegisteredClient client, OAuth2AccessToken token) {
+        return new OAuth2AccessTokenAuthenticationToken(client, principal(client), token);
+    }
+
+    private static OAuth2Authorization authorization(RegisteredClient client, OAuth2AccessToken token) {
+        return OAuth2Authorization.withRegisteredClient(client)
+                .principalName("service")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .accessToken(token)
+                .build();
+    }
+}
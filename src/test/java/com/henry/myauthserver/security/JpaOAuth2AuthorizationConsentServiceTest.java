@@ -0,0 +1,163 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.OAuth2AuthorizationConsentEntity;
+import com.henry.myauthserver.repository.OAuth2AuthorizationConsentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsent;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaOAuth2AuthorizationConsentServiceTest {
+
+    @Mock
+    private OAuth2AuthorizationConsentRepository consentRepository;
+
+    @Mock
+    private RegisteredClientRepository registeredClientRepository;
+
+    @Mock
+    private CacheInvalidationLog invalidationLog;
+
+    private JpaOAuth2AuthorizationConsentService consentService;
+
+    @BeforeEach
+    void setUp() {
+        consentService = new JpaOAuth2AuthorizationConsentService(consentRepository, registeredClientRepository,
+                invalidationLog, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void findById_RepeatLookup_HitsDatabaseOnce() {
+        // Given
+        OAuth2AuthorizationConsentEntity entity = new OAuth2AuthorizationConsentEntity();
+        entity.setRegisteredClientId("client-id");
+        entity.setPrincipalName("user");
+        entity.setAuthorities("SCOPE_read,SCOPE_openid");
+        when(consentRepository.findById(any())).thenReturn(Optional.of(entity));
+        when(registeredClientRepository.findById("client-id")).thenReturn(registeredClient());
+
+        // When
+        OAuth2AuthorizationConsent first = consentService.findById("client-id", "user");
+        OAuth2AuthorizationConsent second = consentService.findById("client-id", "user");
+
+        // Then
+        assertEquals(first, second);
+        assertTrue(first.getScopes().contains("read"));
+        assertTrue(first.getScopes().contains("openid"));
+        verify(consentRepository, times(1)).findById(any());
+        assertEquals(1, consentService.getStats().hits());
+    }
+
+    @Test
+    void findById_NoConsent_DoesNotCacheAbsence() {
+        // Given - consent is granted on another node after the first lookup
+        OAuth2AuthorizationConsentEntity entity = new OAuth2AuthorizationConsentEntity();
+        entity.setRegisteredClientId("client-id");
+        entity.setPrincipalName("user");
+        entity.setAuthorities("SCOPE_read");
+        when(consentRepository.findById(any())).thenReturn(Optional.empty(), Optional.of(entity));
+        when(registeredClientRepository.findById("client-id")).thenReturn(registeredClient());
+
+        // When
+        OAuth2AuthorizationConsent first = consentService.findById("client-id", "user");
+        OAuth2AuthorizationConsent second = consentService.findById("client-id", "user");
+
+        // Then
+        assertNull(first);
+        assertNotNull(second);
+        verify(consentRepository, times(2)).findById(any());
+    }
+
+    @Test
+    void save_StoresAuthoritiesAndServesFromCache() {
+        // Given
+        OAuth2AuthorizationConsent consent = OAuth2AuthorizationConsent.withId("client-id", "user")
+                .authority(new SimpleGrantedAuthority("SCOPE_read"))
+                .build();
+
+        // When
+        consentService.save(consent);
+        OAuth2AuthorizationConsent result = consentService.findById("client-id", "user");
+
+        // Then
+        ArgumentCaptor<OAuth2AuthorizationConsentEntity> captor =
+                ArgumentCaptor.forClass(OAuth2AuthorizationConsentEntity.class);
+        verify(consentRepository).save(captor.capture());
+        assertEquals("SCOPE_read", captor.getValue().getAuthorities());
+        assertSame(consent, result);
+        verify(consentRepository, never()).findById(any());
+    }
+
+    @Test
+    void remove_DeletesAndForgetsConsent() {
+        // Given
+        OAuth2AuthorizationConsent consent = OAuth2AuthorizationConsent.withId("client-id", "user")
+                .authority(new SimpleGrantedAuthority("SCOPE_read"))
+                .build();
+        consentService.save(consent);
+
+        // When
+        consentService.remove(consent);
+
+        // Then
+        verify(consentRepository).deleteById(new OAuth2AuthorizationConsentEntity.ConsentId("client-id", "user"));
+        when(consentRepository.findById(any())).thenReturn(Optional.empty());
+        assertNull(consentService.findById("client-id", "user"));
+        verify(consentRepository).findById(any());
+        verify(invalidationLog, times(2)).publish(JpaOAuth2AuthorizationConsentService.CACHE_NAME, "user");
+    }
+
+    @Test
+    void invalidation_FromAnotherNode_DropsEveryConsentOfThatPrincipal() {
+        // Given
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.captor();
+        verify(invalidationLog).register(eq(JpaOAuth2AuthorizationConsentService.CACHE_NAME), listener.capture());
+        consentService.save(consent("client-id", "user"));
+        consentService.save(consent("other-client-id", "user"));
+        consentService.save(consent("client-id", "someone-else"));
+        when(consentRepository.findById(any())).thenReturn(Optional.empty());
+
+        // When
+        listener.getValue().accept("user");
+
+        // Then
+        assertNull(consentService.findById("client-id", "user"));
+        assertNull(consentService.findById("other-client-id", "user"));
+        assertNotNull(consentService.findById("client-id", "someone-else"));
+        verify(consentRepository, times(2)).findById(any());
+    }
+
+    private static OAuth2AuthorizationConsent consent(String registeredClientId, String principalName) {
+        return OAuth2AuthorizationConsent.withId(registeredClientId, principalName)
+                .authority(new SimpleGrantedAuthority("SCOPE_read"))
+                .build();
+    }
+
+    private RegisteredClient registeredClient() {
+        return RegisteredClient.withId("client-id")
+                .clientId("client")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:3000")
+                .scope("read")
+                .build();
+    }
+}
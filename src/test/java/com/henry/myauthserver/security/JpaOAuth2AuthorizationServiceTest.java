@@ -0,0 +1,287 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.OAuth2AuthorizationEntity;
+import com.henry.myauthserver.entity.RetiredRefreshTokenEntity;
+import com.henry.myauthserver.repository.AuthorizationTokenRef;
+import com.henry.myauthserver.repository.OAuth2AuthorizationRepository;
+import com.henry.myauthserver.repository.RetiredRefreshTokenRepository;
+import com.henry.myauthserver.util.TokenHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaOAuth2AuthorizationServiceTest {
+
+    @Mock
+    private OAuth2AuthorizationRepository authorizationRepository;
+
+    @Mock
+    private RetiredRefreshTokenRepository retiredRefreshTokenRepository;
+
+    @Mock
+    private RegisteredClientRepository registeredClientRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private JpaOAuth2AuthorizationService authorizationService;
+    private RegisteredClient registeredClient;
+
+    @BeforeEach
+    void setUp() {
+        authorizationService = new JpaOAuth2AuthorizationService(authorizationRepository,
+                retiredRefreshTokenRepository, registeredClientRepository, eventPublisher,
+                transactionManager, 2, Duration.ofMinutes(10));
+        registeredClient = RegisteredClient.withId("client-id")
+                .clientId("client")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:3000")
+                .scope("read")
+                .build();
+    }
+
+    @Test
+    void save_StoresHashedTokenColumnsAndLatestExpiry() {
+        // Given
+        Instant now = Instant.now();
+        OAuth2Authorization authorization = authorization(now);
+
+        // When
+        authorizationService.save(authorization);
+
+        // Then
+        ArgumentCaptor<OAuth2AuthorizationEntity> captor = ArgumentCaptor.forClass(OAuth2AuthorizationEntity.class);
+        verify(authorizationRepository).save(captor.capture());
+        OAuth2AuthorizationEntity entity = captor.getValue();
+        assertEquals("auth-1", entity.getId());
+        assertEquals("client-id", entity.getRegisteredClientId());
+        assertEquals(TokenHash.sha256("access-value"), entity.getAccessTokenHash());
+        assertEquals(TokenHash.sha256("refresh-value"), entity.getRefreshTokenHash());
+        assertEquals(64, entity.getAccessTokenHash().length());
+        assertEquals(now.plus(Duration.ofDays(1)), entity.getExpiresAt());
+    }
+
+    @Test
+    void findByToken_AccessToken_LooksUpByHashAndRebuildsAuthorization() {
+        // Given
+        Instant now = Instant.now();
+        authorizationService.save(authorization(now));
+        ArgumentCaptor<OAuth2AuthorizationEntity> captor = ArgumentCaptor.forClass(OAuth2AuthorizationEntity.class);
+        verify(authorizationRepository).save(captor.capture());
+        when(authorizationRepository.findByAccessTokenHash(TokenHash.sha256("access-value")))
+                .thenReturn(Optional.of(captor.getValue()));
+        when(registeredClientRepository.findById("client-id")).thenReturn(registeredClient);
+
+        // When
+        OAuth2Authorization result = authorizationService.findByToken("access-value", OAuth2TokenType.ACCESS_TOKEN);
+
+        // Then
+        assertNotNull(result);
+        assertEquals("user", result.getPrincipalName());
+        assertEquals("access-value", result.getAccessToken().getToken().getTokenValue());
+        assertEquals(Set.of("read"), result.getAccessToken().getToken().getScopes());
+        assertEquals("refresh-value", result.getRefreshToken().getToken().getTokenValue());
+        verify(authorizationRepository, never()).findByAnyTokenHash(anyString());
+    }
+
+    @Test
+    void save_InvalidatedAccessToken_PublishesEvent() {
+        // Given
+        Instant now = Instant.now();
+        OAuth2Authorization authorization = authorization(now);
+        OAuth2Authorization revoked = OAuth2Authorization.from(authorization)
+                .invalidate(authorization.getAccessToken().getToken())
+                .build();
+
+        // When
+        authorizationService.save(authorization);
+        authorizationService.save(revoked);
+
+        // Then
+        verify(eventPublisher).publishEvent(new TokenInvalidatedEvent(TokenHash.sha256("access-value"),
+                now.plus(Duration.ofMinutes(30))));
+    }
+
+    @Test
+    void findByToken_UnknownToken_ReturnsNull() {
+        // Given
+        when(authorizationRepository.findByAnyTokenHash(anyString())).thenReturn(Optional.empty());
+
+        // When & Then
+        assertNull(authorizationService.findByToken("unknown", null));
+    }
+
+    @Test
+    void purgeExpired_DeletesInChunksUntilPartialChunk() {
+        // Given
+        when(authorizationRepository.findExpiredIds(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of("a", "b"), List.of("c"));
+
+        // When
+        authorizationService.purgeExpired();
+
+        // Then
+        verify(authorizationRepository).deleteAllByIdInBatch(List.of("a", "b"));
+        verify(authorizationRepository).deleteAllByIdInBatch(List.of("c"));
+        verify(authorizationRepository, times(2)).findExpiredIds(any(Instant.class), any(Pageable.class));
+    }
+
+    @Test
+    void save_RotatedRefreshToken_RecordsPreviousHash() {
+        // Given
+        when(authorizationRepository.findRefreshTokenHashForUpdateById("auth-1"))
+                .thenReturn(Optional.of(TokenHash.sha256("old-refresh-value")));
+
+        // When
+        authorizationService.save(authorization(Instant.now()));
+
+        // Then
+        ArgumentCaptor<RetiredRefreshTokenEntity> captor = ArgumentCaptor.forClass(RetiredRefreshTokenEntity.class);
+        verify(retiredRefreshTokenRepository).save(captor.capture());
+        assertEquals(TokenHash.sha256("old-refresh-value"), captor.getValue().getTokenHash());
+        assertEquals("auth-1", captor.getValue().getAuthorizationId());
+    }
+
+    @Test
+    void save_RotatedRefreshToken_RecordsRotationAndTokenInOneTransaction() {
+        // Given
+        when(authorizationRepository.findRefreshTokenHashForUpdateById("auth-1"))
+                .thenReturn(Optional.of(TokenHash.sha256("old-refresh-value")));
+
+        // When
+        authorizationService.save(authorization(Instant.now()));
+
+        // Then
+        InOrder inOrder = inOrder(transactionManager, authorizationRepository, retiredRefreshTokenRepository);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(authorizationRepository).findRefreshTokenHashForUpdateById("auth-1");
+        inOrder.verify(retiredRefreshTokenRepository).save(any(RetiredRefreshTokenEntity.class));
+        inOrder.verify(authorizationRepository).save(any(OAuth2AuthorizationEntity.class));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void save_WriteFails_RollsBackAndPublishesNothing() {
+        // Given
+        when(authorizationRepository.findRefreshTokenHashForUpdateById("auth-1"))
+                .thenReturn(Optional.of(TokenHash.sha256("old-refresh-value")));
+        when(authorizationRepository.save(any(OAuth2AuthorizationEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("conflict"));
+
+        // When & Then
+        assertThrows(DataIntegrityViolationException.class,
+                () -> authorizationService.save(authorization(Instant.now().minusSeconds(1))));
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void findByToken_RetiredRefreshToken_ReturnsNullWithoutWriting() {
+        // Given
+        String hash = TokenHash.sha256("old-refresh-value");
+        when(authorizationRepository.findByRefreshTokenHash(hash)).thenReturn(Optional.empty());
+
+        // When
+        OAuth2Authorization result =
+                authorizationService.findByToken("old-refresh-value", OAuth2TokenType.REFRESH_TOKEN);
+
+        // Then
+        assertNull(result);
+        verify(authorizationRepository, never()).deleteAllByIdInBatch(any());
+        verifyNoInteractions(retiredRefreshTokenRepository);
+    }
+
+    @Test
+    void revokeRotatedRefreshToken_RevokesTokenFamily() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        String hash = TokenHash.sha256("old-refresh-value");
+        when(retiredRefreshTokenRepository.findById(hash))
+                .thenReturn(Optional.of(new RetiredRefreshTokenEntity(hash, "auth-1", expiresAt)));
+        when(authorizationRepository.findTokenRefById("auth-1"))
+                .thenReturn(Optional.of(new AuthorizationTokenRef("auth-1", "access-hash", expiresAt)));
+
+        // When
+        boolean revoked = authorizationService.revokeRotatedRefreshToken("old-refresh-value");
+
+        // Then
+        assertTrue(revoked);
+        verify(authorizationRepository).deleteAllByIdInBatch(List.of("auth-1"));
+        verify(retiredRefreshTokenRepository).deleteByAuthorizationIds(List.of("auth-1"));
+        verify(eventPublisher).publishEvent(new TokenInvalidatedEvent("access-hash", expiresAt));
+    }
+
+    @Test
+    void revokeRotatedRefreshToken_UnknownToken_RevokesNothing() {
+        // Given
+        when(retiredRefreshTokenRepository.findById(anyString())).thenReturn(Optional.empty());
+
+        // When & Then
+        assertFalse(authorizationService.revokeRotatedRefreshToken("never-issued"));
+        verify(authorizationRepository, never()).deleteAllByIdInBatch(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void revokeAll_DeletesEveryAuthorizationOfPrincipal() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        when(authorizationRepository.findTokenRefsByPrincipalName("user")).thenReturn(List.of(
+                new AuthorizationTokenRef("auth-1", "access-hash-1", expiresAt),
+                new AuthorizationTokenRef("auth-2", null, null)));
+
+        // When
+        int revoked = authorizationService.revokeAll("user");
+
+        // Then
+        assertEquals(2, revoked);
+        verify(authorizationRepository).deleteAllByIdInBatch(List.of("auth-1", "auth-2"));
+        verify(eventPublisher).publishEvent(new TokenInvalidatedEvent("access-hash-1", expiresAt));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    private OAuth2Authorization authorization(Instant now) {
+        return OAuth2Authorization.withRegisteredClient(registeredClient)
+                .id("auth-1")
+                .principalName("user")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .authorizedScopes(Set.of("read"))
+                .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-value",
+                        now, now.plus(Duration.ofMinutes(30)), Set.of("read")))
+                .refreshToken(new OAuth2RefreshToken("refresh-value", now, now.plus(Duration.ofDays(1))))
+                .build();
+    }
+}
@@ -0,0 +1,210 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.OAuth2RegisteredClientEntity;
+import com.henry.myauthserver.repository.OAuth2RegisteredClientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaRegisteredClientRepositoryTest {
+
+    @Mock
+    private OAuth2RegisteredClientRepository clientRepository;
+
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private JpaRegisteredClientRepository registeredClientRepository;
+
+    @BeforeEach
+    void setUp() {
+        registeredClientRepository = new JpaRegisteredClientRepository(clientRepository);
+    }
+
+    @Test
+    void save_AssignsNextChangeVersionAndServesFromSnapshot() {
+        // Given
+        when(clientRepository.findMaxChangeVersion()).thenReturn(4L);
+
+        // When
+        registeredClientRepository.save(client("id-1", "client-1"));
+
+        // Then
+        ArgumentCaptor<OAuth2RegisteredClientEntity> captor = ArgumentCaptor.forClass(OAuth2RegisteredClientEntity.class);
+        verify(clientRepository).saveAndFlush(captor.capture());
+        assertEquals(5, captor.getValue().getChangeVersion());
+
+        RegisteredClient byClientId = registeredClientRepository.findByClientId("client-1");
+        assertNotNull(byClientId);
+        assertSame(byClientId, registeredClientRepository.findById("id-1"));
+        assertTrue(byClientId.getClientSettings().isRequireProofKey());
+        assertEquals(Duration.ofMinutes(30), byClientId.getTokenSettings().getAccessTokenTimeToLive());
+        verify(clientRepository, never()).findById(any());
+    }
+
+    @Test
+    void refresh_LoadsOnlyNewerVersions() {
+        // Given
+        when(clientRepository.findMaxChangeVersion()).thenReturn(0L);
+        registeredClientRepository.save(client("id-1", "client-1"));
+        ArgumentCaptor<OAuth2RegisteredClientEntity> captor = ArgumentCaptor.forClass(OAuth2RegisteredClientEntity.class);
+        verify(clientRepository).saveAndFlush(captor.capture());
+
+        OAuth2RegisteredClientEntity renamed = captor.getValue();
+        renamed.setClientId("client-renamed");
+        renamed.setChangeVersion(2);
+        when(clientRepository.findByChangeVersionGreaterThanOrderByChangeVersion(1L)).thenReturn(List.of(renamed));
+
+        // When
+        registeredClientRepository.refresh();
+
+        // Then
+        assertNull(registeredClientRepository.findByClientId("client-1"));
+        assertEquals("id-1", registeredClientRepository.findByClientId("client-renamed").getId());
+        assertEquals(1, registeredClientRepository.size());
+    }
+
+    @Test
+    void save_ChangeVersionTaken_RetriesWithNextVersion() {
+        // Given
+        when(clientRepository.findMaxChangeVersion()).thenReturn(4L, 5L);
+        when(clientRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("uk_oauth2_registered_client_change_version"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        registeredClientRepository.save(client("id-1", "client-1"));
+
+        // Then
+        ArgumentCaptor<OAuth2RegisteredClientEntity> captor = ArgumentCaptor.forClass(OAuth2RegisteredClientEntity.class);
+        verify(clientRepository, times(2)).saveAndFlush(captor.capture());
+        assertEquals(6, captor.getValue().getChangeVersion());
+        assertNotNull(registeredClientRepository.findByClientId("client-1"));
+    }
+
+    @Test
+    void seed_UnchangedConfiguration_DoesNotSave() {
+        // Given
+        when(clientRepository.findMaxChangeVersion()).thenReturn(0L);
+        registeredClientRepository.save(client("id-1", "client-1"));
+
+        // When
+        registeredClientRepository.seed(client("id-1", "client-1"), passwordEncoder);
+
+        // Then
+        verify(clientRepository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    void seed_ChangedConfiguration_UpdatesStoredClientKeepingItsId() {
+        // Given
+        when(clientRepository.findMaxChangeVersion()).thenReturn(0L, 1L);
+        registeredClientRepository.save(client("id-1", "client-1"));
+        RegisteredClient changed = RegisteredClient.from(client("id-2", "client-1"))
+                .redirectUri("https://app.example.com/callback")
+                .tokenSettings(TokenSettings.builder()
+                        .accessTokenTimeToLive(Duration.ofMinutes(30))
+                        .reuseRefreshTokens(false)
+                        .build())
+                .build();
+
+        // When
+        registeredClientRepository.seed(changed, passwordEncoder);
+
+        // Then
+        verify(clientRepository, times(2)).saveAndFlush(any());
+        RegisteredClient stored = registeredClientRepository.findByClientId("client-1");
+        assertEquals("id-1", stored.getId());
+        assertTrue(stored.getRedirectUris().contains("https://app.example.com/callback"));
+        assertFalse(stored.getTokenSettings().isReuseRefreshTokens());
+    }
+
+    @Test
+    void seed_Secret_EncodedOnlyWhenChanged() {
+        // Given
+        when(clientRepository.findMaxChangeVersion()).thenReturn(0L, 1L);
+        RegisteredClient configured = RegisteredClient.from(client("id-1", "service"))
+                .clientSecret("s3cret")
+                .build();
+        registeredClientRepository.seed(configured, passwordEncoder);
+        String storedSecret = registeredClientRepository.findByClientId("service").getClientSecret();
+
+        // When - restart with the same secret, then with a new one
+        registeredClientRepository.seed(configured, passwordEncoder);
+        registeredClientRepository.seed(RegisteredClient.from(configured).clientSecret("rotated").build(),
+                passwordEncoder);
+
+        // Then
+        assertTrue(passwordEncoder.matches("s3cret", storedSecret));
+        verify(clientRepository, times(2)).saveAndFlush(any());
+        assertTrue(passwordEncoder.matches("rotated",
+                registeredClientRepository.findByClientId("service").getClientSecret()));
+    }
+
+    @Test
+    void reload_DropsClientsDeletedFromTable() {
+        // Given
+        when(clientRepository.findMaxChangeVersion()).thenReturn(0L, 1L);
+        registeredClientRepository.save(client("id-1", "client-1"));
+        registeredClientRepository.save(client("id-2", "client-2"));
+        ArgumentCaptor<OAuth2RegisteredClientEntity> captor = ArgumentCaptor.forClass(OAuth2RegisteredClientEntity.class);
+        verify(clientRepository, times(2)).saveAndFlush(captor.capture());
+        when(clientRepository.findAll()).thenReturn(List.of(captor.getAllValues().get(1)));
+
+        // When
+        registeredClientRepository.reload();
+
+        // Then
+        assertNull(registeredClientRepository.findById("id-1"));
+        assertEquals("id-2", registeredClientRepository.findByClientId("client-2").getId());
+        assertEquals(1, registeredClientRepository.size());
+    }
+
+    @Test
+    void refresh_NoChanges_KeepsSnapshot() {
+        // Given
+        when(clientRepository.findByChangeVersionGreaterThanOrderByChangeVersion(anyLong())).thenReturn(List.of());
+
+        // When
+        registeredClientRepository.refresh();
+
+        // Then
+        assertEquals(0, registeredClientRepository.size());
+        assertNull(registeredClientRepository.findByClientId("client-1"));
+    }
+
+    private RegisteredClient client(String id, String clientId) {
+        return RegisteredClient.withId(id)
+                .clientId(clientId)
+                .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                .redirectUri("http://localhost:3000")
+                .scope("read")
+                .tokenSettings(TokenSettings.builder()
+                        .accessTokenTimeToLive(Duration.ofMinutes(30))
+                        .build())
+                .clientSettings(ClientSettings.builder()
+                        .requireProofKey(true)
+                        .build())
+                .build();
+    }
+}
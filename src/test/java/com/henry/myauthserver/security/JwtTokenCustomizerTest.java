@@ -0,0 +1,164 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.service.AppUserDetailsService;
+import com.henry.myauthserver.service.UserDetailsCache;
+import com.nimbusds.jose.JWSAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtTokenCustomizerTest {
+
+    @Mock
+    private SigningKeyRing keyRing;
+
+    @Mock
+    private AppUserDetailsService userDetailsService;
+
+    @Test
+    void customize_NoClientSetting_UsesDefaultAlgorithm() {
+        // Given
+        JwtTokenCustomizer customizer = new JwtTokenCustomizer(keyRing, SignatureAlgorithm.RS256, userDetailsService);
+        JwtEncodingContext context = context(TokenSettings.builder().build());
+
+        // When
+        customizer.customize(context);
+
+        // Then
+        assertEquals(SignatureAlgorithm.RS256, context.getJwsHeader().build().getAlgorithm());
+    }
+
+    @Test
+    void customize_ClientAsksForEs256_SignsWithEs256() {
+        // Given
+        when(keyRing.canSign(JWSAlgorithm.ES256)).thenReturn(true);
+        JwtTokenCustomizer customizer = new JwtTokenCustomizer(keyRing, SignatureAlgorithm.RS256, userDetailsService);
+        JwtEncodingContext context = context(TokenSettings.builder()
+                .setting(JwtTokenCustomizer.SIGNATURE_ALGORITHM, "ES256")
+                .build());
+
+        // When
+        customizer.customize(context);
+
+        // Then
+        assertEquals(SignatureAlgorithm.ES256, context.getJwsHeader().build().getAlgorithm());
+    }
+
+    @Test
+    void customize_AlgorithmWithoutActiveKey_FallsBackToDefault() {
+        // Given
+        when(keyRing.canSign(JWSAlgorithm.ES256)).thenReturn(false);
+        JwtTokenCustomizer customizer = new JwtTokenCustomizer(keyRing, SignatureAlgorithm.RS256, userDetailsService);
+        JwtEncodingContext context = context(TokenSettings.builder()
+                .setting(JwtTokenCustomizer.SIGNATURE_ALGORITHM, "ES256")
+                .build());
+
+        // When
+        customizer.customize(context);
+
+        // Then
+        assertEquals(SignatureAlgorithm.RS256, context.getJwsHeader().build().getAlgorithm());
+    }
+
+    @Test
+    void customize_UserAccessToken_AddsRoleAndEmailFromUserCache() {
+        // Given
+        when(userDetailsService.loadUserAttributes("testuser")).thenReturn(
+                new UserDetailsCache.CachedUser("testuser", "test@example.com", "{bcrypt}hash", "ADMIN", true));
+        JwtTokenCustomizer customizer = new JwtTokenCustomizer(keyRing, SignatureAlgorithm.RS256, userDetailsService);
+        JwtEncodingContext context = userContext(OAuth2TokenType.ACCESS_TOKEN, "ROLE_USER");
+
+        // When
+        customizer.customize(context);
+
+        // Then
+        JwtClaimsSet claims = context.getClaims().build();
+        assertEquals("ADMIN", claims.getClaim(JwtTokenCustomizer.ROLE_CLAIM));
+        assertEquals("test@example.com", claims.getClaim(JwtTokenCustomizer.EMAIL_CLAIM));
+    }
+
+    @Test
+    void customize_UserNoLongerExists_TakesRoleFromPrincipal() {
+        // Given
+        when(userDetailsService.loadUserAttributes("testuser")).thenThrow(new UsernameNotFoundException("gone"));
+        JwtTokenCustomizer customizer = new JwtTokenCustomizer(keyRing, SignatureAlgorithm.RS256, userDetailsService);
+        JwtEncodingContext context = userContext(new OAuth2TokenType(OidcParameterNames.ID_TOKEN), "ROLE_USER");
+
+        // When
+        customizer.customize(context);
+
+        // Then
+        JwtClaimsSet claims = context.getClaims().build();
+        assertEquals("USER", claims.getClaim(JwtTokenCustomizer.ROLE_CLAIM));
+        assertNull(claims.getClaim(JwtTokenCustomizer.EMAIL_CLAIM));
+    }
+
+    @Test
+    void customize_ClientCredentialsToken_AddsNoUserClaims() {
+        // Given
+        RegisteredClient registeredClient = registeredClient(TokenSettings.builder().build());
+        JwtTokenCustomizer customizer = new JwtTokenCustomizer(keyRing, SignatureAlgorithm.RS256, userDetailsService);
+        JwtEncodingContext context = JwtEncodingContext.with(JwsHeader.with(SignatureAlgorithm.RS256),
+                        JwtClaimsSet.builder().subject("client"))
+                .registeredClient(registeredClient)
+                .principal(new OAuth2ClientAuthenticationToken(registeredClient,
+                        ClientAuthenticationMethod.CLIENT_SECRET_BASIC, "secret"))
+                .tokenType(OAuth2TokenType.ACCESS_TOKEN)
+                .build();
+
+        // When
+        customizer.customize(context);
+
+        // Then
+        assertNull(context.getClaims().build().getClaim(JwtTokenCustomizer.ROLE_CLAIM));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    private JwtEncodingContext userContext(OAuth2TokenType tokenType, String authority) {
+        return JwtEncodingContext.with(JwsHeader.with(SignatureAlgorithm.RS256),
+                        JwtClaimsSet.builder().subject("testuser"))
+                .registeredClient(registeredClient(TokenSettings.builder().build()))
+                .principal(UsernamePasswordAuthenticationToken.authenticated("testuser", null,
+                        List.of(new SimpleGrantedAuthority(authority))))
+                .tokenType(tokenType)
+                .build();
+    }
+
+    private JwtEncodingContext context(TokenSettings tokenSettings) {
+        return JwtEncodingContext.with(JwsHeader.with(SignatureAlgorithm.RS256), JwtClaimsSet.builder())
+                .registeredClient(registeredClient(tokenSettings))
+                .build();
+    }
+
+    private RegisteredClient registeredClient(TokenSettings tokenSettings) {
+        RegisteredClient registeredClient = RegisteredClient.withId("client-id")
+                .clientId("client")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.NONE)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("http://localhost:3000")
+                .tokenSettings(tokenSettings)
+                .build();
+    }
+}
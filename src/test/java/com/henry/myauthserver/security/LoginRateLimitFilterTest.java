@@ -0,0 +1,114 @@
+package com.henry.myauthserver.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimitFilterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger passed = new AtomicInteger();
+    private final FilterChain chain = (request, response) -> passed.incrementAndGet();
+    private final LoginRateLimitFilter filter = new LoginRateLimitFilter(
+            new LoginRateLimitFilter.Limit(4, Duration.ofSeconds(10)),
+            new LoginRateLimitFilter.Limit(2, Duration.ofSeconds(30)),
+            new LoginRateLimitFilter.Limit(1, Duration.ofMinutes(1)),
+            1000, nanos::get);
+
+    @Test
+    void doFilter_SameUsernameOverLimit_Returns429WithRetryAfter() throws Exception {
+        // When
+        post("/login", "10.0.0.1", "alice");
+        post("/login", "10.0.0.2", "Alice");
+        MockHttpServletResponse response = post("/login", "10.0.0.3", "alice");
+
+        // Then
+        assertEquals(2, passed.get());
+        assertEquals(429, response.getStatus());
+        assertEquals("30", response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void doFilter_SameIpOverLimit_Returns429() throws Exception {
+        // When
+        for (int i = 0; i < 4; i++) {
+            post("/login", "10.0.0.1", "user-" + i);
+        }
+        MockHttpServletResponse response = post("/login", "10.0.0.1", "user-5");
+
+        // Then
+        assertEquals(4, passed.get());
+        assertEquals(429, response.getStatus());
+        assertEquals("10", response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void doFilter_AfterRefillInterval_AllowsAgain() throws Exception {
+        // Given
+        post("/api/auth/register", "10.0.0.1", null);
+        assertEquals(429, post("/api/auth/register", "10.0.0.1", null).getStatus());
+
+        // When
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        // Then
+        assertEquals(200, post("/api/auth/register", "10.0.0.1", null).getStatus());
+        assertEquals(2, passed.get());
+    }
+
+    @Test
+    void doFilter_OtherRequests_AreNotLimited() throws Exception {
+        // When
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/login");
+            request.setRemoteAddr("10.0.0.1");
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+        }
+
+        // Then
+        assertEquals(10, passed.get());
+    }
+
+    @Test
+    void doFilter_BucketEvictedForSize_StaysLimited() throws Exception {
+        // Given
+        LoginRateLimitFilter small = new LoginRateLimitFilter(
+                new LoginRateLimitFilter.Limit(4, Duration.ofSeconds(10)),
+                new LoginRateLimitFilter.Limit(2, Duration.ofSeconds(30)),
+                new LoginRateLimitFilter.Limit(1, Duration.ofMinutes(1)),
+                1, nanos::get);
+        post(small, "/api/auth/register", "10.0.0.1", null);
+
+        // When
+        for (int i = 2; i < 50; i++) {
+            post(small, "/api/auth/register", "10.0.0." + i, null);
+        }
+        MockHttpServletResponse response = post(small, "/api/auth/register", "10.0.0.1", null);
+
+        // Then
+        assertEquals(429, response.getStatus());
+    }
+
+    private MockHttpServletResponse post(String path, String ip, String username) throws Exception {
+        return post(filter, path, ip, username);
+    }
+
+    private MockHttpServletResponse post(LoginRateLimitFilter target, String path, String ip, String username)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(ip);
+        if (username != null) {
+            request.setParameter("username", username);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        target.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,175 @@
+package com.henry.myauthserver.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataResponseCacheFilterTest {
+
+    private final AtomicLong keySetVersion = new AtomicLong(1);
+    private final AtomicInteger renders = new AtomicInteger();
+    private final MetadataResponseCacheFilter filter =
+            new MetadataResponseCacheFilter(keySetVersion::get, Duration.ofMinutes(5));
+
+    private final FilterChain endpoint = (request, response) -> {
+        renders.incrementAndGet();
+        response.setContentType("application/json;charset=UTF-8");
+        response.getOutputStream().write(("{\"keys\":[" + "{\"kty\":\"RSA\",\"kid\":\"key-1\"},".repeat(20)
+                + "{\"version\":" + keySetVersion.get() + "}]}").getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    void doFilter_RepeatRequests_RenderOnceWithCachingHeaders() throws Exception {
+        // When
+        MockHttpServletResponse first = get("/oauth2/jwks", null, null);
+        MockHttpServletResponse second = get("/oauth2/jwks", null, null);
+
+        // Then
+        assertEquals(1, renders.get());
+        assertEquals(200, second.getStatus());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals("public, max-age=300", second.getHeader("Cache-Control"));
+        assertNotNull(second.getHeader("ETag"));
+        assertTrue(second.getHeader("ETag").startsWith("\""));
+    }
+
+    @Test
+    void doFilter_MatchingIfNoneMatch_Returns304WithoutBody() throws Exception {
+        // Given
+        String etag = get("/oauth2/jwks", null, null).getHeader("ETag");
+
+        // When
+        MockHttpServletResponse response = get("/oauth2/jwks", etag, null);
+
+        // Then
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void doFilter_AcceptsGzip_ServesPrecompressedVariant() throws Exception {
+        // Given
+        String plain = get("/oauth2/jwks", null, null).getContentAsString();
+
+        // When
+        MockHttpServletResponse response = get("/oauth2/jwks", null, "gzip, deflate");
+
+        // Then
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void doFilter_KeySetVersionChanged_RendersAgainWithNewEtag() throws Exception {
+        // Given
+        String etag = get("/oauth2/jwks", null, null).getHeader("ETag");
+
+        // When
+        keySetVersion.incrementAndGet();
+        MockHttpServletResponse response = get("/oauth2/jwks", etag, null);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertNotEquals(etag, response.getHeader("ETag"));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void doFilter_OtherPath_PassesThrough() throws Exception {
+        // When
+        get("/oauth2/token", null, null);
+        get("/oauth2/token", null, null);
+
+        // Then
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void doFilter_JwkSetUnderManyHostNames_RenderedOnce() throws Exception {
+        // When
+        for (int i = 0; i < 100; i++) {
+            get("/oauth2/jwks", "host-" + i + ".example.com");
+        }
+
+        // Then
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void doFilter_ConfiguredIssuer_KeysDiscoveryOnIssuerNotHost() throws Exception {
+        // Given
+        AuthorizationServerSettings settings = AuthorizationServerSettings.builder()
+                .issuer("https://auth.example.com")
+                .build();
+        AuthorizationServerContextHolder.setContext(new AuthorizationServerContext() {
+            @Override
+            public String getIssuer() {
+                return settings.getIssuer();
+            }
+
+            @Override
+            public AuthorizationServerSettings getAuthorizationServerSettings() {
+                return settings;
+            }
+        });
+        try {
+            // When
+            get("/.well-known/openid-configuration", "a.example.com");
+            get("/.well-known/openid-configuration", "b.example.com");
+        } finally {
+            AuthorizationServerContextHolder.resetContext();
+        }
+
+        // Then
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void doFilter_NoConfiguredIssuer_KeysDiscoveryOnHost() throws Exception {
+        // When
+        get("/.well-known/openid-configuration", "a.example.com");
+        get("/.well-known/openid-configuration", "b.example.com");
+        get("/.well-known/openid-configuration", "a.example.com");
+
+        // Then
+        assertEquals(2, renders.get());
+    }
+
+    private MockHttpServletResponse get(String path, String serverName) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServerName(serverName);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, endpoint);
+        return response;
+    }
+
+    private MockHttpServletResponse get(String path, String ifNoneMatch, String acceptEncoding) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, endpoint);
+        return response;
+    }
+}
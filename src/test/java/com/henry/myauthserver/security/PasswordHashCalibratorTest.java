@@ -0,0 +1,45 @@
+package com.henry.myauthserver.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashCalibratorTest {
+
+    // Simulates BCrypt: each strength step doubles the cost, strength 10 takes 64 ms
+    private static long simulatedNanos(int strength) {
+        return Duration.ofMillis(64).toNanos() << (strength - 10);
+    }
+
+    @Test
+    void calibrate_PicksHighestStrengthWithinTarget() {
+        // When
+        int strength = PasswordHashCalibrator.calibrate(Duration.ofMillis(300), 10, 16,
+                PasswordHashCalibratorTest::simulatedNanos);
+
+        // Then - 12 takes 256 ms, 13 would take 512 ms
+        assertEquals(12, strength);
+    }
+
+    @Test
+    void calibrate_SlowHost_FallsBackToMinimumStrength() {
+        // When
+        int strength = PasswordHashCalibrator.calibrate(Duration.ofMillis(10), 10, 16,
+                PasswordHashCalibratorTest::simulatedNanos);
+
+        // Then
+        assertEquals(10, strength);
+    }
+
+    @Test
+    void calibrate_FastHost_CappedAtMaximumStrength() {
+        // When
+        int strength = PasswordHashCalibrator.calibrate(Duration.ofHours(1), 10, 16,
+                PasswordHashCalibratorTest::simulatedNanos);
+
+        // Then
+        assertEquals(16, strength);
+    }
+}
@@ -0,0 +1,80 @@
+package com.henry.myauthserver.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2RefreshTokenAuthenticationToken;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenReuseDetectorTest {
+
+    @Mock
+    private AuthenticationProvider delegate;
+
+    @Mock
+    private RevocableOAuth2AuthorizationService authorizationService;
+
+    @Mock
+    private Authentication clientPrincipal;
+
+    private RefreshTokenReuseDetector detector;
+    private OAuth2RefreshTokenAuthenticationToken request;
+
+    @BeforeEach
+    void setUp() {
+        detector = new RefreshTokenReuseDetector(delegate, authorizationService);
+        request = new OAuth2RefreshTokenAuthenticationToken("refresh-1", clientPrincipal, Set.of(), Map.of());
+    }
+
+    @Test
+    void authenticate_InvalidGrant_RevokesRotatedTokenFamilyAndRethrows() {
+        // Given
+        OAuth2AuthenticationException invalidGrant = new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_GRANT);
+        when(delegate.authenticate(request)).thenThrow(invalidGrant);
+
+        // When
+        OAuth2AuthenticationException thrown =
+                assertThrows(OAuth2AuthenticationException.class, () -> detector.authenticate(request));
+
+        // Then
+        assertSame(invalidGrant, thrown);
+        verify(authorizationService).revokeRotatedRefreshToken("refresh-1");
+    }
+
+    @Test
+    void authenticate_Success_DoesNotCheckRotatedTokens() {
+        // Given
+        when(delegate.authenticate(request)).thenReturn(request);
+
+        // When
+        Authentication result = detector.authenticate(request);
+
+        // Then
+        assertSame(request, result);
+        verify(authorizationService, never()).revokeRotatedRefreshToken(anyString());
+    }
+
+    @Test
+    void authenticate_OtherError_DoesNotRevoke() {
+        // Given
+        when(delegate.authenticate(request))
+                .thenThrow(new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT));
+
+        // When & Then
+        assertThrows(OAuth2AuthenticationException.class, () -> detector.authenticate(request));
+        verify(authorizationService, never()).revokeRotatedRefreshToken(anyString());
+    }
+}
@@ -0,0 +1,235 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.SigningKey;
+import com.henry.myauthserver.repository.SigningKeyRepository;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.encrypt.Encryptors;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SigningKeyRingTest {
+
+    private static final JWKSelector ALL_KEYS = new JWKSelector(new JWKMatcher.Builder().build());
+
+    @Mock
+    private SigningKeyRepository signingKeyRepository;
+
+    private final List<SigningKey> table = new ArrayList<>();
+    private SigningKeyRing keyRing;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(signingKeyRepository.findAllByOrderByCreatedAt()).thenAnswer(invocation ->
+                table.stream().sorted(Comparator.comparing(SigningKey::getCreatedAt)).toList());
+        lenient().when(signingKeyRepository.save(any(SigningKey.class))).thenAnswer(invocation -> {
+            store(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        lenient().when(signingKeyRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            Collection<SigningKey> keys = invocation.getArgument(0);
+            keys.forEach(this::store);
+            return List.copyOf(keys);
+        });
+        keyRing = keyRing(JWSAlgorithm.RS256);
+    }
+
+    @Test
+    void initialize_EmptyTable_CreatesAndPublishesActiveKey() throws Exception {
+        // When
+        keyRing.initialize();
+
+        // Then
+        assertEquals(1, table.size());
+        assertEquals(SigningKey.Status.ACTIVE, table.get(0).getStatus());
+        assertEquals(table.get(0).getKid(), keyRing.getActiveKeyId(JWSAlgorithm.RS256));
+        assertEquals(1, keyRing.signingJwkSource().get(ALL_KEYS, null).size());
+    }
+
+    @Test
+    void rotateIfDue_NoNextKey_PublishesNextWithoutSigningWithIt() throws Exception {
+        // Given
+        keyRing.initialize();
+        String activeKid = keyRing.getActiveKeyId(JWSAlgorithm.RS256);
+        long version = keyRing.getVersion();
+
+        // When
+        keyRing.rotateIfDue();
+
+        // Then
+        List<JWK> published = keyRing.publishedJwkSource().get(ALL_KEYS, null);
+        List<JWK> signing = keyRing.signingJwkSource().get(ALL_KEYS, null);
+        assertEquals(2, published.size());
+        assertEquals(1, signing.size());
+        assertEquals(activeKid, signing.get(0).getKeyID());
+        assertTrue(keyRing.getVersion() > version);
+    }
+
+    @Test
+    void rotateIfDue_RotationPeriodElapsed_PromotesNextAndRetiresActive() throws Exception {
+        // Given
+        keyRing.initialize();
+        keyRing.rotateIfDue();
+        SigningKey oldActive = find(SigningKey.Status.ACTIVE);
+        SigningKey next = find(SigningKey.Status.NEXT);
+        oldActive.setActivatedAt(Instant.now().minus(Duration.ofDays(31)));
+
+        // When
+        keyRing.rotateIfDue();
+
+        // Then
+        assertEquals(SigningKey.Status.RETIRED, oldActive.getStatus());
+        assertEquals(SigningKey.Status.ACTIVE, next.getStatus());
+        assertEquals(next.getKid(), keyRing.getActiveKeyId(JWSAlgorithm.RS256));
+        assertEquals(next.getKid(), keyRing.signingJwkSource().get(ALL_KEYS, null).get(0).getKeyID());
+        // retired, active and a freshly generated next key are all published
+        assertEquals(3, keyRing.publishedJwkSource().get(ALL_KEYS, null).size());
+    }
+
+    @Test
+    void rotateIfDue_RetiredPastRetention_IsDeleted() {
+        // Given
+        keyRing.initialize();
+        keyRing.rotateIfDue();
+        find(SigningKey.Status.ACTIVE).setActivatedAt(Instant.now().minus(Duration.ofDays(31)));
+        keyRing.rotateIfDue();
+        SigningKey retired = find(SigningKey.Status.RETIRED);
+        retired.setRetiredAt(Instant.now().minus(Duration.ofDays(3)));
+
+        // When
+        keyRing.rotateIfDue();
+
+        // Then
+        verify(signingKeyRepository).deleteAll(List.of(retired));
+    }
+
+    @Test
+    void initialize_RsaAndEc_SignsWithOneActiveKeyPerAlgorithm() throws Exception {
+        // Given
+        keyRing = keyRing(JWSAlgorithm.RS256, JWSAlgorithm.ES256);
+
+        // When
+        keyRing.initialize();
+
+        // Then
+        List<JWK> signing = keyRing.signingJwkSource().get(ALL_KEYS, null);
+        assertEquals(2, signing.size());
+        assertTrue(keyRing.canSign(JWSAlgorithm.ES256));
+        JWK ecKey = signing.stream()
+                .filter(jwk -> jwk.getKeyID().equals(keyRing.getActiveKeyId(JWSAlgorithm.ES256)))
+                .findFirst()
+                .orElseThrow();
+        assertInstanceOf(ECKey.class, ecKey);
+        assertEquals(JWSAlgorithm.ES256, ecKey.getAlgorithm());
+    }
+
+    @Test
+    void rotateIfDue_AlgorithmNoLongerConfigured_RetiresItsKeys() {
+        // Given
+        keyRing = keyRing(JWSAlgorithm.RS256, JWSAlgorithm.ES256);
+        keyRing.initialize();
+        keyRing = keyRing(JWSAlgorithm.RS256);
+
+        // When
+        keyRing.rotateIfDue();
+
+        // Then
+        assertEquals(SigningKey.Status.RETIRED, table.stream()
+                .filter(k -> k.getAlgorithm().equals("ES256"))
+                .findFirst()
+                .orElseThrow()
+                .getStatus());
+        assertFalse(keyRing.canSign(JWSAlgorithm.ES256));
+        assertTrue(keyRing.canSign(JWSAlgorithm.RS256));
+    }
+
+    @Test
+    void rotateIfDue_TwoNextKeys_RetiresTheLaterOne() throws Exception {
+        // Given - two nodes published a next key before the slot was unique
+        keyRing.initialize();
+        keyRing.rotateIfDue();
+        SigningKey first = find(SigningKey.Status.NEXT);
+        SigningKey second = nextKey(first.getCreatedAt().plusSeconds(1));
+        table.add(second);
+
+        // When
+        keyRing.rotateIfDue();
+
+        // Then
+        assertEquals(SigningKey.Status.NEXT, first.getStatus());
+        assertEquals(SigningKey.Status.RETIRED, second.getStatus());
+    }
+
+    @Test
+    void rotateIfDue_NextKeyInsertConflicts_KeepsTheOtherNodesKey() throws Exception {
+        // Given
+        keyRing.initialize();
+        when(signingKeyRepository.save(any(SigningKey.class)))
+                .thenAnswer(invocation -> {
+                    table.add(nextKey(Instant.now()));
+                    throw new DataIntegrityViolationException("uk_signing_keys_next_slot");
+                });
+
+        // When
+        keyRing.rotateIfDue();
+
+        // Then
+        assertEquals(1, table.stream().filter(k -> k.getStatus() == SigningKey.Status.NEXT).count());
+        assertEquals(2, keyRing.publishedJwkSource().get(ALL_KEYS, null).size());
+    }
+
+    private SigningKeyRing keyRing(JWSAlgorithm... algorithms) {
+        return new SigningKeyRing(signingKeyRepository, Encryptors.noOpText(),
+                Duration.ofDays(30), Duration.ofDays(2), 2048, List.of(algorithms));
+    }
+
+    // A next key as written by another node
+    private static SigningKey nextKey(Instant createdAt) throws Exception {
+        RSAKey jwk = new RSAKeyGenerator(2048)
+                .keyID(UUID.randomUUID().toString())
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        SigningKey key = new SigningKey();
+        key.setKid(jwk.getKeyID());
+        key.setAlgorithm(JWSAlgorithm.RS256.getName());
+        key.setStatus(SigningKey.Status.NEXT);
+        key.setKeyData(jwk.toJSONString());
+        key.setCreatedAt(createdAt);
+        return key;
+    }
+
+    private SigningKey find(SigningKey.Status status) {
+        return table.stream().filter(k -> k.getStatus() == status).findFirst().orElseThrow();
+    }
+
+    private void store(SigningKey key) {
+        if (!table.contains(key)) {
+            table.add(key);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.RevokedToken;
+import com.henry.myauthserver.repository.RevokedTokenRepository;
+import com.henry.myauthserver.util.TokenHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenIntrospection;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenIntrospectionCacheTest {
+
+    @Mock
+    private AuthenticationProvider delegate;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationList revocationList;
+    private TokenIntrospectionCache cache;
+    private OAuth2ClientAuthenticationToken client;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = new TokenRevocationList(revokedTokenRepository, 100, Duration.ofMinutes(1), 100, 0.01);
+        cache = new TokenIntrospectionCache(delegate, revocationList, 100, Duration.ofMinutes(1));
+        RegisteredClient registeredClient = RegisteredClient.withId("client-id")
+                .clientId("resource-server")
+                .clientSecret("{noop}secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        client = new OAuth2ClientAuthenticationToken(
+                registeredClient, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, "secret");
+    }
+
+    @Test
+    void introspect_SameToken_CallsDelegateOnce() {
+        // Given
+        OAuth2TokenIntrospection claims = active(Instant.now().plus(Duration.ofMinutes(30)));
+        when(delegate.authenticate(any()))
+                .thenReturn(new OAuth2TokenIntrospectionAuthenticationToken("token-1", client, claims));
+
+        // When
+        OAuth2TokenIntrospectionAuthenticationToken first = cache.introspect(request("token-1", client));
+        OAuth2TokenIntrospectionAuthenticationToken second = cache.introspect(request("token-1", client));
+
+        // Then
+        assertTrue(first.getTokenClaims().isActive());
+        assertSame(claims, second.getTokenClaims());
+        verify(delegate, times(1)).authenticate(any());
+        assertEquals(1, cache.getStats().hits());
+    }
+
+    @Test
+    void introspect_ExpiredToken_IsNotServedFromCache() {
+        // Given
+        when(delegate.authenticate(any())).thenReturn(new OAuth2TokenIntrospectionAuthenticationToken(
+                "token-1", client, active(Instant.now().minusSeconds(1))));
+
+        // When
+        cache.introspect(request("token-1", client));
+        cache.introspect(request("token-1", client));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void introspect_UnauthenticatedClient_ThrowsInvalidClient() {
+        // Given
+        OAuth2ClientAuthenticationToken unauthenticated = new OAuth2ClientAuthenticationToken(
+                "resource-server", ClientAuthenticationMethod.CLIENT_SECRET_BASIC, "wrong", null);
+
+        // When / Then
+        assertThrows(OAuth2AuthenticationException.class,
+                () -> cache.introspect(request("token-1", unauthenticated)));
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void onTokenInvalidated_CachedToken_IsIntrospectedAgain() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        when(delegate.authenticate(any()))
+                .thenReturn(new OAuth2TokenIntrospectionAuthenticationToken("token-1", client, active(expiresAt)))
+                .thenReturn(new OAuth2TokenIntrospectionAuthenticationToken(
+                        "token-1", client, OAuth2TokenIntrospection.builder().build()));
+        cache.introspect(request("token-1", client));
+
+        // When
+        cache.onTokenInvalidated(new TokenInvalidatedEvent(TokenHash.sha256("token-1"), expiresAt));
+        OAuth2TokenIntrospectionAuthenticationToken result = cache.introspect(request("token-1", client));
+
+        // Then
+        assertFalse(result.getTokenClaims().isActive());
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    void introspect_RevokedOnAnotherNode_ReportsInactiveDespiteCachedResult() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        when(delegate.authenticate(any()))
+                .thenReturn(new OAuth2TokenIntrospectionAuthenticationToken("token-1", client, active(expiresAt)));
+        cache.introspect(request("token-1", client));
+        RevokedToken row = new RevokedToken(TokenHash.sha256("token-1"), expiresAt);
+        row.setId(1L);
+        when(revokedTokenRepository.findByIdGreaterThanOrderById(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(row));
+
+        // When
+        revocationList.poll();
+        OAuth2TokenIntrospectionAuthenticationToken result = cache.introspect(request("token-1", client));
+
+        // Then
+        assertFalse(result.getTokenClaims().isActive());
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    private static OAuth2TokenIntrospectionAuthenticationToken request(String token,
+                                                                       OAuth2ClientAuthenticationToken client) {
+        return new OAuth2TokenIntrospectionAuthenticationToken(token, client, null, null);
+    }
+
+    private static OAuth2TokenIntrospection active(Instant expiresAt) {
+        return OAuth2TokenIntrospection.builder(true)
+                .clientId("web-client")
+                .subject("user")
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.henry.myauthserver.security;
+
+import com.henry.myauthserver.entity.RevokedToken;
+import com.henry.myauthserver.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationListTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationList revocationList;
+
+    @BeforeEach
+    void setUp() {
+        revocationList = new TokenRevocationList(revokedTokenRepository, 2, Duration.ofMinutes(1), 4, 0.01);
+    }
+
+    @Test
+    void onTokenInvalidated_RecordsLocallyAndInTable() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+
+        // When
+        revocationList.onTokenInvalidated(new TokenInvalidatedEvent("hash-1", expiresAt));
+
+        // Then
+        assertTrue(revocationList.isRevoked("hash-1"));
+        assertFalse(revocationList.isRevoked("hash-2"));
+        ArgumentCaptor<RevokedToken> captor = ArgumentCaptor.forClass(RevokedToken.class);
+        verify(revokedTokenRepository).save(captor.capture());
+        assertEquals("hash-1", captor.getValue().getTokenHash());
+        assertEquals(expiresAt, captor.getValue().getExpiresAt());
+    }
+
+    @Test
+    void onTokenInvalidated_AlreadyRecordedByAnotherNode_StaysRevoked() {
+        // Given
+        when(revokedTokenRepository.save(any(RevokedToken.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // When
+        revocationList.onTokenInvalidated(new TokenInvalidatedEvent("hash-1", Instant.now().plusSeconds(60)));
+
+        // Then
+        assertTrue(revocationList.isRevoked("hash-1"));
+    }
+
+    @Test
+    void poll_FirstCall_ReadsEverythingInPagesAndSkipsExpiredRows() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        when(revokedTokenRepository.findByIdGreaterThanOrderById(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "hash-1", expiresAt), row(2, "hash-2", expiresAt)));
+        when(revokedTokenRepository.findByIdGreaterThanOrderById(eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(row(3, "hash-3", Instant.now().minusSeconds(1))));
+
+        // When
+        revocationList.poll();
+
+        // Then
+        assertTrue(revocationList.isRevoked("hash-1"));
+        assertTrue(revocationList.isRevoked("hash-2"));
+        assertFalse(revocationList.isRevoked("hash-3"));
+        assertEquals(2, revocationList.size());
+    }
+
+    @Test
+    void poll_LaterCalls_RereadFromBeforeThePreviousPoll() {
+        // Given
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(30));
+        Instant beforeFirstPoll = Instant.now();
+        revocationList.poll();
+        // A row with a low id that committed after the first poll read past it
+        when(revokedTokenRepository.findByRevokedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                any(Instant.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "hash-1", expiresAt)));
+
+        // When
+        revocationList.poll();
+
+        // Then
+        assertTrue(revocationList.isRevoked("hash-1"));
+        ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+        verify(revokedTokenRepository).findByRevokedAtGreaterThanEqualAndIdGreaterThanOrderById(
+                since.capture(), eq(0L), any(Pageable.class));
+        assertFalse(since.getValue().isBefore(beforeFirstPoll.minus(Duration.ofMinutes(1))));
+        assertTrue(since.getValue().isBefore(Instant.now().minus(Duration.ofSeconds(59))));
+    }
+
+    @Test
+    void add_BeyondFilterCapacity_KeepsEveryEntry() {
+        // When
+        for (int i = 0; i < 20; i++) {
+            revocationList.onTokenInvalidated(new TokenInvalidatedEvent("hash-" + i, Instant.now().plusSeconds(60)));
+        }
+
+        // Then
+        for (int i = 0; i < 20; i++) {
+            assertTrue(revocationList.isRevoked("hash-" + i));
+        }
+    }
+
+    @Test
+    void purgeExpired_DropsExpiredEntriesAndRows() {
+        // Given
+        Instant expiresAt = Instant.now().plusMillis(50);
+        revocationList.onTokenInvalidated(new TokenInvalidatedEvent("hash-1", expiresAt));
+        revocationList.onTokenInvalidated(new TokenInvalidatedEvent("hash-2", Instant.now().plusSeconds(60)));
+        when(revokedTokenRepository.findExpiredIds(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(7L));
+
+        // When
+        await(expiresAt);
+        revocationList.purgeExpired();
+
+        // Then
+        assertFalse(revocationList.isRevoked("hash-1"));
+        assertTrue(revocationList.isRevoked("hash-2"));
+        verify(revokedTokenRepository).deleteAllByIdInBatch(List.of(7L));
+    }
+
+    private static void await(Instant instant) {
+        while (!Instant.now().isAfter(instant)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static RevokedToken row(long id, String hash, Instant expiresAt) {
+        RevokedToken row = new RevokedToken(hash, expiresAt);
+        row.setId(id);
+        return row;
+    }
+}
@@ -0,0 +1,221 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.security.CacheInvalidationLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AccountLockoutServiceTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private MutableClock clock;
+    private AccountLockoutService lockoutService;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table users (username varchar(50), failed_login_attempts int, " +
+                "locked_until timestamp with time zone)");
+        jdbcTemplate.update("insert into users (username) values ('alice'), ('bob'), ('carol')");
+
+        clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        lockoutService = new AccountLockoutService(jdbcTemplate, userDetailsCache(), 3, Duration.ofMinutes(15), 1000,
+                clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void onFailure_MaxAttemptsReached_LocksAccountUntilDurationPasses() {
+        // Given
+        failLogin("alice");
+        failLogin("alice");
+        assertFalse(lockoutService.isLocked("alice"));
+
+        // When
+        failLogin("alice");
+
+        // Then
+        assertTrue(lockoutService.isLocked("alice"));
+        assertFalse(lockoutService.isLocked("bob"));
+
+        clock.advance(Duration.ofMinutes(15));
+        assertFalse(lockoutService.isLocked("alice"));
+    }
+
+    @Test
+    void onSuccess_ResetsFailureCount() {
+        // Given
+        failLogin("alice");
+        failLogin("alice");
+
+        // When
+        lockoutService.onSuccess(new AuthenticationSuccessEvent(
+                UsernamePasswordAuthenticationToken.authenticated("alice", null, List.of())));
+        failLogin("alice");
+        failLogin("alice");
+
+        // Then
+        assertFalse(lockoutService.isLocked("alice"));
+    }
+
+    @Test
+    void flush_WritesLatestStateOncePerAccount() {
+        // Given
+        failLogin("alice");
+        failLogin("alice");
+        failLogin("alice");
+        failLogin("bob");
+        assertEquals(2, lockoutService.getStats().pendingWrites());
+
+        // When
+        lockoutService.flush();
+
+        // Then
+        assertEquals(3, attemptsOf("alice"));
+        assertEquals(Timestamp.from(clock.instant().plus(Duration.ofMinutes(15))), lockedUntilOf("alice"));
+        assertEquals(1, attemptsOf("bob"));
+        assertNull(lockedUntilOf("bob"));
+        assertEquals(0, lockoutService.getStats().pendingWrites());
+    }
+
+    @Test
+    void flush_ExpiredCounters_ResetInDatabase() {
+        // Given
+        failLogin("bob");
+        lockoutService.flush();
+
+        // When
+        clock.advance(Duration.ofMinutes(16));
+        lockoutService.flush();
+
+        // Then
+        assertEquals(0, attemptsOf("bob"));
+        assertEquals(0, lockoutService.getStats().trackedAccounts());
+    }
+
+    @Test
+    void load_PersistedLock_SurvivesRestart() {
+        // Given
+        failLogin("alice");
+        failLogin("alice");
+        failLogin("alice");
+        lockoutService.flush();
+
+        // When
+        AccountLockoutService restarted = new AccountLockoutService(jdbcTemplate, userDetailsCache(), 3,
+                Duration.ofMinutes(15), 1000, clock);
+        restarted.load();
+
+        // Then
+        assertTrue(restarted.isLocked("alice"));
+        assertFalse(restarted.isLocked("bob"));
+    }
+
+    @Test
+    void onFailure_UnknownUsername_IsNotTracked() {
+        // When
+        failLogin("mallory");
+        failLogin("mallory");
+        failLogin("mallory");
+
+        // Then
+        assertFalse(lockoutService.isLocked("mallory"));
+        assertEquals(0, lockoutService.getStats().trackedAccounts());
+        assertEquals(0, lockoutService.getStats().pendingWrites());
+    }
+
+    @Test
+    void onFailure_SizePressure_NeverEvictsLockedAccount() {
+        // Given
+        lockoutService = new AccountLockoutService(jdbcTemplate, userDetailsCache(), 3, Duration.ofMinutes(15), 1,
+                clock);
+        failLogin("alice");
+        failLogin("alice");
+        failLogin("alice");
+
+        // When
+        failLogin("bob");
+        failLogin("carol");
+        lockoutService.flush();
+
+        // Then
+        assertTrue(lockoutService.isLocked("alice"));
+        assertEquals(2, lockoutService.getStats().trackedAccounts());
+    }
+
+    private void failLogin(String username) {
+        lockoutService.onFailure(new AuthenticationFailureBadCredentialsEvent(
+                UsernamePasswordAuthenticationToken.unauthenticated(username, "wrong"),
+                new BadCredentialsException("Bad credentials")));
+    }
+
+    private static UserDetailsCache userDetailsCache() {
+        return new UserDetailsCache(mock(CacheInvalidationLog.class), 100, Duration.ofMinutes(5));
+    }
+
+    private int attemptsOf(String username) {
+        return jdbcTemplate.queryForObject("select failed_login_attempts from users where username = ?",
+                Integer.class, username);
+    }
+
+    private Timestamp lockedUntilOf(String username) {
+        return jdbcTemplate.queryForObject("select locked_until from users where username = ?",
+                Timestamp.class, username);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
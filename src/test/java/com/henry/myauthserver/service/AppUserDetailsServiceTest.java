@@ -0,0 +1,169 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.repository.UserCredentials;
+import com.henry.myauthserver.repository.UserRepository;
+import com.henry.myauthserver.security.CacheInvalidationLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AppUserDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private AccountLockoutService accountLockoutService;
+
+    @Mock
+    private CacheInvalidationLog invalidationLog;
+
+    private UserDetailsCache userDetailsCache;
+    private AppUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsCache = new UserDetailsCache(invalidationLog, 100, Duration.ofMinutes(5));
+        userDetailsService = new AppUserDetailsService(userRepository, userService, userDetailsCache,
+                accountLockoutService);
+    }
+
+    @Test
+    void loadUserByUsername_ExistingUser_ReturnsUserDetails() {
+        // Given
+        when(userRepository.findCredentialsByUsername("testuser"))
+                .thenReturn(Optional.of(new UserCredentials("testuser", "test@example.com", "{bcrypt}hash", "USER", false)));
+
+        // When
+        UserDetails details = userDetailsService.loadUserByUsername("testuser");
+
+        // Then
+        assertEquals("testuser", details.getUsername());
+        assertEquals("{bcrypt}hash", details.getPassword());
+        assertFalse(details.isEnabled());
+        assertTrue(details.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+    }
+
+    @Test
+    void loadUserByUsername_RepeatLogin_ServedFromCache() {
+        // Given
+        when(userRepository.findCredentialsByUsername("testuser")).thenReturn(Optional.of(existingUser()));
+
+        // When
+        UserDetails first = userDetailsService.loadUserByUsername("testuser");
+        UserDetails second = userDetailsService.loadUserByUsername("testuser");
+
+        // Then - one query, but distinct instances so erasing credentials cannot corrupt the cache
+        verify(userRepository, times(1)).findCredentialsByUsername("testuser");
+        assertNotSame(first, second);
+        assertEquals("{bcrypt}hash", second.getPassword());
+        assertEquals(1, userDetailsCache.getStats().hits());
+    }
+
+    @Test
+    void loadUserByUsername_AfterUserChangedEvent_ReloadsFromDatabase() {
+        // Given
+        when(userRepository.findCredentialsByUsername("testuser")).thenReturn(Optional.of(existingUser()));
+        userDetailsService.loadUserByUsername("testuser");
+
+        // When
+        userDetailsCache.onUserChanged(new UserChangedEvent("testuser", "test@example.com",
+                UserChangedEvent.Type.DISABLED));
+        userDetailsService.loadUserByUsername("testuser");
+
+        // Then
+        verify(userRepository, times(2)).findCredentialsByUsername("testuser");
+        verify(invalidationLog).publish(UserDetailsCache.CACHE_NAME, "testuser");
+    }
+
+    @Test
+    void loadUserByUsername_InvalidatedOnAnotherNode_ReloadsFromDatabase() {
+        // Given
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.captor();
+        verify(invalidationLog).register(eq(UserDetailsCache.CACHE_NAME), listener.capture());
+        when(userRepository.findCredentialsByUsername("testuser")).thenReturn(Optional.of(existingUser()));
+        userDetailsService.loadUserByUsername("testuser");
+
+        // When
+        listener.getValue().accept("testuser");
+        userDetailsService.loadUserByUsername("testuser");
+
+        // Then
+        verify(userRepository, times(2)).findCredentialsByUsername("testuser");
+    }
+
+    @Test
+    void onUserChanged_Registered_IsNotPublished() {
+        // When
+        userDetailsCache.onUserChanged(new UserChangedEvent("newuser", "new@example.com",
+                UserChangedEvent.Type.REGISTERED));
+
+        // Then
+        verify(invalidationLog, never()).publish(any(), any());
+    }
+
+    @Test
+    void loadUserByUsername_LockedAccount_ReturnsLockedDetailsWithoutCachingLock() {
+        // Given
+        when(userRepository.findCredentialsByUsername("testuser")).thenReturn(Optional.of(existingUser()));
+        when(accountLockoutService.isLocked("testuser")).thenReturn(true, false);
+
+        // When
+        UserDetails locked = userDetailsService.loadUserByUsername("testuser");
+        UserDetails unlocked = userDetailsService.loadUserByUsername("testuser");
+
+        // Then
+        assertFalse(locked.isAccountNonLocked());
+        assertEquals("{bcrypt}hash", locked.getPassword());
+        assertTrue(unlocked.isAccountNonLocked());
+    }
+
+    @Test
+    void loadUserByUsername_UnknownUser_ThrowsException() {
+        // Given
+        when(userRepository.findCredentialsByUsername("ghost")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+    }
+
+    @Test
+    void updatePassword_StoresNewHashAndReturnsUpdatedDetails() {
+        // Given
+        UserDetails current = User.withUsername("testuser")
+                .password("$2a$10$legacy")
+                .roles("USER")
+                .build();
+
+        // When
+        UserDetails updated = userDetailsService.updatePassword(current, "{bcrypt}$2a$12$upgraded");
+
+        // Then
+        verify(userService).updatePasswordHash("testuser", "{bcrypt}$2a$12$upgraded");
+        assertEquals("{bcrypt}$2a$12$upgraded", updated.getPassword());
+        assertEquals(current.getAuthorities(), updated.getAuthorities());
+    }
+
+    private static UserCredentials existingUser() {
+        return new UserCredentials("testuser", "test@example.com", "{bcrypt}hash", "USER", true);
+    }
+}
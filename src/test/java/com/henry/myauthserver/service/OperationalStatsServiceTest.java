@@ -0,0 +1,121 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.repository.UserRepository;
+import com.henry.myauthserver.security.RevocableOAuth2AuthorizationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OperationalStatsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RevocableOAuth2AuthorizationService authorizationService;
+
+    @Mock
+    private DataSource dataSource;
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(10));
+    private OperationalStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        statsService = new OperationalStatsService(userRepository, authorizationService, dataSource, () -> null,
+                nanos::get);
+    }
+
+    @Test
+    void getUserCount_CountsRegistrationsWithoutQuerying() {
+        // Given
+        when(userRepository.count()).thenReturn(1_000L);
+        when(authorizationService.countActive()).thenReturn(42L);
+        statsService.refresh();
+
+        // When
+        statsService.onUserChanged(registered("alice"));
+        statsService.onUserChanged(registered("bob"));
+        statsService.onUserChanged(new UserChangedEvent("bob", "bob@example.com", UserChangedEvent.Type.DISABLED));
+
+        // Then
+        assertEquals(1_002, statsService.getUserCount());
+        assertEquals(1_002, statsService.getStats().users());
+        assertEquals(42, statsService.getStats().activeAuthorizations());
+        verify(userRepository, times(1)).count();
+    }
+
+    @Test
+    void getUserCount_BeforeFirstRefresh_IsUnknown() {
+        // When
+        statsService.onUserChanged(registered("alice"));
+
+        // Then
+        assertEquals(-1, statsService.getUserCount());
+    }
+
+    @Test
+    void refresh_ReconcilesWithDatabase() {
+        // Given
+        when(userRepository.count()).thenReturn(10L, 25L);
+        statsService.refresh();
+        statsService.onUserChanged(registered("alice"));
+
+        // When - other nodes registered users in the meantime
+        statsService.refresh();
+
+        // Then
+        assertEquals(25, statsService.getUserCount());
+    }
+
+    @Test
+    void getStats_ReportsRegistrationRateOverSlidingWindows() {
+        // Given
+        statsService.onUserChanged(registered("alice"));
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(30));
+        statsService.onUserChanged(registered("bob"));
+        statsService.onUserChanged(registered("carol"));
+
+        // When
+        OperationalStatsService.Stats now = statsService.getStats();
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(45));
+        OperationalStatsService.Stats later = statsService.getStats();
+
+        // Then
+        assertEquals(2, now.registrationsLastMinute());
+        assertEquals(3, now.registrationsLastHour());
+        assertEquals(0, later.registrationsLastMinute());
+        assertEquals(2, later.registrationsLastHour());
+        assertNull(now.connectionPool());
+    }
+
+    @Test
+    void isDatabaseReachable_ValidatesAPooledConnection() throws Exception {
+        // Given
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection).thenThrow(new SQLException("refused"));
+        when(connection.isValid(anyInt())).thenReturn(true);
+
+        // When & Then
+        assertTrue(statsService.isDatabaseReachable());
+        verify(connection).close();
+        assertFalse(statsService.isDatabaseReachable());
+    }
+
+    private static UserChangedEvent registered(String username) {
+        return new UserChangedEvent(username, username + "@example.com", UserChangedEvent.Type.REGISTERED);
+    }
+}
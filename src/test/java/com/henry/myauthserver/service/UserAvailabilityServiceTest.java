@@ -0,0 +1,116 @@
+package com.henry.myauthserver.service;
+
+import com.henry.myauthserver.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserAvailabilityServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UserAvailabilityService availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table users (username varchar(50), email varchar(255), created_at timestamp)");
+        jdbcTemplate.update("insert into users values ('ExistingUser', 'Existing@Example.com', current_timestamp)");
+
+        availabilityService = new UserAvailabilityService(userRepository, database,
+                new DataSourceTransactionManager(database), 1000, 0.01, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void isUsernameAvailable_BeforeLoad_ChecksDatabase() {
+        // Given
+        when(userRepository.existsByUsernameNormalized("newuser")).thenReturn(false);
+
+        // When & Then
+        assertTrue(availabilityService.isUsernameAvailable("NewUser"));
+        verify(userRepository).existsByUsernameNormalized("newuser");
+    }
+
+    @Test
+    void isUsernameAvailable_AfterLoad_UnknownNameSkipsDatabase() {
+        // Given
+        availabilityService.rebuild();
+
+        // When
+        boolean available = availabilityService.isUsernameAvailable("brand-new-user");
+
+        // Then
+        assertTrue(available);
+        verify(userRepository, never()).existsByUsernameNormalized(anyString());
+        assertEquals(1, availabilityService.getStats().filterNegatives());
+    }
+
+    @Test
+    void isEmailAvailable_AfterLoad_KnownEmailConfirmedCaseInsensitively() {
+        // Given
+        availabilityService.rebuild();
+        when(userRepository.existsByEmailNormalized("existing@example.com")).thenReturn(true);
+
+        // When & Then
+        assertFalse(availabilityService.isEmailAvailable(" EXISTING@example.com "));
+        assertTrue(availabilityService.emailMightExist("existing@example.com"));
+    }
+
+    @Test
+    void onUserChanged_Registered_AddsToLoadedFilter() {
+        // Given
+        availabilityService.rebuild();
+        assertFalse(availabilityService.usernameMightExist("fresh"));
+
+        // When
+        availabilityService.onUserChanged(new UserChangedEvent("Fresh", "fresh@example.com",
+                UserChangedEvent.Type.REGISTERED));
+
+        // Then
+        assertTrue(availabilityService.usernameMightExist("fresh"));
+        assertTrue(availabilityService.emailMightExist("FRESH@example.com"));
+    }
+
+    @Test
+    void syncRecentRegistrations_PicksUpOtherNodesUsers() {
+        // Given
+        availabilityService.rebuild();
+        jdbcTemplate.update("insert into users values ('Remote', 'remote@example.com', current_timestamp)");
+        assertFalse(availabilityService.usernameMightExist("remote"));
+
+        // When
+        availabilityService.syncRecentRegistrations();
+
+        // Then
+        assertTrue(availabilityService.usernameMightExist("Remote"));
+        assertTrue(availabilityService.emailMightExist("remote@example.com"));
+        assertEquals(2, availabilityService.getStats().entries());
+    }
+}
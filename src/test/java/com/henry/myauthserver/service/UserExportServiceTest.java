@@ -0,0 +1,82 @@
+package com.henry.myauthserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserExportServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private EmbeddedDatabase database;
+    private UserExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table users (id bigint auto_increment primary key, username varchar(50), " +
+                "email varchar(255), password varchar(255), enabled boolean, role varchar(255), created_at timestamp)");
+        for (int i = 1; i <= 5; i++) {
+            jdbcTemplate.update("insert into users (username, email, password, enabled, role, created_at) " +
+                    "values (?, ?, '{bcrypt}hash', true, 'USER', current_timestamp)", "user" + i, "user" + i + "@example.com");
+        }
+        // Gaps in the id sequence must not end the export early
+        jdbcTemplate.update("delete from users where id = 2");
+
+        exportService = new UserExportService(database, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void exportUsers_WritesOneJsonObjectPerLineAcrossPages() throws Exception {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long exported = exportService.exportUsers(out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, exported);
+        assertEquals(4, lines.length);
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode user = objectMapper.readTree(line);
+            assertTrue(user.get("id").asLong() > previousId);
+            previousId = user.get("id").asLong();
+            assertFalse(user.has("passwordHash"));
+            assertEquals("USER", user.get("role").asText());
+        }
+        assertEquals("user5", objectMapper.readTree(lines[3]).get("username").asText());
+    }
+
+    @Test
+    void exportUsers_EmptyTable_WritesNothing() throws Exception {
+        // Given
+        new JdbcTemplate(database).update("delete from users");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When & Then
+        assertEquals(0, exportService.exportUsers(out));
+        assertEquals(0, out.size());
+    }
+}
@@ -0,0 +1,182 @@
+package com.henry.myauthserver.service;
+
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    private static final String BCRYPT_HASH = "$2a$04$abcdefghijklmnopqrstuu9p7nO0fRlaJ4RbW9nCLNplg0tB8bHcC";
+
+    @Mock
+    private UserAvailabilityService availabilityService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table users (id bigint auto_increment primary key, username varchar(50), " +
+                "email varchar(255), password varchar(255), username_normalized varchar(50) unique, " +
+                "email_normalized varchar(255) unique, enabled boolean, role varchar(255), created_at timestamp)");
+        jdbcTemplate.update("insert into users (username, email, password, username_normalized, email_normalized) " +
+                "values ('Existing', 'existing@example.com', 'x', 'existing', 'existing@example.com')");
+
+        lenient().when(availabilityService.usernameMightExist(anyString())).thenReturn(true);
+        lenient().when(availabilityService.emailMightExist(anyString())).thenReturn(true);
+
+        importService = new UserImportService(database, new DataSourceTransactionManager(database),
+                new BCryptPasswordEncoder(4), availabilityService, eventPublisher,
+                Validation.buildDefaultValidatorFactory().getValidator(), 2, 2, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void importUsers_Ndjson_InsertsValidRowsAndReportsErrors() throws Exception {
+        // Given
+        String body = """
+                {"username": "alice", "email": "alice@example.com", "password": "password123"}
+                {"username": "bob", "email": "bob@example.com", "passwordHash": "%s"}
+                {"username": "EXISTING", "email": "other@example.com", "password": "password123"}
+                not json
+                {"username": "carol", "email": "not-an-email", "password": "password123"}
+                """.formatted(BCRYPT_HASH);
+
+        // When
+        UserImportService.Result result = importService.importUsers(stream(body), UserImportService.Format.NDJSON);
+
+        // Then
+        assertEquals(5, result.total());
+        assertEquals(2, result.imported());
+        assertEquals(3, result.failed());
+        assertTrue(result.errors().contains(new UserImportService.RowError(3, "Username already exists")));
+        assertTrue(result.errors().contains(new UserImportService.RowError(4, "Invalid JSON")));
+        assertTrue(result.errors().contains(new UserImportService.RowError(5, "Email must be valid")));
+
+        assertEquals("{bcrypt}" + BCRYPT_HASH, passwordOf("bob"));
+        assertTrue(new BCryptPasswordEncoder().matches("password123", passwordOf("alice")));
+        verify(eventPublisher, times(2)).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void importUsers_PasswordHashes_AcceptsEveryEncoderFormat() throws Exception {
+        // Given
+        String pbkdf2 = new Pbkdf2PasswordEncoder("", 16, 1000,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256).encode("password123");
+        // The same salt and hash in Base64, which the configured hex encoder cannot read
+        String pbkdf2Base64 = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(pbkdf2));
+        String argon2 = new Argon2PasswordEncoder(16, 32, 1, 1024, 1).encode("password123");
+        String body = """
+                {"username": "heidi", "email": "heidi@example.com", "passwordHash": "{pbkdf2}%s"}
+                {"username": "ivan", "email": "ivan@example.com", "passwordHash": "{argon2}%s"}
+                {"username": "judy", "email": "judy@example.com", "passwordHash": "{bcrypt}%s"}
+                {"username": "mallory", "email": "mallory@example.com", "passwordHash": "{noop}password123"}
+                {"username": "oscar", "email": "oscar@example.com", "passwordHash": "{argon2}not-a-hash"}
+                {"username": "peggy", "email": "peggy@example.com", "passwordHash": "{pbkdf2}abc"}
+                {"username": "rupert", "email": "rupert@example.com", "passwordHash": "{pbkdf2}%s"}
+                {"username": "sybil", "email": "sybil@example.com", "passwordHash": "{pbkdf2}%s"}
+                """.formatted(pbkdf2, argon2, BCRYPT_HASH, pbkdf2.substring(2), pbkdf2Base64);
+
+        // When
+        UserImportService.Result result = importService.importUsers(stream(body), UserImportService.Format.NDJSON);
+
+        // Then
+        assertEquals(3, result.imported());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L), result.errors().stream().map(UserImportService.RowError::line).toList());
+        assertEquals("{pbkdf2}" + pbkdf2, passwordOf("heidi"));
+        assertEquals("{argon2}" + argon2, passwordOf("ivan"));
+        assertEquals("{bcrypt}" + BCRYPT_HASH, passwordOf("judy"));
+    }
+
+    @Test
+    void importUsers_Csv_RejectsDuplicatesWithinAndAcrossBatches() throws Exception {
+        // Given
+        String body = """
+                username,email,password
+                dave,dave@example.com,"pass,word1"
+                Dave,dave2@example.com,password123
+                erin,DAVE@example.com,password123
+                """;
+
+        // When
+        UserImportService.Result result = importService.importUsers(stream(body), UserImportService.Format.CSV);
+
+        // Then
+        assertEquals(3, result.total());
+        assertEquals(1, result.imported());
+        assertTrue(result.errors().contains(new UserImportService.RowError(3, "Duplicate username in import")));
+        assertTrue(result.errors().contains(new UserImportService.RowError(4, "Email already exists")));
+        assertTrue(new BCryptPasswordEncoder().matches("pass,word1", passwordOf("dave")));
+    }
+
+    @Test
+    void importUsers_ConflictInsideBatch_OnlyConflictingRowFails() throws Exception {
+        // Given - the availability filter rules the names out, so the conflict only shows on insert
+        when(availabilityService.usernameMightExist(anyString())).thenReturn(false);
+        when(availabilityService.emailMightExist(anyString())).thenReturn(false);
+        String body = """
+                {"username": "grace", "email": "grace@example.com", "passwordHash": "%s"}
+                {"username": "existing", "email": "new@example.com", "passwordHash": "%s"}
+                """.formatted(BCRYPT_HASH, BCRYPT_HASH);
+
+        // When
+        UserImportService.Result result = importService.importUsers(stream(body), UserImportService.Format.NDJSON);
+
+        // Then
+        assertEquals(1, result.imported());
+        assertEquals(new UserImportService.RowError(2, "Username or email already exists"), result.errors().get(0));
+        assertNotNull(passwordOf("grace"));
+    }
+
+    @Test
+    void splitCsv_QuotedFields() {
+        assertArrayEquals(new String[]{"a", "b,c", "d\"e", ""}, UserImportService.splitCsv("a,\"b,c\",\"d\"\"e\","));
+    }
+
+    private String passwordOf(String username) {
+        return jdbcTemplate.queryForObject("select password from users where username = ?", String.class, username);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,174 @@
+package com.henry.myauthserver.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSearchServiceTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table users (id bigint auto_increment primary key, username varchar(50), " +
+                "email varchar(255), role varchar(255), enabled boolean, username_normalized varchar(50) unique, " +
+                "email_normalized varchar(255) unique)");
+        insert("Alice", "alice@example.com");
+        insert("alicia", "alicia@corp.example");
+        insert("ALI_BABA", "thieves@example.com");
+        insert("alibi", "alibi@example.com");
+        insert("bob", "ali@other.example");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void search_Database_MatchesPrefixIgnoringCaseInIndexOrder() {
+        // Given
+        UserSearchService searchService = new UserSearchService(database, "database", 100);
+
+        // When
+        UserSearchService.Page page = searchService.search(UserSearchService.Field.USERNAME, " ALI", null, 10);
+
+        // Then
+        assertEquals(List.of("ALI_BABA", "alibi", "Alice", "alicia"), usernames(page));
+        assertNull(page.next());
+    }
+
+    @Test
+    void search_Database_PagesWithCursor() {
+        // Given
+        UserSearchService searchService = new UserSearchService(database, "database", 100);
+
+        // When
+        List<String> found = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            UserSearchService.Page page = searchService.search(UserSearchService.Field.USERNAME, "ali", cursor, 3);
+            found.addAll(usernames(page));
+            cursor = page.next();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertEquals(List.of("ALI_BABA", "alibi", "Alice", "alicia"), found);
+        assertEquals(2, pages);
+    }
+
+    @Test
+    void search_Database_TreatsWildcardsLiterally() {
+        // Given
+        UserSearchService searchService = new UserSearchService(database, "database", 100);
+
+        // When
+        UserSearchService.Page page = searchService.search(UserSearchService.Field.USERNAME, "ali_", null, 10);
+
+        // Then
+        assertEquals(List.of("ALI_BABA"), usernames(page));
+    }
+
+    @Test
+    void search_ByEmail_MatchesEmailPrefix() {
+        // Given
+        UserSearchService searchService = new UserSearchService(database, "database", 100);
+
+        // When
+        UserSearchService.Page page = searchService.search(UserSearchService.Field.EMAIL, "ali", null, 10);
+
+        // Then
+        assertEquals(List.of("bob", "alibi", "Alice", "alicia"), usernames(page));
+    }
+
+    @Test
+    void search_MemoryIndex_MatchesDatabaseResultsAndFollowsChanges() {
+        // Given
+        UserSearchService fromDatabase = new UserSearchService(database, "database", 100);
+        UserSearchService memory = new UserSearchService(database, "memory", 100);
+        memory.load();
+
+        // When
+        UserSearchService.Page firstPage = memory.search(UserSearchService.Field.USERNAME, "ali", null, 2);
+        UserSearchService.Page secondPage = memory.search(UserSearchService.Field.USERNAME, "ali", firstPage.next(), 2);
+
+        // Then
+        assertEquals(fromDatabase.search(UserSearchService.Field.USERNAME, "ali", null, 2), firstPage);
+        assertEquals(List.of("Alice", "alicia"), usernames(secondPage));
+
+        insert("Alistair", "alistair@example.com");
+        memory.onUserChanged(new UserChangedEvent("Alistair", "alistair@example.com",
+                UserChangedEvent.Type.REGISTERED));
+        assertEquals(List.of("Alistair"), usernames(memory.search(UserSearchService.Field.USERNAME, "alis", null, 10)));
+    }
+
+    @Test
+    void successor_TrailingMaxChars_DroppedBeforeIncrementing() {
+        // When & Then
+        assertEquals("alj", UserSearchService.successor("ali"));
+        assertEquals("b", UserSearchService.successor("a\uffff\uffff"));
+        assertNull(UserSearchService.successor("\uffff\uffff"));
+    }
+
+    @Test
+    void search_PrefixEndingInMaxChar_FindsMatchesInDatabaseAndMemory() {
+        // Given
+        insert("a\uffffz", "max1@example.com");
+        insert("\uffffx", "max2@example.com");
+        UserSearchService fromDatabase = new UserSearchService(database, "database", 100);
+        UserSearchService memory = new UserSearchService(database, "memory", 100);
+        memory.load();
+
+        for (UserSearchService searchService : List.of(fromDatabase, memory)) {
+            // When
+            UserSearchService.Page bounded = searchService.search(UserSearchService.Field.USERNAME, "a\uffff",
+                    null, 10);
+            UserSearchService.Page unbounded = searchService.search(UserSearchService.Field.USERNAME, "\uffff",
+                    null, 10);
+
+            // Then
+            assertEquals(List.of("a\uffffz"), usernames(bounded));
+            assertEquals(List.of("\uffffx"), usernames(unbounded));
+        }
+    }
+
+    @Test
+    void search_InvalidArguments_Rejected() {
+        // Given
+        UserSearchService searchService = new UserSearchService(database, "database", 100);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.search(UserSearchService.Field.USERNAME, "  ", null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.search(UserSearchService.Field.USERNAME, "ali", null, 101));
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.search(UserSearchService.Field.USERNAME, "ali", "Ym9i", 10));
+    }
+
+    private void insert(String username, String email) {
+        jdbcTemplate.update("insert into users (username, email, role, enabled, username_normalized, email_normalized) " +
+                "values (?, ?, 'USER', true, ?, ?)", username, email, username.toLowerCase(), email.toLowerCase());
+    }
+
+    private static List<String> usernames(UserSearchService.Page page) {
+        return page.users().stream().map(UserSearchService.UserSummary::username).toList();
+    }
+}
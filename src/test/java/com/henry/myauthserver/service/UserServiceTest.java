@@ -10,8 +10,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -26,6 +31,12 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private UserAvailabilityService availabilityService;
+
     @InjectMocks
     private UserService userService;
 
@@ -37,13 +48,14 @@ class UserServiceTest {
         registrationRequest.setUsername("testuser");
         registrationRequest.setEmail("test@example.com");
         registrationRequest.setPassword("password123");
+
+        lenient().when(availabilityService.isUsernameAvailable(anyString())).thenReturn(true);
+        lenient().when(availabilityService.isEmailAvailable(anyString())).thenReturn(true);
     }
 
     @Test
     void registerUser_Success() {
         // Given
-        when(userRepository.existsByUsername("testuser")).thenReturn(false);
-        when(userRepository.existsByEmail("test@example.com")).thenReturn(false);
         when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
 
         AppUser savedUser = new AppUser();
@@ -54,7 +66,7 @@ class UserServiceTest {
         savedUser.setEnabled(true);
         savedUser.setRole("USER");
 
-        when(userRepository.save(any(AppUser.class))).thenReturn(savedUser);
+        when(userRepository.saveAndFlush(any(AppUser.class))).thenReturn(savedUser);
 
         // When
         AppUser result = userService.registerUser(registrationRequest);
@@ -67,58 +79,96 @@ class UserServiceTest {
         assertTrue(result.isEnabled());
         assertEquals("USER", result.getRole());
 
-        // Verify interactions
-        verify(userRepository).existsByUsername("testuser");
-        verify(userRepository).existsByEmail("test@example.com");
+        // Verify interactions - a single insert, no existence queries
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(userRepository, never()).existsByEmail(anyString());
         verify(passwordEncoder).encode("password123");
-        verify(userRepository).save(any(AppUser.class));
 
         // Verify the saved user has correct properties
         ArgumentCaptor<AppUser> userCaptor = ArgumentCaptor.forClass(AppUser.class);
-        verify(userRepository).save(userCaptor.capture());
+        verify(userRepository).saveAndFlush(userCaptor.capture());
         AppUser capturedUser = userCaptor.getValue();
         assertEquals("testuser", capturedUser.getUsername());
         assertEquals("test@example.com", capturedUser.getEmail());
         assertEquals("encodedPassword", capturedUser.getPassword());
         assertTrue(capturedUser.isEnabled());
         assertEquals("USER", capturedUser.getRole());
+
+        verify(eventPublisher).publishEvent(new UserChangedEvent("testuser", "test@example.com",
+                UserChangedEvent.Type.REGISTERED));
     }
 
     @Test
     void registerUser_UsernameAlreadyExists_ThrowsException() {
         // Given
-        when(userRepository.existsByUsername("testuser")).thenReturn(true);
+        when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(AppUser.class))).thenThrow(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"uk_users_username_normalized\""));
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () ->
             userService.registerUser(registrationRequest));
 
         assertEquals("Username already exists", exception.getMessage());
+        verifyNoInteractions(eventPublisher);
+    }
 
-        // Verify no further interactions
-        verify(userRepository).existsByUsername("testuser");
-        verify(userRepository, never()).existsByEmail(anyString());
+    @Test
+    void registerUser_EmailAlreadyExists_ThrowsException() {
+        // Given - H2 reports the violated index together with its column
+        when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(AppUser.class))).thenThrow(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_USERS_EMAIL_NORMALIZED_INDEX_4 ON " +
+                "PUBLIC.USERS(EMAIL_NORMALIZED NULLS FIRST) VALUES ( /* 2 */ 'test@example.com' )\""));
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+            userService.registerUser(registrationRequest));
+
+        assertEquals("Email already exists", exception.getMessage());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void registerUser_KnownUsername_FailsBeforeHashing() {
+        // Given
+        when(availabilityService.isUsernameAvailable("testuser")).thenReturn(false);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+            userService.registerUser(registrationRequest));
+
+        assertEquals("Username already exists", exception.getMessage());
         verify(passwordEncoder, never()).encode(anyString());
-        verify(userRepository, never()).save(any(AppUser.class));
+        verify(userRepository, never()).saveAndFlush(any(AppUser.class));
     }
 
     @Test
-    void registerUser_EmailAlreadyExists_ThrowsException() {
+    void registerUser_KnownEmail_FailsBeforeHashing() {
         // Given
-        when(userRepository.existsByUsername("testuser")).thenReturn(false);
-        when(userRepository.existsByEmail("test@example.com")).thenReturn(true);
+        when(availabilityService.isEmailAvailable("test@example.com")).thenReturn(false);
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () ->
             userService.registerUser(registrationRequest));
 
         assertEquals("Email already exists", exception.getMessage());
-
-        // Verify no further interactions
-        verify(userRepository).existsByUsername("testuser");
-        verify(userRepository).existsByEmail("test@example.com");
         verify(passwordEncoder, never()).encode(anyString());
-        verify(userRepository, never()).save(any(AppUser.class));
+        verify(userRepository, never()).saveAndFlush(any(AppUser.class));
+    }
+
+    @Test
+    void registerUser_OtherIntegrityViolation_Rethrown() {
+        // Given
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("value too long for column");
+        when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(AppUser.class))).thenThrow(violation);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+            userService.registerUser(registrationRequest));
+
+        assertSame(violation, exception);
     }
 
     @Test
@@ -134,13 +184,11 @@ class UserServiceTest {
         // (validation happens at controller level with @Valid)
         registrationRequest.setUsername("");
 
-        when(userRepository.existsByUsername("")).thenReturn(false);
-        when(userRepository.existsByEmail("test@example.com")).thenReturn(false);
         when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
 
         AppUser savedUser = new AppUser();
         savedUser.setUsername("");
-        when(userRepository.save(any(AppUser.class))).thenReturn(savedUser);
+        when(userRepository.saveAndFlush(any(AppUser.class))).thenReturn(savedUser);
 
         // When
         AppUser result = userService.registerUser(registrationRequest);
@@ -150,4 +198,68 @@ class UserServiceTest {
         assertEquals("", result.getUsername());
     }
 
+    @Test
+    void updatePasswordHash_ExistingUser_SavesNewHash() {
+        // Given
+        AppUser user = new AppUser();
+        user.setUsername("testuser");
+        user.setPassword("$2a$10$legacy");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When
+        userService.updatePasswordHash("testuser", "{bcrypt}$2a$12$upgraded");
+
+        // Then
+        assertEquals("{bcrypt}$2a$12$upgraded", user.getPassword());
+        verify(userRepository).save(user);
+        verify(eventPublisher).publishEvent(new UserChangedEvent("testuser", null,
+                UserChangedEvent.Type.PASSWORD_CHANGED));
+    }
+
+    @Test
+    void updatePasswordHash_UnknownUser_ThrowsException() {
+        // Given
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(UsernameNotFoundException.class, () ->
+            userService.updatePasswordHash("ghost", "hash"));
+        verify(userRepository, never()).save(any(AppUser.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void setEnabled_False_DisablesUserAndPublishesEvent() {
+        // Given
+        AppUser user = new AppUser();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When
+        userService.setEnabled("testuser", false);
+
+        // Then
+        assertFalse(user.isEnabled());
+        verify(userRepository).save(user);
+        verify(eventPublisher).publishEvent(new UserChangedEvent("testuser", "test@example.com",
+                UserChangedEvent.Type.DISABLED));
+    }
+
+    @Test
+    void changeRole_UpdatesRoleAndPublishesEvent() {
+        // Given
+        AppUser user = new AppUser();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When
+        userService.changeRole("testuser", "ADMIN");
+
+        // Then
+        assertEquals("ADMIN", user.getRole());
+        verify(eventPublisher).publishEvent(new UserChangedEvent("testuser", "test@example.com",
+                UserChangedEvent.Type.ROLE_CHANGED));
+    }
 }
@@ -0,0 +1,62 @@
+package com.henry.myauthserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void tryAcquire_UpToCapacity_ThenReportsWait() {
+        // Given
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(1), 0);
+
+        // When & Then
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void tryAcquire_AfterRefillInterval_GrantsOneMore() {
+        // Given
+        TokenBucket bucket = new TokenBucket(1, Duration.ofSeconds(1), 0);
+        bucket.tryAcquire(0);
+
+        // When & Then
+        assertEquals(SECOND / 2, bucket.tryAcquire(SECOND / 2));
+        assertEquals(0, bucket.tryAcquire(SECOND));
+        assertTrue(bucket.tryAcquire(SECOND) > 0);
+    }
+
+    @Test
+    void tryAcquire_LongIdle_RefillsOnlyToCapacity() {
+        // Given
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(1), 0);
+
+        // When
+        long later = 60 * SECOND;
+
+        // Then
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void drained_GrantsNothingUntilRefilled() {
+        // Given
+        TokenBucket bucket = TokenBucket.drained(3, Duration.ofSeconds(1), 0);
+
+        // When & Then
+        assertFalse(bucket.isFull(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(SECOND));
+        assertTrue(bucket.isFull(4 * SECOND));
+    }
+}